@@ -0,0 +1,35 @@
+package lookandsay.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs the benchmarks with the usual JMH command line and always attaches the GC
+ * profiler, so that the allocation rate of each operation is reported next to its throughput and
+ * latency.
+ */
+public final class BenchmarkMain {
+
+  /**
+   * This class is only an entry point.
+   */
+  private BenchmarkMain() {
+  }
+
+  /**
+   * Runs the benchmarks selected on the command line.
+   *
+   * @param args standard JMH command line arguments.
+   * @throws Exception if the arguments cannot be parsed or a benchmark fails.
+   */
+  public static void main(String[] args) throws Exception {
+    Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,156 @@
+package lookandsay.benchmarks;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import lookandsay.ConwayEngine;
+import lookandsay.LookAndSayIterator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * This class measures the four operations of the LookAndSayIterator at a given position in a
+ * sequence. Every benchmark starts from an iterator that has already been moved forward to the
+ * requested term index, so the cost of one call is measured on a term of a known size. A step
+ * forward and a step back are each measured on their own, with the opposite step taken after every
+ * invocation outside the measurement so that the next one starts from the same term. The timer
+ * overhead of these per invocation teardowns swamps the steps on small terms, so both steps are
+ * also measured together, one after the other, without any teardown.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class LookAndSayIteratorBenchmark {
+
+  /**
+   * The iterator positioned at the requested term. The default seed and the long seed used by the
+   * unit tests are measured, each at a small, a medium and a large term index.
+   */
+  @State(Scope.Thread)
+  public static class Positioned {
+
+    @Param({"1", "11221134411113344267"})
+    public String seed;
+
+    @Param({"10", "30", "45"})
+    public int termIndex;
+
+    LookAndSayIterator iterator;
+
+    /**
+     * Moves a fresh iterator forward until its current term is the requested one. The end value
+     * has one digit more than the term after it, so that hasNext() never stops the iterator early
+     * and no larger bound has to be converted.
+     */
+    @Setup(Level.Trial)
+    public void position() {
+      BigInteger start = new BigInteger(seed);
+      BigInteger length = new ConwayEngine(start).length(termIndex + 1);
+      iterator = new LookAndSayIterator(start, BigInteger.TEN.pow(length.intValueExact()));
+      for (int i = 0; i < termIndex; i++) {
+        iterator.next();
+      }
+    }
+  }
+
+  /**
+   * The positioned iterator, stepped back after every invocation.
+   */
+  @State(Scope.Thread)
+  public static class Forward extends Positioned {
+
+    /**
+     * Steps back to the requested term after a step forward.
+     */
+    @TearDown(Level.Invocation)
+    public void stepBack() {
+      iterator.prev();
+    }
+  }
+
+  /**
+   * The positioned iterator, stepped forward after every invocation.
+   */
+  @State(Scope.Thread)
+  public static class Backward extends Positioned {
+
+    /**
+     * Steps forward to the requested term after a step back.
+     */
+    @TearDown(Level.Invocation)
+    public void stepForward() {
+      iterator.next();
+    }
+  }
+
+  /**
+   * Measures one step forward.
+   *
+   * @param state the positioned iterator, stepped back again outside the measurement.
+   * @return the term returned.
+   */
+  @Benchmark
+  public BigInteger next(Forward state) {
+    return state.iterator.next();
+  }
+
+  /**
+   * Measures one step back.
+   *
+   * @param state the positioned iterator, stepped forward again outside the measurement.
+   * @return the term returned.
+   */
+  @Benchmark
+  public BigInteger prev(Backward state) {
+    return state.iterator.prev();
+  }
+
+  /**
+   * Measures one step forward and the step back to the term it started from.
+   *
+   * @param state     the positioned iterator.
+   * @param blackhole the sink of the terms returned.
+   */
+  @Benchmark
+  public void nextAndPrev(Positioned state, Blackhole blackhole) {
+    blackhole.consume(state.iterator.next());
+    blackhole.consume(state.iterator.prev());
+  }
+
+  /**
+   * Measures the check done before every step forward.
+   *
+   * @param state the positioned iterator.
+   * @return the result of hasNext().
+   */
+  @Benchmark
+  public boolean hasNext(Positioned state) {
+    return state.iterator.hasNext();
+  }
+
+  /**
+   * Measures the check done before every step back.
+   *
+   * @param state the positioned iterator.
+   * @return the result of hasPrevious().
+   */
+  @Benchmark
+  public boolean hasPrevious(Positioned state) {
+    return state.iterator.hasPrevious();
+  }
+}
@@ -0,0 +1,869 @@
+package lookandsay;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The stepping logic shared by the iterators over a look-and-say sequence. The current term lives
+ * in a digit buffer and every step runs the encode or decode kernel into a second buffer; the
+ * subclasses only decide what value is handed out for a term, and that value is built the first
+ * time it is asked for.
+ *
+ * @param <T> the type of the values handed out for the terms.
+ */
+abstract class AbstractTermIterator<T> implements RIterator<T>, Cloneable {
+
+  private DigitBuffer end;
+  private DigitBuffer current;
+  private DigitBuffer spare;
+  private T value;
+  private ForkJoinPool pool;
+  private boolean belowEnd;
+  private TermStats stats;
+  private TermHistory history;
+  private long historyBytes;
+  private long index;
+  private long age;
+  private AtomExpander expander;
+  private AtomExpander.Parts parts;
+  private AtomExpander.Parts nextParts;
+  private AtomExpander.Parts spareParts;
+  private TermMetrics metrics;
+  private EngineProfile profile = EngineProfile.defaults();
+  private TermEngine forced;
+  private TermEngine engine;
+
+  /**
+   * Skips shorter than this are made one step at a time, since cutting the term into atoms costs
+   * about as much as a few steps.
+   */
+  private static final int SHORTEST_JUMP = 4;
+
+  /**
+   * Terms up to this long are cut into atoms as soon as they can be, since cutting them costs
+   * next to nothing.
+   */
+  private static final int SPLIT_AT_ONCE = 1 << 12;
+
+  /**
+   * Longer terms are only cut into atoms after this many steps forward in a row, so that walking
+   * back and forth does not cut the same terms over and over.
+   */
+  private static final int SPLIT_AFTER = 8;
+
+  /**
+   * Conway's constant, the factor by which the length of the terms grows at every step in the
+   * long run.
+   */
+  private static final double GROWTH = 1.303577269034296;
+
+  /**
+   * this method should return the current number in the sequence and revert to the previous number
+   * in the sequence.
+   *
+   * @return the current number.
+   */
+  @Override
+  public T prev() {
+
+    if (hasPrevious()) {
+      StepEvent event = new StepEvent();
+      event.begin();
+      long started = metrics == null ? 0 : System.nanoTime();
+      T currentNumber = currentValue();
+      long read = current.length;
+      index--;
+      age = 0;
+      record(event, started, false, read, backward());
+
+      return currentNumber;
+    } else {
+      return currentValue();
+    }
+  }
+
+  /**
+   * should yield true if it is possible to go back one step, false otherwise. This only looks at
+   * the number of digits, which is kept with the term, so it takes constant time.
+   *
+   * @return true if it is possible to go back one step, false otherwise.
+   */
+  @Override
+  public boolean hasPrevious() {
+
+    return current.length % 2 == 0;
+  }
+
+  /**
+   * Returns {@code true} if the iteration has more elements. (In other words, returns {@code true}
+   * if {@link #next} would return an element rather than throwing an exception.) The comparison
+   * with the end value is made once per term, when the term is produced.
+   *
+   * @return {@code true} if the iteration has more elements
+   */
+  @Override
+  public boolean hasNext() {
+    return belowEnd;
+
+  }
+
+  /**
+   * Returns the next element in the iteration.
+   *
+   * @return the next element in the iteration
+   * @throws NoSuchElementException when seed exceeds end value.
+   */
+  @Override
+  public T next() throws NoSuchElementException {
+
+    if (hasNext()) {
+      StepEvent event = new StepEvent();
+      event.begin();
+      long started = metrics == null ? 0 : System.nanoTime();
+      T currentNumber = currentValue();
+      long read = current.length;
+      long capacity = forward();
+      index++;
+      age++;
+      record(event, started, true, read, capacity);
+
+      return currentNumber;
+    } else {
+      return currentValue();
+    }
+  }
+
+  /**
+   * This method makes the iterator keep the terms it visits, up to the given number of bytes, so
+   * that scrubbing back and forth does not compute the same terms over and over. The kept terms
+   * form a window of consecutive terms around the current one: next() and prev() inside the window
+   * only move along it, and the value handed out for a term is kept with it once built. When the window
+   * outgrows its budget, the end visited least recently is dropped; the current term is always
+   * kept. A size of 0 stops keeping terms. Calling this method again starts a new window.
+   *
+   * @param maxBytes the number of bytes the kept terms may take.
+   * @throws IllegalArgumentException If the size is negative.
+   */
+  public void keepHistory(long maxBytes) throws IllegalArgumentException {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("history size cannot be negative");
+    }
+    historyBytes = maxBytes;
+    history = maxBytes == 0 ? null : new TermHistory(maxBytes, current, value, valueBytes(), stats);
+  }
+
+  /**
+   * This method makes the iterator report what it does to the given metrics: the time taken by
+   * every call to next(), prev() and skip(), the digits they read and wrote, and the bytes
+   * allocated on the way. A null argument stops the reports. Independently of this, every move is
+   * also a {@code lookandsay.Step} event and every value built a {@code lookandsay.Value} event
+   * for the flight recorder, which costs next to nothing unless a recording enables them.
+   *
+   * @param metrics where to report, or null.
+   */
+  public void recordMetrics(TermMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * This method sets the speeds from which the engine of every step is chosen. The profile applies
+   * from the next step on; by default it is {@link EngineProfile#defaults()}.
+   *
+   * @param profile the speeds of the engines on this machine.
+   * @throws IllegalArgumentException If the profile is null.
+   */
+  public void chooseEngines(EngineProfile profile) throws IllegalArgumentException {
+    if (profile == null) {
+      throw new IllegalArgumentException("profile cannot be null");
+    }
+    this.profile = profile;
+    this.forced = null;
+  }
+
+  /**
+   * This method makes every step use the given engine whatever the profile says, as far as the
+   * engine can compute the step; steps it cannot compute use {@link TermEngine#DIGITS}. A null
+   * argument goes back to choosing from the profile. Skips of several steps still expand atoms
+   * straight to their descendants.
+   *
+   * @param engine the engine to use, or null.
+   */
+  public void forceEngine(TermEngine engine) {
+    this.forced = engine;
+  }
+
+  /**
+   * This method tells which engine computed the current term.
+   *
+   * @return the engine, or null if the term is the seed, was reached by a skip or was kept in the
+   *         history.
+   */
+  public TermEngine engine() {
+    return engine;
+  }
+
+  /**
+   * This method moves the given number of steps forward, as that many calls to next() would, but
+   * without building the value of any term on the way. It stops early at the first term that is
+   * not below the end value. Once the terms have split into atoms that evolve on their own, which
+   * happens a couple of steps after most seeds, a long skip is made by expanding every atom of the
+   * current term straight to its descendants instead of reading each term in between out loud.
+   * When the iterator keeps a history, the skipped terms are not kept: the window starts over at
+   * the term reached.
+   *
+   * @param steps the number of steps to move forward.
+   * @return the number of steps actually taken.
+   * @throws IllegalArgumentException If steps is negative.
+   */
+  public long skip(long steps) throws IllegalArgumentException {
+    if (steps < 0) {
+      throw new IllegalArgumentException("steps cannot be negative");
+    }
+    if (steps == 0 || !belowEnd) {
+      return 0;
+    }
+    StepEvent event = new StepEvent();
+    event.begin();
+    long started = metrics == null ? 0 : System.nanoTime();
+    long read = current.length;
+    history = null;
+    long capacity = current.digits.length + spare.digits.length;
+    long taken = 0;
+    while (taken < steps && belowEnd) {
+      long left = steps - taken;
+      int reach = 1;
+      if (left >= SHORTEST_JUMP && age >= 2 && AtomExpander.splittable(current)) {
+        reach = jump((int) Math.min(left, Integer.MAX_VALUE));
+      } else {
+        encode(spare);
+        swap();
+      }
+      taken += reach;
+      index += reach;
+      age += reach;
+    }
+    engine = null;
+    if (historyBytes > 0) {
+      history = new TermHistory(historyBytes, current, value, valueBytes(), stats);
+    }
+    long allocated = Math.max(0, current.digits.length + spare.digits.length - capacity);
+    if (metrics != null) {
+      metrics.skip(System.nanoTime() - started, taken, current.length);
+      if (allocated > 0) {
+        metrics.allocated(allocated);
+      }
+    }
+    if (event.shouldCommit()) {
+      event.direction = StepEvent.SKIP;
+      event.steps = taken;
+      event.digitsRead = read;
+      event.digitsWritten = current.length;
+      event.allocated = allocated;
+      event.commit();
+    }
+    return taken;
+  }
+
+  /**
+   * This method returns the values next() would hand out over the given number of calls, stopping
+   * early when the end value is reached, so the list may be shorter than asked for.
+   *
+   * @param count the number of terms wanted.
+   * @return the terms, in order, starting with the current one.
+   * @throws IllegalArgumentException If count is negative.
+   */
+  public List<T> nextBatch(int count) throws IllegalArgumentException {
+    if (count < 0) {
+      throw new IllegalArgumentException("count cannot be negative");
+    }
+    List<T> batch = new ArrayList<T>(Math.min(count, 1024));
+    while (batch.size() < count && hasNext()) {
+      batch.add(next());
+    }
+    return batch;
+  }
+
+  /**
+   * This method moves forward to the term with the given index, the seed being term 0, and
+   * returns it. It stops early at the first term that is not below the end value, in which case
+   * {@link #termIndex()} tells where it stopped.
+   *
+   * @param termIndex the index of the term to move to.
+   * @return the term reached.
+   * @throws IllegalArgumentException If the term index is before the current term.
+   */
+  public T advanceTo(long termIndex) throws IllegalArgumentException {
+    if (termIndex < index) {
+      throw new IllegalArgumentException("term index is behind the current term");
+    }
+    skip(termIndex - index);
+    return currentValue();
+  }
+
+  /**
+   * This method yields the index of the current term, the seed being term 0. It counts the steps
+   * taken forward minus the steps taken back.
+   *
+   * @return the index of the current term.
+   */
+  public long termIndex() {
+    return index;
+  }
+
+  /**
+   * This method yields the number of digits of the current number, without converting it.
+   *
+   * @return the number of digits of the current number.
+   */
+  public long length() {
+    return current.length;
+  }
+
+  /**
+   * This method yields how many runs of equal digits the current number is made of, which is half
+   * the length of the next number as long as no run is ten digits or longer. The statistics of a
+   * term are gathered the first time one of them is asked for and kept until the iterator moves.
+   *
+   * @return the number of runs of the current number.
+   */
+  public long runCount() {
+    return currentStats().runs();
+  }
+
+  /**
+   * This method yields how often a digit occurs in the current number.
+   *
+   * @param digit the digit, from 0 to 9.
+   * @return the number of occurrences of the digit.
+   * @throws IllegalArgumentException If the digit is not between 0 and 9.
+   */
+  public long digitCount(int digit) throws IllegalArgumentException {
+    if (digit < 0 || digit > 9) {
+      throw new IllegalArgumentException("digit must be between 0 and 9");
+    }
+    return currentStats().digitCount(digit);
+  }
+
+  /**
+   * This method tells whether the current number is the reading out loud of some other number,
+   * that is whether it has an even number of digits and none of its counts is zero. prev() also
+   * walks back from numbers that fail the second condition, dropping the digits with a zero count.
+   *
+   * @return true if the current number reads as (count, digit) pairs with non zero counts.
+   */
+  public boolean isDecodable() {
+    return currentStats().decodable();
+  }
+
+  /**
+   * This method streams the digits of the term the given number of steps after the current one,
+   * without building that term or any term in between. The digits are produced by a chain of one
+   * small run-length stage per step, so the memory needed grows with the number of steps and not
+   * with the length of the term. The end value of this iterator does not apply to the stream, and
+   * moving the iterator afterwards does not affect it.
+   *
+   * @param steps the number of steps ahead of the current term.
+   * @return the digits of the term, most significant first.
+   * @throws IllegalArgumentException If steps is negative.
+   */
+  public PrimitiveIterator.OfInt digitsAhead(int steps) throws IllegalArgumentException {
+    if (steps < 0) {
+      throw new IllegalArgumentException("steps cannot be negative");
+    }
+    return new DigitCascade(current, steps);
+  }
+
+  /**
+   * This method streams the digits of the term the given number of steps after the current one,
+   * as described for {@link #digitsAhead(int)}.
+   *
+   * @param steps the number of steps ahead of the current term.
+   * @return the digits of the term, most significant first.
+   * @throws IllegalArgumentException If steps is negative.
+   */
+  public IntStream digitStreamAhead(int steps) throws IllegalArgumentException {
+    return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(digitsAhead(steps),
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  /**
+   * This method saves the current term, its index and the end value to a file, from which the
+   * iterator can be resumed later without stepping there again from the seed. The digits are
+   * packed two per byte and checked with a CRC-32 when read back. The history and the metrics are
+   * not saved.
+   *
+   * @param path the file to create or overwrite.
+   * @throws IOException If the file cannot be written.
+   */
+  public void saveCheckpoint(Path path) throws IOException {
+    TermCheckpoint.write(path, current, index, age, end);
+  }
+
+  /**
+   * This method writes the digits of the current number as decimal text into a channel, straight
+   * from the digit buffer, without building the value handed out for it.
+   *
+   * @param channel the channel to write into.
+   * @return the number of bytes written.
+   * @throws IOException If the channel cannot be written.
+   */
+  public long writeDigits(WritableByteChannel channel) throws IOException {
+    return TermExport.digits(current.digits, current.length, channel);
+  }
+
+  /**
+   * This method writes the current number read out loud, as (count, digit) pairs of decimal text,
+   * into a channel. That is the next number, written without stepping this iterator or building
+   * the next term.
+   *
+   * @param channel the channel to write into.
+   * @return the number of bytes written.
+   * @throws IOException If the channel cannot be written.
+   */
+  public long writeRuns(WritableByteChannel channel) throws IOException {
+    return TermExport.runs(current.digits, current.length, channel);
+  }
+
+  /**
+   * This method streams the terms next() would hand out from the current one until the end value
+   * is reached, without moving this iterator. The stream knows roughly how many terms it holds
+   * and, when made parallel, works on the largest terms and the smaller ones before them at the
+   * same time.
+   *
+   * @return the terms from the current one on.
+   */
+  public Stream<T> stream() {
+    return StreamSupport.stream(new TermSpliterator<T>(fork(), Long.MAX_VALUE), false);
+  }
+
+  /**
+   * This method streams the digits of the current term. The stream has a known size and splits
+   * evenly, so a parallel stream over a large term spreads across cores. The digits are copied
+   * once, so moving the iterator afterwards does not affect the stream.
+   *
+   * @return the digits of the current term, most significant first.
+   */
+  public IntStream digitStream() {
+    return StreamSupport.intStream(
+            new DigitSpliterator(Arrays.copyOf(current.digits, current.length), 0, current.length),
+            false);
+  }
+
+  /**
+   * This method yields a copy of this iterator standing on the same term, which moves on its own
+   * from then on. The copy keeps no history.
+   *
+   * @return a copy of this iterator.
+   */
+  @SuppressWarnings("unchecked")
+  final AbstractTermIterator<T> fork() {
+    AbstractTermIterator<T> copy;
+    try {
+      copy = (AbstractTermIterator<T>) super.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new AssertionError(e);
+    }
+    copy.current = current.copy();
+    copy.spare = new DigitBuffer(2 * current.length);
+    copy.history = null;
+    copy.historyBytes = 0;
+    copy.expander = null;
+    copy.parts = null;
+    copy.nextParts = null;
+    copy.spareParts = null;
+    return copy;
+  }
+
+  /**
+   * This method yields the current term without moving, building its value the first time.
+   *
+   * @return the current term.
+   */
+  final T currentTerm() {
+    return currentValue();
+  }
+
+  /**
+   * This method tells whether next() gives the current term back after prev() without a history,
+   * which decides whether the terms after it still follow the term prev() leads to.
+   *
+   * @return true if going back and forth again returns to the current term.
+   */
+  final boolean prevIsReversible() {
+    return hasPrevious() && DigitKernel.decodeIsReversible(current);
+  }
+
+  /**
+   * This method estimates how many terms next() will still hand out, assuming the length grows
+   * by Conway's constant at every step.
+   *
+   * @return the estimated number of terms left, at least 1 while the end value is not reached.
+   */
+  final long termsLeft() {
+    if (!belowEnd) {
+      return 0;
+    }
+    double steps = Math.log((double) end.length / current.length) / Math.log(GROWTH);
+    return 1 + (long) Math.max(0, Math.ceil(steps));
+  }
+
+  /**
+   * This method sets up the two digit buffers for the given seed. The value handed out for the
+   * seed is kept so that the first call to next or prev does not have to build it.
+   *
+   * @param seed      the digits of the number at which the sequence begins.
+   * @param end       the digits of the end value.
+   * @param seedValue the value handed out for the seed.
+   */
+  final void start(DigitBuffer seed, DigitBuffer end, T seedValue) {
+    this.end = end;
+    this.current = seed;
+    this.spare = new DigitBuffer(2 * current.length);
+    this.value = seedValue;
+    this.belowEnd = current.compareTo(end) < 0;
+  }
+
+  /**
+   * This method sets up the digit buffers from a saved state. The value of the term is built when
+   * it is first asked for.
+   *
+   * @param checkpoint the saved state.
+   */
+  final void restore(TermCheckpoint checkpoint) {
+    start(checkpoint.term, checkpoint.end, null);
+    this.index = checkpoint.index;
+    this.age = checkpoint.age;
+  }
+
+  /**
+   * This method makes large terms be read out loud and decoded in parallel chunks on the given
+   * pool.
+   *
+   * @param pool the pool that encodes and decodes large terms.
+   */
+  final void encodeOn(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * This method builds the value handed out for a term.
+   *
+   * @param term the digits of the term, which must not be kept.
+   * @return the value of the term.
+   */
+  abstract T build(DigitBuffer term);
+
+  /**
+   * This method estimates the heap held by a value built by {@link #build}.
+   *
+   * @param term the value.
+   * @return the number of bytes it holds.
+   */
+  abstract long bytesOf(T term);
+
+  /**
+   * This method moves to the next term, taking it from the history when it is kept there.
+   *
+   * @return the capacity the buffer receiving the next term had before, or -1 if the term was
+   *         kept.
+   */
+  private long forward() {
+    engine = null;
+    if (history == null) {
+      long capacity = spare.digits.length;
+      encode(spare);
+      swap();
+      return capacity;
+    }
+    history.remember(value, valueBytes(), stats);
+    TermHistory.Entry entry = history.forward();
+    long capacity = -1;
+    if (entry == null) {
+      DigitBuffer written = history.takeSpare();
+      capacity = written.digits.length;
+      encode(written);
+      entry = history.append(written, DigitKernel.encodeIsReversible(current));
+    }
+    arrive(entry);
+    return capacity;
+  }
+
+  /**
+   * This method moves to the previous term, taking it from the history when it is kept there.
+   *
+   * @return the capacity the buffer receiving the previous term had before, or -1 if the term was
+   *         kept.
+   */
+  private long backward() {
+    engine = null;
+    if (history == null) {
+      long capacity = spare.digits.length;
+      decode(spare);
+      swap();
+      return capacity;
+    }
+    history.remember(value, valueBytes(), stats);
+    TermHistory.Entry entry = history.backward();
+    long capacity = -1;
+    if (entry == null) {
+      DigitBuffer written = history.takeSpare();
+      capacity = written.digits.length;
+      decode(written);
+      entry = history.prepend(written, DigitKernel.decodeIsReversible(current));
+    }
+    arrive(entry);
+    return capacity;
+  }
+
+  /**
+   * This method reports a move to the metrics, if any, and to the flight recorder, if it is
+   * recording steps.
+   *
+   * @param event    the event begun before the move.
+   * @param started  the time the move started, if there are metrics.
+   * @param forward  true for a step forward, false for a step back.
+   * @param read     the length of the term moved from.
+   * @param capacity the capacity the buffer receiving the term had before, or -1 if the term was
+   *                 kept.
+   */
+  private void record(StepEvent event, long started, boolean forward, long read, long capacity) {
+    boolean computed = capacity >= 0;
+    long written = computed ? current.length : 0;
+    long allocated = computed ? Math.max(0, current.digits.length - capacity) : 0;
+    if (metrics != null) {
+      long nanos = System.nanoTime() - started;
+      if (forward) {
+        metrics.next(nanos, computed ? read : 0, written);
+      } else {
+        metrics.prev(nanos, computed ? read : 0, written);
+      }
+      if (allocated > 0) {
+        metrics.allocated(allocated);
+      }
+    }
+    if (event.shouldCommit()) {
+      event.direction = forward ? StepEvent.NEXT : StepEvent.PREV;
+      event.steps = 1;
+      event.digitsRead = computed ? read : 0;
+      event.digitsWritten = written;
+      event.allocated = allocated;
+      event.engine = engine == null ? null : engine.name();
+      event.commit();
+    }
+  }
+
+  /**
+   * This method makes the buffer just written by the kernel the current term and keeps the old one
+   * around to receive the following term. The value and the statistics of the new term are
+   * only built when they are asked for; its position against the end value is settled right away.
+   */
+  private void swap() {
+    DigitBuffer written = spare;
+    spare = current;
+    current = written;
+    value = null;
+    stats = null;
+    belowEnd = current.compareTo(end) < 0;
+    follow();
+  }
+
+  /**
+   * This method reads the current term out loud into the given buffer with the engine chosen for
+   * the step. Once the terms have split into atoms, the atoms of the current term are known and
+   * the atom engine puts the next term together from what each of them reads out loud as, listing
+   * its atoms on the way; the other engines scan the digits, in parallel chunks on the pool.
+   *
+   * @param target the buffer that receives the next term.
+   */
+  private void encode(DigitBuffer target) {
+    engine = choose(true);
+    if (engine == TermEngine.PARALLEL) {
+      ParallelEncoder.encode(current, target, pool);
+    } else if (engine == TermEngine.ATOMS) {
+      nextParts = expander.step(parts, spareParts, target);
+      spareParts = null;
+    } else {
+      DigitKernel.encode(current, target);
+    }
+  }
+
+  /**
+   * This method takes the digits of the current term two at a time and writes out the previous
+   * term into the given buffer, in parallel chunks when that engine is chosen for the step.
+   *
+   * @param target the buffer that receives the previous term.
+   */
+  private void decode(DigitBuffer target) {
+    engine = choose(false);
+    if (engine == TermEngine.PARALLEL) {
+      ParallelEncoder.decode(current, target, pool);
+    } else {
+      DigitKernel.decode(current, target);
+    }
+  }
+
+  /**
+   * This method picks the engine of a step: the forced one if it can compute the step, or else
+   * the fastest one the profile knows of that can.
+   *
+   * @param forward whether the step goes forward.
+   * @return the engine to use.
+   */
+  private TermEngine choose(boolean forward) {
+    int parallelism = pool == null ? 0 : pool.getParallelism();
+    if (forced == null) {
+      return profile.choose(current.length, parallelism, forward ? this::splitIfDue : null);
+    }
+    if (forced == TermEngine.PARALLEL && parallelism > 0) {
+      return TermEngine.PARALLEL;
+    }
+    if (forced == TermEngine.ATOMS && forward && split(age >= 2)) {
+      return TermEngine.ATOMS;
+    }
+    return TermEngine.DIGITS;
+  }
+
+  /**
+   * This method cuts the current term into atoms if it can be and it is due: short terms as soon
+   * as they can be cut, long ones only after several steps forward in a row.
+   *
+   * @return true if the atoms of the current term are known.
+   */
+  private boolean splitIfDue() {
+    return split(age >= 2 && (current.length <= SPLIT_AT_ONCE || age >= SPLIT_AFTER));
+  }
+
+  /**
+   * This method cuts the current term into atoms if they are not known yet and the term can be
+   * cut.
+   *
+   * @param due whether the term is old enough and it is time to cut it.
+   * @return true if the atoms of the current term are known.
+   */
+  private boolean split(boolean due) {
+    if (parts == null && due && AtomExpander.splittable(current)) {
+      parts = expander().split(current);
+    }
+    return parts != null;
+  }
+
+  /**
+   * This method yields the atom table of this iterator, setting it up the first time.
+   *
+   * @return the atom table.
+   */
+  private AtomExpander expander() {
+    if (expander == null) {
+      expander = new AtomExpander();
+    }
+    return expander;
+  }
+
+  /**
+   * This method moves several steps forward at once by expanding the atoms of the current term,
+   * going no further than the first term that may not be below the end value.
+   *
+   * @param steps the number of steps wanted.
+   * @return the number of steps taken.
+   */
+  private int jump(int steps) {
+    if (parts == null) {
+      parts = expander().split(current);
+    }
+    int reach = 1;
+    while (reach < steps && expander.length(parts, reach) < end.length) {
+      reach++;
+    }
+    if (reach == 1) {
+      encode(spare);
+    } else {
+      expander.expand(parts, reach, spare);
+    }
+    swap();
+    return reach;
+  }
+
+  /**
+   * This method makes a term of the history the current one, together with whatever had already
+   * been built for it.
+   *
+   * @param entry the term to move to.
+   */
+  @SuppressWarnings("unchecked")
+  private void arrive(TermHistory.Entry entry) {
+    current = entry.term;
+    value = (T) entry.value;
+    stats = entry.stats;
+    belowEnd = current.compareTo(end) < 0;
+    follow();
+  }
+
+  /**
+   * This method keeps the atoms of the term just moved to, if they were listed when it was
+   * written, and forgets those of the term left otherwise.
+   */
+  private void follow() {
+    if (parts != null && parts != nextParts) {
+      spareParts = parts;
+    }
+    parts = nextParts;
+    nextParts = null;
+  }
+
+  /**
+   * This method yields the statistics of the current number, gathering them the first time they
+   * are needed.
+   *
+   * @return the statistics of the current number.
+   */
+  private TermStats currentStats() {
+    if (stats == null) {
+      stats = TermStats.of(current);
+    }
+    return stats;
+  }
+
+  /**
+   * This method yields the value of the current number, building it from the digits the first
+   * time it is needed.
+   *
+   * @return the value of the current number.
+   */
+  private T currentValue() {
+    if (value == null) {
+      ValueEvent event = new ValueEvent();
+      event.begin();
+      value = build(current);
+      if (metrics != null) {
+        metrics.allocated(bytesOf(value));
+      }
+      if (event.shouldCommit()) {
+        event.digits = current.length;
+        event.bytes = bytesOf(value);
+        event.commit();
+      }
+    }
+    return value;
+  }
+
+  /**
+   * This method estimates the heap held by the value of the current number.
+   *
+   * @return the number of bytes of the value, or 0 if it has not been built.
+   */
+  private long valueBytes() {
+    return value == null ? 0 : bytesOf(value);
+  }
+}
@@ -0,0 +1,450 @@
+package lookandsay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * What is known about atoms, shared by every thread of a batch of seeds. Most seeds break down
+ * into the same common elements within a few steps, so the decay of an atom, the length of its
+ * descendants and the digits of those descendants are worked out once and then reused by every
+ * seed that reaches the atom. Atoms are looked up by their digits, so equal atoms met by different
+ * seeds are the same object. The common elements, with their decays and lengths, are known from
+ * the start and last as long as the cache. Any other atom belongs to the scope of one batch, a map
+ * the batch creates and drops when it is done, so the atoms of past seeds do not pile up. The
+ * digits of the descendants of common elements are kept up to a budget of bytes; when the budget
+ * is exceeded, a quarter of it is freed by dropping entries in no particular order.
+ */
+final class AtomCache {
+
+  /**
+   * Descendants longer than this are never kept, only built from shorter ones.
+   */
+  private static final int KEEP_LONGEST = 1 << 16;
+
+  /**
+   * Descendants shorter than this are not kept, since building them is as cheap as looking them
+   * up.
+   */
+  private static final int KEEP_SHORTEST = 32;
+
+  /**
+   * Publishes longer lengths of an atom unless another thread published longer ones first.
+   */
+  private static final AtomicReferenceFieldUpdater<Atom, long[]> LENGTHS =
+          AtomicReferenceFieldUpdater.newUpdater(Atom.class, long[].class, "lengths");
+
+  private final long maxBytes;
+  private final Map<String, Atom> elements;
+  private final ConcurrentHashMap<Grown, byte[]> kept;
+  private final AtomicLong keptBytes;
+  private final AtomicBoolean evicting;
+
+  /**
+   * This constructor starts an empty cache.
+   *
+   * @param maxBytes the number of bytes the kept descendants may take.
+   */
+  AtomCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+    this.elements = new HashMap<String, Atom>();
+    this.kept = new ConcurrentHashMap<Grown, byte[]>();
+    this.keptBytes = new AtomicLong();
+    this.evicting = new AtomicBoolean();
+    Atom[] common = new Atom[Elements.DIGITS.length];
+    for (int element = 0; element < common.length; element++) {
+      common[element] = new Atom(Elements.DIGITS[element], element);
+      elements.put(new String(Elements.DIGITS[element], StandardCharsets.ISO_8859_1),
+              common[element]);
+    }
+    for (int element = 0; element < common.length; element++) {
+      Atom[] decay = new Atom[Elements.DECAYS[element].length];
+      for (int i = 0; i < decay.length; i++) {
+        decay[i] = common[Elements.DECAYS[element][i]];
+      }
+      common[element].decay = decay;
+    }
+  }
+
+  /**
+   * This method cuts a term into atoms.
+   *
+   * @param term  a term for which {@link AtomExpander#splittable} holds and that is at least two
+   *              steps old.
+   * @param scope the atoms of the batch, which the atoms that are not common elements are looked
+   *              up in and added to.
+   * @return the atoms of the term, in order.
+   */
+  Atom[] split(DigitBuffer term, ConcurrentHashMap<String, Atom> scope) {
+    int[] bounds = Elements.split(term.digits, term.length);
+    Atom[] parts = new Atom[bounds.length - 1];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = atom(Arrays.copyOfRange(term.digits, bounds[i], bounds[i + 1]), scope);
+    }
+    return parts;
+  }
+
+  /**
+   * This method yields the length of the descendants of an atom after a number of steps. The
+   * lengths of the common elements come from the table they share; those of other atoms are
+   * worked out by {@link #grow} the first time they are needed.
+   *
+   * @param atom  the atom.
+   * @param steps the number of steps.
+   * @return the number of digits, or Long.MAX_VALUE if it does not fit in a long.
+   */
+  long length(Atom atom, int steps) {
+    if (atom.element >= 0) {
+      return Elements.grownLength(atom.element, steps);
+    }
+    if (!atom.settled && steps >= atom.lengths.length) {
+      grow(atom, steps);
+    }
+    boolean settled = atom.settled;
+    long[] lengths = atom.lengths;
+    return lengths[settled ? Math.min(steps, lengths.length - 1) : steps];
+  }
+
+  /**
+   * This method works out the lengths of the descendants of an atom, and of every atom among
+   * them that is neither a common element nor settled yet, level by level in one table. Row s of
+   * the table holds the length of every such atom after s steps, from the row before it and the
+   * lengths of the other atoms. The table is extended to at least twice the steps already known,
+   * so asking for one step more each time costs no more than asking for the most at once, and it
+   * stops once a row equals the one before it while the other atoms no longer change either: the
+   * lengths have then all reached Long.MAX_VALUE or stopped growing. No lock is held: threads
+   * that grow overlapping atoms at the same time work out the same lengths, and each atom only
+   * ever takes a longer array than the one it has. The lengths are published before the atoms are
+   * marked settled.
+   *
+   * @param atom  the atom.
+   * @param steps the number of steps that must be known.
+   */
+  private void grow(Atom atom, int steps) {
+    if (atom.settled || steps < atom.lengths.length) {
+      return;
+    }
+    List<Atom> closure = new ArrayList<Atom>();
+    Map<Atom, Integer> positions = new IdentityHashMap<Atom, Integer>();
+    closure.add(atom);
+    positions.put(atom, 0);
+    int leavesSettle = 0;
+    for (int i = 0; i < closure.size(); i++) {
+      for (Atom child : decay(closure.get(i))) {
+        if (child.element >= 0) {
+          leavesSettle = Math.max(leavesSettle, Elements.grownLengthsSettle());
+        } else if (child.settled) {
+          leavesSettle = Math.max(leavesSettle, child.lengths.length - 1);
+        } else if (!positions.containsKey(child)) {
+          positions.put(child, closure.size());
+          closure.add(child);
+        }
+      }
+    }
+    int width = closure.size();
+    int[][] children = new int[width][];
+    for (int i = 0; i < width; i++) {
+      Atom[] decay = closure.get(i).decay;
+      children[i] = new int[decay.length];
+      for (int j = 0; j < decay.length; j++) {
+        Integer position = positions.get(decay[j]);
+        children[i][j] = position == null ? -1 : position;
+      }
+    }
+
+    int target = Math.max(steps, 2 * (atom.lengths.length - 1));
+    long[] table = new long[width * Math.min(target + 1, 64)];
+    for (int i = 0; i < width; i++) {
+      table[i] = closure.get(i).digits.length;
+    }
+    int last = 0;
+    boolean settled = false;
+    while (last < target && !settled) {
+      if (table.length < (last + 2) * width) {
+        table = Arrays.copyOf(table, (int) Math.min((long) (target + 1) * width,
+                2L * table.length));
+      }
+      boolean equal = last > 0;
+      for (int i = 0; i < width; i++) {
+        long total = 0;
+        Atom[] decay = closure.get(i).decay;
+        for (int j = 0; j < decay.length; j++) {
+          int child = children[i][j];
+          total = saturatedAdd(total, child >= 0 ? table[last * width + child]
+                  : length(decay[j], last));
+        }
+        table[(last + 1) * width + i] = total;
+        equal &= total == table[last * width + i];
+      }
+      last++;
+      settled = equal && last - 1 >= leavesSettle;
+    }
+
+    for (int i = 0; i < width; i++) {
+      Atom grown = closure.get(i);
+      long[] published = grown.lengths;
+      if (published.length < last + 1) {
+        long[] lengths = new long[last + 1];
+        for (int step = 0; step <= last; step++) {
+          lengths[step] = table[step * width + i];
+        }
+        while (published.length < lengths.length
+                && !LENGTHS.compareAndSet(grown, published, lengths)) {
+          published = grown.lengths;
+        }
+      }
+      if (settled) {
+        grown.settled = true;
+      }
+    }
+  }
+
+  /**
+   * This method writes the descendants of an atom, keeping those of common elements when they are
+   * of a useful size. Hydrogen, 22, reads out loud as itself, so its descendants are written at
+   * once however many steps are asked for.
+   *
+   * @param atom     the atom.
+   * @param steps    the number of steps.
+   * @param out      the array to write into, which must have room for them.
+   * @param position the position of the first digit to write.
+   * @return the position after the last digit written.
+   */
+  int write(Atom atom, int steps, byte[] out, int position) {
+    byte[] digits = steps == 0 || atom.element == 0 ? atom.digits
+            : kept.get(new Grown(atom, steps));
+    if (digits != null) {
+      System.arraycopy(digits, 0, out, position, digits.length);
+      return position + digits.length;
+    }
+    int end = position;
+    for (Atom child : decay(atom)) {
+      end = write(child, steps - 1, out, end);
+    }
+    int written = end - position;
+    if (atom.element >= 0 && written >= KEEP_SHORTEST && written <= KEEP_LONGEST
+            && written <= maxBytes) {
+      keep(new Grown(atom, steps), Arrays.copyOfRange(out, position, end));
+    }
+    return end;
+  }
+
+  /**
+   * This method writes the digits of the descendants of an atom from one position up to another.
+   * Only the descendants that overlap these positions are visited, the others are skipped by
+   * their lengths, so a few digits of a long term cost about one visit per step.
+   *
+   * @param atom     the atom.
+   * @param steps    the number of steps.
+   * @param from     the position of the first digit, counting from the first digit of the atom;
+   *                 it may be negative.
+   * @param to       the position after the last digit; it may be past the last digit.
+   * @param out      the array to write into, which must have room for them.
+   * @param position the position to write the first digit at.
+   * @return the position after the last digit written.
+   */
+  int writeRange(Atom atom, int steps, long from, long to, byte[] out, int position) {
+    if (steps == 0 || atom.element == 0) {
+      int start = (int) Math.max(from, 0);
+      int end = (int) Math.min(to, atom.digits.length);
+      System.arraycopy(atom.digits, start, out, position, end - start);
+      return position + end - start;
+    }
+    if (from <= 0 && to >= length(atom, steps)) {
+      return write(atom, steps, out, position);
+    }
+    long start = 0;
+    for (Atom child : decay(atom)) {
+      long length = length(child, steps - 1);
+      if (length > from - start) {
+        position = writeRange(child, steps - 1, from - start, to - start, out, position);
+      }
+      if (length >= to - start) {
+        break;
+      }
+      start += length;
+    }
+    return position;
+  }
+
+  /**
+   * This method yields the number of bytes the kept descendants take.
+   *
+   * @return the number of bytes kept.
+   */
+  long keptBytes() {
+    return keptBytes.get();
+  }
+
+  /**
+   * This method yields the atoms an atom decays into after one step, working them out the first
+   * time. Two threads may both work them out; they get equal atoms.
+   *
+   * @param atom the atom.
+   * @return the atoms of the next step, in order.
+   */
+  private Atom[] decay(Atom atom) {
+    Atom[] decay = atom.decay;
+    if (decay == null) {
+      DigitBuffer source = new DigitBuffer(atom.digits.length);
+      System.arraycopy(atom.digits, 0, source.digits, 0, atom.digits.length);
+      source.length = atom.digits.length;
+      DigitBuffer target = new DigitBuffer(2 * atom.digits.length);
+      DigitKernel.encode(source, target);
+      decay = split(target, atom.scope);
+      atom.decay = decay;
+    }
+    return decay;
+  }
+
+  /**
+   * This method looks up an atom by its digits among the common elements and then in the scope of
+   * the batch, adding it there if no thread of the batch has met it yet.
+   *
+   * @param digits the digits of the atom.
+   * @param scope  the atoms of the batch.
+   * @return the one atom of the batch with these digits.
+   */
+  private Atom atom(byte[] digits, ConcurrentHashMap<String, Atom> scope) {
+    String key = new String(digits, StandardCharsets.ISO_8859_1);
+    Atom atom = elements.get(key);
+    if (atom == null) {
+      atom = scope.get(key);
+    }
+    if (atom == null) {
+      Atom added = new Atom(digits, scope);
+      atom = scope.putIfAbsent(key, added);
+      if (atom == null) {
+        atom = added;
+      }
+    }
+    return atom;
+  }
+
+  /**
+   * This method keeps the descendants of an atom and frees room if the budget is exceeded.
+   *
+   * @param key    the atom and the number of steps.
+   * @param digits the descendants.
+   */
+  private void keep(Grown key, byte[] digits) {
+    if (kept.putIfAbsent(key, digits) == null
+            && keptBytes.addAndGet(digits.length) > maxBytes) {
+      evict();
+    }
+  }
+
+  /**
+   * This method drops kept descendants until a quarter of the budget is free. Only one thread
+   * evicts at a time; the others carry on.
+   */
+  private void evict() {
+    if (!evicting.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      Iterator<Map.Entry<Grown, byte[]>> entries = kept.entrySet().iterator();
+      while (keptBytes.get() > maxBytes - maxBytes / 4 && entries.hasNext()) {
+        Map.Entry<Grown, byte[]> entry = entries.next();
+        if (kept.remove(entry.getKey(), entry.getValue())) {
+          keptBytes.addAndGet(-entry.getValue().length);
+        }
+      }
+    } finally {
+      evicting.set(false);
+    }
+  }
+
+  /**
+   * This method adds two non negative numbers, sticking at Long.MAX_VALUE instead of overflowing.
+   *
+   * @param a the first number.
+   * @param b the second number.
+   * @return the sum, or Long.MAX_VALUE if it does not fit.
+   */
+  private static long saturatedAdd(long a, long b) {
+    long sum = a + b;
+    return sum < 0 ? Long.MAX_VALUE : sum;
+  }
+
+  /**
+   * One atom with what has been worked out about it. The fields that are filled in later always
+   * end up with the same content whichever thread fills them, so they are only volatile; the
+   * lengths are only replaced by longer ones.
+   */
+  static final class Atom {
+
+    final byte[] digits;
+    final int element;
+    final ConcurrentHashMap<String, Atom> scope;
+    volatile Atom[] decay;
+    volatile long[] lengths;
+    volatile boolean settled;
+
+    /**
+     * This constructor wraps the digits of an atom that is not a common element.
+     *
+     * @param digits the digits of the atom.
+     * @param scope  the atoms of the batch the atom belongs to, which its decay is added to.
+     */
+    Atom(byte[] digits, ConcurrentHashMap<String, Atom> scope) {
+      this.digits = digits;
+      this.element = -1;
+      this.scope = scope;
+      this.lengths = new long[] {digits.length};
+    }
+
+    /**
+     * This constructor wraps the digits of a common element.
+     *
+     * @param digits  the digits of the element.
+     * @param element the index of the element among the common elements.
+     */
+    Atom(byte[] digits, int element) {
+      this.digits = digits;
+      this.element = element;
+      this.scope = null;
+      this.lengths = new long[] {digits.length};
+    }
+  }
+
+  /**
+   * The key of the descendants of an atom after a number of steps.
+   */
+  private static final class Grown {
+
+    private final Atom atom;
+    private final int steps;
+
+    /**
+     * This constructor pairs an atom with a number of steps.
+     *
+     * @param atom  the atom.
+     * @param steps the number of steps.
+     */
+    Grown(Atom atom, int steps) {
+      this.atom = atom;
+      this.steps = steps;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Grown && ((Grown) other).atom == atom
+              && ((Grown) other).steps == steps;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(atom) * 31 + steps;
+    }
+  }
+}
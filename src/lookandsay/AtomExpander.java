@@ -0,0 +1,356 @@
+package lookandsay;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the term a number of steps after a given one by letting each of its atoms evolve on its
+ * own, as in {@link ConwayEngine}, instead of reading the whole term out loud once per step. The
+ * descendants of an atom after some steps are the concatenation of the descendants of its decay
+ * products one step fewer, and descendants that are not too long are kept once built, so a far
+ * term is mostly assembled by copying blocks of digits. The atom table starts with the 92 common
+ * elements and grows with whatever other atoms the terms it is given contain.
+ */
+final class AtomExpander {
+
+  /**
+   * Descendants longer than this are never kept, only built from shorter ones.
+   */
+  private static final int KEEP_LONGEST = 1 << 16;
+
+  /**
+   * Descendants shorter than this are not kept, since building them is as cheap as looking them
+   * up.
+   */
+  private static final int KEEP_SHORTEST = 32;
+
+  /**
+   * The number of digits all kept descendants may take together.
+   */
+  private static final long KEEP_BUDGET = 1 << 24;
+
+  private static final VarHandle LONGS =
+          MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private final Map<String, Integer> index;
+  private final List<byte[]> atoms;
+  private final List<int[]> decays;
+  private final List<long[]> lengths;
+  private final Map<Long, byte[]> kept;
+  private long keptDigits;
+  private final DigitBuffer source;
+  private final DigitBuffer target;
+  private long[][] successors;
+  private int[] successorLengths;
+  private int[][] decayTable;
+
+  /**
+   * This constructor sets up the table of the common elements.
+   */
+  AtomExpander() {
+    this.index = new HashMap<String, Integer>();
+    this.atoms = new ArrayList<byte[]>();
+    this.decays = new ArrayList<int[]>();
+    this.lengths = new ArrayList<long[]>();
+    this.kept = new HashMap<Long, byte[]>();
+    this.source = new DigitBuffer(64);
+    this.target = new DigitBuffer(128);
+    for (int element = 0; element < Elements.DIGITS.length; element++) {
+      register(Elements.DIGITS[element]);
+      decays.add(Elements.DECAYS[element]);
+    }
+  }
+
+  /**
+   * This method tells whether a term can be cut into atoms: it must be at least two steps away
+   * from its seed, which the caller knows, and the term before it must have no run longer than
+   * three, which shows in the term as pairs whose counts are all 1, 2 or 3.
+   *
+   * @param term a term produced by reading the term before it out loud.
+   * @return true if every count of the term is 1, 2 or 3.
+   */
+  static boolean splittable(DigitBuffer term) {
+    if (term.length % 2 != 0) {
+      return false;
+    }
+    for (int i = 0; i < term.length; i += 2) {
+      if (term.digits[i] < 1 || term.digits[i] > 3) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * This method cuts a term into atoms, adding atoms it has not seen before to the table.
+   *
+   * @param term a term for which {@link #splittable} holds and that is at least two steps old.
+   * @return the atoms of the term, in order.
+   */
+  Parts split(DigitBuffer term) {
+    int[] atoms = splitIntoAtoms(term);
+    close();
+    Parts parts = new Parts();
+    parts.atoms = atoms;
+    parts.count = atoms.length;
+    return parts;
+  }
+
+  /**
+   * This method writes the term after the one made of the given atoms, copying the digits every
+   * atom reads out loud as, and lists the atoms of that term. No digit is looked at on the way.
+   *
+   * @param parts       the atoms of the current term.
+   * @param reuse       a list of atoms to overwrite, or null.
+   * @param destination the buffer that receives the next term.
+   * @return the atoms of the next term.
+   * @throws IllegalStateException If the next term is too large for a buffer.
+   */
+  Parts step(Parts parts, Parts reuse, DigitBuffer destination) {
+    long[][] successors = this.successors;
+    int[] lengths = successorLengths;
+    int[][] decays = decayTable;
+    int[] atoms = parts.atoms;
+    long total = 0;
+    long following = 0;
+    for (int i = 0; i < parts.count; i++) {
+      total += lengths[atoms[i]];
+      following += decays[atoms[i]].length;
+    }
+    destination.ensureCapacity(total + Long.BYTES);
+    Parts next = reuse != null ? reuse : new Parts();
+    if (next.atoms == null || next.atoms.length < following) {
+      next.atoms = new int[(int) Math.min(following + (following >> 1), Integer.MAX_VALUE - 8)];
+    }
+    byte[] out = destination.digits;
+    int[] nextAtoms = next.atoms;
+    int position = 0;
+    int count = 0;
+    for (int i = 0; i < parts.count; i++) {
+      int atom = atoms[i];
+      long[] words = successors[atom];
+      for (int j = 0; j < words.length; j++) {
+        LONGS.set(out, position + j * Long.BYTES, words[j]);
+      }
+      position += lengths[atom];
+      int[] decay = decays[atom];
+      for (int j = 0; j < decay.length; j++) {
+        nextAtoms[count + j] = decay[j];
+      }
+      count += decay.length;
+    }
+    destination.length = position;
+    next.count = count;
+    return next;
+  }
+
+  /**
+   * This method yields the number of digits of the term a number of steps after the one made of
+   * the given atoms.
+   *
+   * @param parts the atoms of the starting term.
+   * @param steps the number of steps.
+   * @return the number of digits, or Long.MAX_VALUE if it does not fit in a long.
+   */
+  long length(Parts parts, int steps) {
+    long[] grown = lengths(steps);
+    long total = 0;
+    for (int i = 0; i < parts.count; i++) {
+      total = saturatedAdd(total, grown[parts.atoms[i]]);
+    }
+    return total;
+  }
+
+  /**
+   * This method writes the term a number of steps after the one made of the given atoms.
+   *
+   * @param parts       the atoms of the starting term.
+   * @param steps       the number of steps.
+   * @param destination the buffer that receives the term.
+   * @throws IllegalStateException If the term is too large for a buffer.
+   */
+  void expand(Parts parts, int steps, DigitBuffer destination) {
+    destination.ensureCapacity(length(parts, steps));
+    int position = 0;
+    for (int i = 0; i < parts.count; i++) {
+      position = write(parts.atoms[i], steps, destination.digits, position);
+    }
+    destination.length = position;
+  }
+
+  /**
+   * This method writes the descendants of one atom, keeping them when they are of a useful size.
+   *
+   * @param atom     the atom.
+   * @param steps    the number of steps.
+   * @param out      the array to write into.
+   * @param position the position of the first digit to write.
+   * @return the position after the last digit written.
+   */
+  private int write(int atom, int steps, byte[] out, int position) {
+    byte[] digits = steps == 0 ? atoms.get(atom) : kept.get(key(atom, steps));
+    if (digits != null) {
+      System.arraycopy(digits, 0, out, position, digits.length);
+      return position + digits.length;
+    }
+    int end = position;
+    for (int child : decays.get(atom)) {
+      end = write(child, steps - 1, out, end);
+    }
+    int written = end - position;
+    if (written >= KEEP_SHORTEST && written <= KEEP_LONGEST
+            && keptDigits + written <= KEEP_BUDGET) {
+      kept.put(key(atom, steps), Arrays.copyOfRange(out, position, end));
+      keptDigits += written;
+    }
+    return end;
+  }
+
+  /**
+   * This method yields the length of the descendants of every atom after a number of steps,
+   * extending the table of lengths as needed. The lengths of the common elements are read from
+   * the table they share.
+   *
+   * @param steps the number of steps.
+   * @return the lengths, indexed by atom.
+   */
+  private long[] lengths(int steps) {
+    if (!lengths.isEmpty() && lengths.get(0).length != atoms.size()) {
+      lengths.clear();
+    }
+    if (lengths.isEmpty()) {
+      long[] initial = new long[atoms.size()];
+      for (int atom = 0; atom < initial.length; atom++) {
+        initial[atom] = atoms.get(atom).length;
+      }
+      lengths.add(initial);
+    }
+    while (lengths.size() <= steps) {
+      long[] previous = lengths.get(lengths.size() - 1);
+      long[] next = new long[previous.length];
+      for (int atom = 0; atom < next.length; atom++) {
+        if (atom < Elements.DECAYS.length) {
+          next[atom] = Elements.grownLength(atom, lengths.size());
+          continue;
+        }
+        for (int child : decays.get(atom)) {
+          next[atom] = saturatedAdd(next[atom], previous[child]);
+        }
+      }
+      lengths.add(next);
+    }
+    return lengths.get(steps);
+  }
+
+  /**
+   * This method works out the decay of every atom of the table whose decay is not known yet,
+   * which may add further atoms, until the table is closed, and then lays out the decays and the
+   * digits each atom reads out loud as in arrays for {@link #step}. Those digits are padded with
+   * zeros to whole eight byte words, which step() writes in one go and the next atom overwrites.
+   */
+  private void close() {
+    while (decays.size() < atoms.size()) {
+      byte[] digits = atoms.get(decays.size());
+      source.ensureCapacity(digits.length);
+      System.arraycopy(digits, 0, source.digits, 0, digits.length);
+      source.length = digits.length;
+      DigitKernel.encode(source, target);
+      decays.add(splitIntoAtoms(target));
+    }
+    if (successors == null || successors.length != atoms.size()) {
+      successors = new long[atoms.size()][];
+      successorLengths = new int[atoms.size()];
+      decayTable = decays.toArray(new int[atoms.size()][]);
+      for (int atom = 0; atom < successors.length; atom++) {
+        int length = 0;
+        for (int child : decayTable[atom]) {
+          length += atoms.get(child).length;
+        }
+        byte[] digits = new byte[(length + Long.BYTES - 1) / Long.BYTES * Long.BYTES];
+        int position = 0;
+        for (int child : decayTable[atom]) {
+          byte[] childDigits = atoms.get(child);
+          System.arraycopy(childDigits, 0, digits, position, childDigits.length);
+          position += childDigits.length;
+        }
+        successors[atom] = new long[digits.length / Long.BYTES];
+        for (int word = 0; word < successors[atom].length; word++) {
+          successors[atom][word] = (long) LONGS.get(digits, word * Long.BYTES);
+        }
+        successorLengths[atom] = length;
+      }
+    }
+  }
+
+  /**
+   * This method cuts a term into atoms and looks each of them up in the table.
+   *
+   * @param term the term to cut.
+   * @return the atoms of the term, in order.
+   */
+  private int[] splitIntoAtoms(DigitBuffer term) {
+    int[] bounds = Elements.split(term.digits, term.length);
+    int[] parts = new int[bounds.length - 1];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = register(Arrays.copyOfRange(term.digits, bounds[i], bounds[i + 1]));
+    }
+    return parts;
+  }
+
+  /**
+   * This method looks up an atom in the table, adding it if it is not there yet.
+   *
+   * @param digits the digits of the atom.
+   * @return the position of the atom in the table.
+   */
+  private int register(byte[] digits) {
+    String key = new String(digits, StandardCharsets.ISO_8859_1);
+    Integer position = index.get(key);
+    if (position == null) {
+      position = atoms.size();
+      index.put(key, position);
+      atoms.add(digits);
+    }
+    return position;
+  }
+
+  /**
+   * This method yields the key under which the descendants of an atom are kept.
+   *
+   * @param atom  the atom.
+   * @param steps the number of steps.
+   * @return a key unique to the pair.
+   */
+  private static long key(int atom, int steps) {
+    return (long) atom << 32 | steps;
+  }
+
+  /**
+   * This method adds two non negative numbers, sticking at Long.MAX_VALUE instead of overflowing.
+   *
+   * @param a the first number.
+   * @param b the second number.
+   * @return the sum, or Long.MAX_VALUE if it does not fit.
+   */
+  private static long saturatedAdd(long a, long b) {
+    long sum = a + b;
+    return sum < 0 ? Long.MAX_VALUE : sum;
+  }
+
+  /**
+   * The atoms of a term, in order, in an array that may be longer than needed so that it can be
+   * reused from one step to the next.
+   */
+  static final class Parts {
+
+    int[] atoms;
+    int count;
+  }
+}
@@ -0,0 +1,397 @@
+package lookandsay;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class answers questions about the size and digit make-up of far away terms of a
+ * look-and-say sequence without ever building those terms. It uses Conway's observation that every
+ * term splits into atoms which evolve independently of each other. Starting from the seed, the
+ * class finds every atom that can ever occur: the 92 common elements, the transuranic elements
+ * when the seed holds digits greater than 3, and the short lived atoms the seed passes through on
+ * its way there. Term n is then described by how many copies of each atom it holds, and those
+ * counts are obtained from the counts of an early term by stepping them forward, each atom handing
+ * its count to the handful of atoms it decays into. The counts reached last are kept, so queries
+ * for later terms carry on from there.
+ *
+ * <p>Single digits are found the same way: knowing how long every atom grows after a number of
+ * steps, a digit of term n is located by walking down from the atoms of the early term to the one
+ * atom of the seed's descendants that holds it, without building anything.
+ */
+public final class ConwayEngine {
+
+  private final DigitBuffer[] young;
+  private final byte[][] atoms;
+  private final int[][] decays;
+  private final int[][] histograms;
+  private final int[] parts;
+  private final BigInteger[] initial;
+  private final List<long[]> grownLengths;
+  private boolean grownLengthsSettled;
+  private long steppedTo;
+  private BigInteger[] stepped;
+
+  /**
+   * This constructor takes the seed of the sequence to describe.
+   *
+   * @param seed the first term of the sequence.
+   * @throws IllegalArgumentException If the seed is null or negative.
+   */
+  public ConwayEngine(BigInteger seed) throws IllegalArgumentException {
+    if (seed == null) {
+      throw new IllegalArgumentException("seed cannot be null");
+    }
+    if (seed.signum() < 0) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+
+    List<DigitBuffer> terms = new ArrayList<DigitBuffer>();
+    terms.add(DigitBuffer.valueOf(seed));
+    while (terms.size() < 3 || longestRun(terms.get(terms.size() - 2)) > 3) {
+      DigitBuffer previous = terms.get(terms.size() - 1);
+      DigitBuffer next = new DigitBuffer(2 * previous.length);
+      DigitKernel.encode(previous, next);
+      terms.add(next);
+    }
+    DigitBuffer first = terms.remove(terms.size() - 1);
+    this.young = terms.toArray(new DigitBuffer[0]);
+
+    Map<String, Integer> index = new HashMap<String, Integer>();
+    List<byte[]> found = new ArrayList<byte[]>();
+    for (byte[] element : Elements.DIGITS) {
+      register(element, index, found);
+    }
+    this.parts = splitIntoAtoms(first, index, found);
+
+    List<int[]> transitions = new ArrayList<int[]>();
+    DigitBuffer source = new DigitBuffer(64);
+    DigitBuffer target = new DigitBuffer(128);
+    for (int atom = 0; atom < found.size(); atom++) {
+      if (atom < Elements.DECAYS.length) {
+        transitions.add(Elements.DECAYS[atom]);
+        continue;
+      }
+      byte[] digits = found.get(atom);
+      source.ensureCapacity(digits.length);
+      System.arraycopy(digits, 0, source.digits, 0, digits.length);
+      source.length = digits.length;
+      DigitKernel.encode(source, target);
+      transitions.add(splitIntoAtoms(target, index, found));
+    }
+
+    this.atoms = found.toArray(new byte[0][]);
+    this.decays = transitions.toArray(new int[0][]);
+    this.histograms = new int[atoms.length][10];
+    for (int atom = 0; atom < atoms.length; atom++) {
+      for (byte digit : atoms[atom]) {
+        histograms[atom][digit]++;
+      }
+    }
+    this.initial = zeros(atoms.length);
+    for (int atom : parts) {
+      initial[atom] = initial[atom].add(BigInteger.ONE);
+    }
+    this.grownLengths = new ArrayList<long[]>();
+    this.stepped = initial;
+  }
+
+  /**
+   * This constructor describes the sequence that starts with the seed 1.
+   */
+  public ConwayEngine() {
+    this(BigInteger.ONE);
+  }
+
+  /**
+   * This method yields the number of digits of a term.
+   *
+   * @param termIndex the position of the term, where the seed is term 0.
+   * @return the number of digits of the term.
+   * @throws IllegalArgumentException If the term index is negative.
+   */
+  public BigInteger length(long termIndex) throws IllegalArgumentException {
+    checkIndex(termIndex);
+    if (termIndex < young.length) {
+      return BigInteger.valueOf(young[(int) termIndex].length);
+    }
+    BigInteger[] counts = counts(termIndex - young.length);
+    BigInteger total = BigInteger.ZERO;
+    for (int atom = 0; atom < atoms.length; atom++) {
+      if (counts[atom].signum() != 0) {
+        total = total.add(counts[atom].multiply(BigInteger.valueOf(atoms[atom].length)));
+      }
+    }
+    return total;
+  }
+
+  /**
+   * This method yields how often a digit occurs in a term.
+   *
+   * @param termIndex the position of the term, where the seed is term 0.
+   * @param digit     the digit to count, from 0 to 9.
+   * @return the number of times the digit occurs in the term.
+   * @throws IllegalArgumentException If the term index is negative or the digit is not a digit.
+   */
+  public BigInteger digitCount(long termIndex, int digit) throws IllegalArgumentException {
+    if (digit < 0 || digit > 9) {
+      throw new IllegalArgumentException("digit must be between 0 and 9");
+    }
+    return histogram(termIndex)[digit];
+  }
+
+  /**
+   * This method yields how often each digit occurs in a term.
+   *
+   * @param termIndex the position of the term, where the seed is term 0.
+   * @return an array of ten counts, indexed by digit.
+   * @throws IllegalArgumentException If the term index is negative.
+   */
+  public BigInteger[] histogram(long termIndex) throws IllegalArgumentException {
+    checkIndex(termIndex);
+    BigInteger[] result = zeros(10);
+    if (termIndex < young.length) {
+      DigitBuffer term = young[(int) termIndex];
+      long[] counts = new long[10];
+      for (int i = 0; i < term.length; i++) {
+        counts[term.digits[i]]++;
+      }
+      for (int digit = 0; digit < 10; digit++) {
+        result[digit] = BigInteger.valueOf(counts[digit]);
+      }
+      return result;
+    }
+    BigInteger[] counts = counts(termIndex - young.length);
+    for (int atom = 0; atom < atoms.length; atom++) {
+      if (counts[atom].signum() == 0) {
+        continue;
+      }
+      for (int digit = 0; digit < 10; digit++) {
+        if (histograms[atom][digit] != 0) {
+          result[digit] = result[digit].add(
+                  counts[atom].multiply(BigInteger.valueOf(histograms[atom][digit])));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * This method yields a single digit of a term without building the term. The cost grows with the
+   * term index, one short table lookup per step, and the memory used does not depend on it.
+   *
+   * @param termIndex the position of the term, where the seed is term 0.
+   * @param position  the position of the digit within the term, counting from the most
+   *                  significant digit at 0.
+   * @return the digit at the given position.
+   * @throws IllegalArgumentException  If the term index is negative.
+   * @throws IndexOutOfBoundsException If the position is outside the term.
+   */
+  public int digitAt(long termIndex, long position) throws IllegalArgumentException {
+    checkIndex(termIndex);
+    if (position < 0) {
+      throw new IndexOutOfBoundsException("no digit at " + position);
+    }
+    if (termIndex < young.length) {
+      DigitBuffer term = young[(int) termIndex];
+      if (position >= term.length) {
+        throw new IndexOutOfBoundsException("no digit at " + position);
+      }
+      return term.digits[(int) position];
+    }
+
+    long steps = termIndex - young.length;
+    int atom = -1;
+    for (int part : parts) {
+      long grown = grownLength(part, steps);
+      if (position < grown) {
+        atom = part;
+        break;
+      }
+      position -= grown;
+    }
+    if (atom < 0) {
+      throw new IndexOutOfBoundsException("no digit at this position");
+    }
+    while (steps > 0) {
+      steps--;
+      for (int product : decays[atom]) {
+        long grown = grownLength(product, steps);
+        if (position < grown) {
+          atom = product;
+          break;
+        }
+        position -= grown;
+      }
+    }
+    return atoms[atom][(int) position];
+  }
+
+  /**
+   * This method yields how many copies of every atom the term the given number of steps after the
+   * first split term holds. Every atom decays into at most six atoms, so a step costs a few
+   * hundred additions; the counts reached are kept and a later term is stepped to from there.
+   *
+   * @param steps the number of steps after the first split term.
+   * @return the count of every atom, indexed like the atom table, which must not be modified.
+   */
+  private synchronized BigInteger[] counts(long steps) {
+    if (steps < steppedTo) {
+      steppedTo = 0;
+      stepped = initial;
+    }
+    for (; steppedTo < steps; steppedTo++) {
+      stepped = step(stepped);
+    }
+    return stepped;
+  }
+
+  /**
+   * This method yields how many digits an atom has grown into after a number of steps, capped at
+   * {@link Long#MAX_VALUE}. The lengths of the common elements come from the table shared by all
+   * engines; those of the other atoms are tabulated step by step the first time they are needed.
+   * Once every atom has either reached the cap or stopped growing the table stops, so it never
+   * holds more than a few hundred rows.
+   *
+   * @param atom  the position of the atom in the atom table.
+   * @param steps the number of steps.
+   * @return the length of what the atom has become, or Long.MAX_VALUE if that does not fit.
+   */
+  private synchronized long grownLength(int atom, long steps) {
+    if (atom < Elements.DECAYS.length) {
+      return Elements.grownLength(atom, steps);
+    }
+    if (grownLengths.isEmpty()) {
+      long[] lengths = new long[atoms.length];
+      for (int i = 0; i < atoms.length; i++) {
+        lengths[i] = atoms[i].length;
+      }
+      grownLengths.add(lengths);
+    }
+    while (grownLengths.size() <= steps && !grownLengthsSettled) {
+      long[] last = grownLengths.get(grownLengths.size() - 1);
+      long[] lengths = new long[atoms.length];
+      for (int i = 0; i < atoms.length; i++) {
+        if (i < Elements.DECAYS.length) {
+          lengths[i] = Elements.grownLength(i, grownLengths.size());
+          continue;
+        }
+        long total = 0;
+        for (int product : decays[i]) {
+          total = total > Long.MAX_VALUE - last[product] ? Long.MAX_VALUE : total + last[product];
+        }
+        lengths[i] = total;
+      }
+      if (Arrays.equals(lengths, last)) {
+        grownLengthsSettled = true;
+      } else {
+        grownLengths.add(lengths);
+      }
+    }
+    return grownLengths.get((int) Math.min(steps, grownLengths.size() - 1))[atom];
+  }
+
+  /**
+   * This method moves atom counts forward by one step using the decay of every atom.
+   *
+   * @param counts the counts of every atom.
+   * @return the counts one step later.
+   */
+  private BigInteger[] step(BigInteger[] counts) {
+    BigInteger[] next = zeros(counts.length);
+    for (int atom = 0; atom < counts.length; atom++) {
+      if (counts[atom].signum() != 0) {
+        for (int product : decays[atom]) {
+          next[product] = next[product].add(counts[atom]);
+        }
+      }
+    }
+    return next;
+  }
+
+  /**
+   * This method splits a term into atoms, adding atoms that have not been seen before to the atom
+   * table.
+   *
+   * @param term  the term to split.
+   * @param index the position of every known atom in the table, by its digits.
+   * @param found the atom table.
+   * @return the position of every part of the term in the atom table.
+   */
+  private static int[] splitIntoAtoms(DigitBuffer term, Map<String, Integer> index,
+                                      List<byte[]> found) {
+    int[] bounds = Elements.split(term.digits, term.length);
+    int[] parts = new int[bounds.length - 1];
+    for (int i = 0; i < parts.length; i++) {
+      byte[] digits = new byte[bounds[i + 1] - bounds[i]];
+      System.arraycopy(term.digits, bounds[i], digits, 0, digits.length);
+      parts[i] = register(digits, index, found);
+    }
+    return parts;
+  }
+
+  /**
+   * This method looks up an atom in the atom table, adding it if it is not there yet.
+   *
+   * @param digits the digits of the atom.
+   * @param index  the position of every known atom in the table, by its digits.
+   * @param found  the atom table.
+   * @return the position of the atom in the table.
+   */
+  private static int register(byte[] digits, Map<String, Integer> index, List<byte[]> found) {
+    String key = new String(digits, StandardCharsets.ISO_8859_1);
+    Integer position = index.get(key);
+    if (position == null) {
+      position = found.size();
+      index.put(key, position);
+      found.add(digits);
+    }
+    return position;
+  }
+
+  /**
+   * This method yields the length of the longest run of equal digits in a term.
+   *
+   * @param term the term to scan.
+   * @return the length of the longest run.
+   */
+  private static int longestRun(DigitBuffer term) {
+    int longest = 0;
+    int start = 0;
+    for (int i = 1; i <= term.length; i++) {
+      if (i == term.length || term.digits[i] != term.digits[start]) {
+        longest = Math.max(longest, i - start);
+        start = i;
+      }
+    }
+    return longest;
+  }
+
+  /**
+   * This method yields an array of zeros.
+   *
+   * @param size the size of the array.
+   * @return an array of the given size filled with zeros.
+   */
+  private static BigInteger[] zeros(int size) {
+    BigInteger[] result = new BigInteger[size];
+    Arrays.fill(result, BigInteger.ZERO);
+    return result;
+  }
+
+  /**
+   * This method rejects negative term indices.
+   *
+   * @param termIndex the term index to check.
+   * @throws IllegalArgumentException If the term index is negative.
+   */
+  private static void checkIndex(long termIndex) throws IllegalArgumentException {
+    if (termIndex < 0) {
+      throw new IllegalArgumentException("term index cannot be negative");
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package lookandsay;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A growable buffer of decimal digits. Each byte holds the value of one digit (0 to 9), most
+ * significant digit first. The look-and-say kernels read from one buffer and write into another,
+ * so an iterator only needs two of these and swaps them on every step instead of allocating new
+ * storage for each term.
+ */
+final class DigitBuffer {
+
+  /**
+   * The largest array size the virtual machine will reliably allocate.
+   */
+  static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+  byte[] digits;
+  int length;
+
+  /**
+   * Creates an empty buffer that can hold the given number of digits without growing.
+   *
+   * @param capacity the initial capacity in digits.
+   */
+  DigitBuffer(int capacity) {
+    this.digits = new byte[Math.max(capacity, 1)];
+    this.length = 0;
+  }
+
+  /**
+   * Creates a buffer holding the decimal digits of the given non negative number.
+   *
+   * @param number the number to convert.
+   * @return a buffer with the digits of the number.
+   */
+  static DigitBuffer valueOf(BigInteger number) {
+    String representation = number.toString();
+    DigitBuffer buffer = new DigitBuffer(representation.length());
+    for (int i = 0; i < representation.length(); i++) {
+      buffer.digits[i] = (byte) (representation.charAt(i) - '0');
+    }
+    buffer.length = representation.length();
+    return buffer;
+  }
+
+  /**
+   * Creates a buffer holding the same digits as this one, with no room to spare.
+   *
+   * @return a copy of this buffer.
+   */
+  DigitBuffer copy() {
+    DigitBuffer copy = new DigitBuffer(length);
+    System.arraycopy(digits, 0, copy.digits, 0, length);
+    copy.length = length;
+    return copy;
+  }
+
+  /**
+   * Makes sure the buffer can hold at least the given number of digits. Existing digits are kept.
+   * When the buffer has to grow it grows by half as much again, so that a sequence of slowly
+   * growing terms does not reallocate on every step.
+   *
+   * @param required the number of digits the buffer must be able to hold.
+   * @throws IllegalStateException if the requested capacity cannot be held in one array.
+   */
+  void ensureCapacity(long required) {
+    if (required > MAX_CAPACITY) {
+      throw new IllegalStateException("term too large for an in-memory buffer");
+    }
+    if (digits.length < required) {
+      long grown = Math.min(required + (required >> 1), MAX_CAPACITY);
+      byte[] larger = new byte[(int) grown];
+      System.arraycopy(digits, 0, larger, 0, length);
+      digits = larger;
+    }
+  }
+
+  /**
+   * Compares the number held in this buffer with the number held in another buffer. Both buffers
+   * must be free of leading zeros, so a longer buffer always holds the larger number.
+   *
+   * @param other the buffer to compare with.
+   * @return a negative number, zero or a positive number as this number is less than, equal to or
+   *         greater than the other.
+   */
+  int compareTo(DigitBuffer other) {
+    if (length != other.length) {
+      return length < other.length ? -1 : 1;
+    }
+    for (int i = 0; i < length; i++) {
+      if (digits[i] != other.digits[i]) {
+        return digits[i] < other.digits[i] ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Builds the BigInteger this buffer represents.
+   *
+   * @return the number held in this buffer.
+   */
+  BigInteger toBigInteger() {
+    return new BigInteger(toString());
+  }
+
+  /**
+   * Returns the digits of this buffer as a decimal string.
+   *
+   * @return the decimal representation of the buffer.
+   */
+  @Override
+  public String toString() {
+    byte[] characters = new byte[length];
+    for (int i = 0; i < length; i++) {
+      characters[i] = (byte) (digits[i] + '0');
+    }
+    return new String(characters, StandardCharsets.US_ASCII);
+  }
+}
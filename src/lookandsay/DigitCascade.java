@@ -0,0 +1,248 @@
+package lookandsay;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Streams the digits of a term of a look-and-say sequence without building it or any term before
+ * it. The term n steps after a starting term is produced by a chain of n stages: the first stage
+ * hands out the runs of the starting term, and every stage turns the runs of one term into the
+ * runs of the next. What a term says is its runs, so a stage never looks at single digits of the
+ * term before it: it writes out the count and the digit of every run it is handed and gathers them
+ * into runs of its own. Every stage thus does work proportional to the number of runs rather than
+ * digits, and only the last one is expanded into digits. A stage only remembers the run it is
+ * gathering and the few digits of the run it was handed, so the whole chain needs memory
+ * proportional to n, not to the length of the term. The stages are kept in an array and driven by
+ * one loop that walks up and down the chain, so a long chain does not nest calls.
+ */
+final class DigitCascade implements PrimitiveIterator.OfInt {
+
+  /**
+   * Marks the end of a stream of runs.
+   */
+  private static final long END = -1;
+
+  /**
+   * Tells that a stage needs the next run of the stage before it to go on.
+   */
+  private static final long NEED = -2;
+
+  private final Source source;
+  private final Encoder[] encoders;
+  private long left;
+  private int digit;
+
+  /**
+   * This constructor builds the chain of stages.
+   *
+   * @param start the digits of the starting term, which are copied.
+   * @param steps the number of steps from the starting term to the term to stream.
+   */
+  DigitCascade(DigitBuffer start, int steps) {
+    byte[] digits = new byte[start.length];
+    System.arraycopy(start.digits, 0, digits, 0, start.length);
+    this.source = new Source(digits);
+    this.encoders = new Encoder[steps];
+    for (int i = 0; i < steps; i++) {
+      encoders[i] = new Encoder();
+    }
+    advance();
+  }
+
+  /**
+   * Returns {@code true} if the streamed term has more digits.
+   *
+   * @return {@code true} if the streamed term has more digits.
+   */
+  @Override
+  public boolean hasNext() {
+    return left > 0;
+  }
+
+  /**
+   * Returns the next digit of the streamed term.
+   *
+   * @return the next digit.
+   * @throws NoSuchElementException if every digit has been returned.
+   */
+  @Override
+  public int nextInt() throws NoSuchElementException {
+    if (left == 0) {
+      throw new NoSuchElementException("no more digits");
+    }
+    int next = digit;
+    if (--left == 0) {
+      advance();
+    }
+    return next;
+  }
+
+  /**
+   * This method takes the next run from the last stage.
+   */
+  private void advance() {
+    long run = pull();
+    if (run != END) {
+      left = run >>> 4;
+      digit = (int) (run & 0xF);
+    }
+  }
+
+  /**
+   * This method yields the next run of the last stage. A stage that needs a run of the stage
+   * before it sends the loop one stage down, and every run produced is handed one stage up, until
+   * the last stage produces one.
+   *
+   * @return the next run as packed by {@link #run(long, int)}, or {@link #END} once the term has
+   *         no more runs.
+   */
+  private long pull() {
+    int stage = encoders.length;
+    while (true) {
+      long run = stage == 0 ? source.pull() : encoders[stage - 1].pull();
+      if (run == NEED) {
+        stage--;
+      } else if (stage == encoders.length) {
+        return run;
+      } else {
+        encoders[stage++].hear(run);
+      }
+    }
+  }
+
+  /**
+   * This method packs a run into one value.
+   *
+   * @param count the number of digits of the run.
+   * @param digit the digit of the run.
+   * @return the count in the high bits and the digit in the lowest four bits.
+   */
+  private static long run(long count, int digit) {
+    return count << 4 | digit;
+  }
+
+  /**
+   * The first link of the chain, which hands out the runs of the starting term.
+   */
+  private static final class Source {
+
+    private final byte[] digits;
+    private int position;
+
+    /**
+     * This constructor takes the digits of the starting term.
+     *
+     * @param digits the digits whose runs are handed out.
+     */
+    Source(byte[] digits) {
+      this.digits = digits;
+    }
+
+    /**
+     * This method yields the next run of the starting term.
+     *
+     * @return the next run as packed by {@link #run(long, int)}, or {@link #END} once every run
+     *         has been handed out.
+     */
+    long pull() {
+      if (position >= digits.length) {
+        return END;
+      }
+      byte digit = digits[position];
+      int end = position + 1;
+      while (end < digits.length && digits[end] == digit) {
+        end++;
+      }
+      long count = end - position;
+      position = end;
+      return run(count, digit);
+    }
+  }
+
+  /**
+   * A link that reads the term of the link before it out loud, run by run.
+   */
+  private static final class Encoder {
+
+    private final int[] said;
+    private int saidStart;
+    private int saidEnd;
+    private long count;
+    private int digit;
+    private boolean ended;
+
+    /**
+     * This constructor starts a link that has not heard anything yet.
+     */
+    Encoder() {
+      this.said = new int[20];
+    }
+
+    /**
+     * This method yields the next run of the term produced by this link, from the digits said so
+     * far. Two runs in a row never have the same digit.
+     *
+     * @return the next run as packed by {@link #run(long, int)}, {@link #END} once the link has
+     *         produced all of its runs, or {@link #NEED} if it must hear the next run first.
+     */
+    long pull() {
+      while (saidStart < saidEnd) {
+        long gathered = gather(said[saidStart++]);
+        if (gathered != 0) {
+          return gathered;
+        }
+      }
+      if (!ended) {
+        return NEED;
+      }
+      if (count == 0) {
+        return END;
+      }
+      long gathered = run(count, digit);
+      count = 0;
+      return gathered;
+    }
+
+    /**
+     * This method hands the link the next run of the link before it, which it says as its count
+     * followed by its digit.
+     *
+     * @param heard the run as packed by {@link #run(long, int)}, or {@link #END}.
+     */
+    void hear(long heard) {
+      if (heard == END) {
+        ended = true;
+        return;
+      }
+      saidStart = 0;
+      saidEnd = 0;
+      long length = heard >>> 4;
+      if (length < 10) {
+        said[saidEnd++] = (int) length;
+      } else {
+        String digits = Long.toString(length);
+        for (int i = 0; i < digits.length(); i++) {
+          said[saidEnd++] = digits.charAt(i) - '0';
+        }
+      }
+      said[saidEnd++] = (int) (heard & 0xF);
+    }
+
+    /**
+     * This method adds one digit said to the run being gathered.
+     *
+     * @param next the digit said.
+     * @return the run the digit completed, or 0 if it extended the run being gathered.
+     */
+    private long gather(int next) {
+      if (next == digit && count > 0) {
+        count++;
+        return 0;
+      }
+      long gathered = count == 0 ? 0 : run(count, digit);
+      digit = next;
+      count = 1;
+      return gathered;
+    }
+  }
+}
@@ -0,0 +1,310 @@
+package lookandsay;
+
+/**
+ * The encode and decode loops of the look-and-say sequence, written against primitive digit
+ * buffers. Neither method allocates anything per digit: the only allocation happens when the
+ * destination buffer is too small and has to grow. Counting what a long range encodes to is done
+ * by counting its run boundaries, with {@link VectorKernel} when the jdk.incubator.vector module
+ * is present and with {@link SwarKernel} otherwise. Encoding a long range walks its run boundaries
+ * a word at a time and decoding expands it a word at a time, both with {@link SwarKernel}: a
+ * vector mask has to be turned into bits to walk it, which costs more than the SWAR words on the
+ * JDK this is built for. The system property lookandsay.kernel set to swar or scalar forces a
+ * choice.
+ */
+final class DigitKernel {
+
+  /**
+   * Ranges shorter than this are encoded and counted one digit at a time.
+   */
+  private static final int WIDE = 64;
+
+  /**
+   * The kernel used for long ranges and for decoding.
+   */
+  private static final Kernel KERNEL = chooseKernel();
+
+  /**
+   * This class only holds static helpers.
+   */
+  private DigitKernel() {
+  }
+
+  /**
+   * Reads the digits of the source buffer out loud and writes what is said into the destination
+   * buffer. A run of ten or more equal digits is written with its full decimal count, so eleven
+   * 1s become 111.
+   *
+   * @param source      the current term.
+   * @param destination the buffer that receives the next term.
+   */
+  static void encode(DigitBuffer source, DigitBuffer destination) {
+    destination.ensureCapacity(2L * source.length);
+    destination.length = encodeRange(source.digits, 0, source.length, destination.digits, 0);
+  }
+
+  /**
+   * Counts how many digits reading out loud a range of digits produces. The range must start and
+   * end on run boundaries.
+   *
+   * @param in   the digits to read.
+   * @param from the first digit of the range.
+   * @param to   the end of the range, exclusive.
+   * @return the number of digits the range encodes to.
+   */
+  static long encodedLength(byte[] in, int from, int to) {
+    if (to - from >= WIDE && KERNEL != Kernel.SCALAR) {
+      long boundaries = KERNEL == Kernel.VECTOR
+              ? VectorKernel.boundaries(in, from, to)
+              : SwarKernel.boundaries(in, from, to);
+      if (boundaries >= 0) {
+        return 2 * (boundaries + 1);
+      }
+    }
+    long written = 0;
+    int start = from;
+    while (start < to) {
+      byte digit = in[start];
+      int end = start + 1;
+      while (end < to && in[end] == digit) {
+        end++;
+      }
+      written += countWidth(end - start) + 1;
+      start = end;
+    }
+    return written;
+  }
+
+  /**
+   * Reads a range of digits out loud into an array. The range must start and end on run
+   * boundaries, and the array must have room for everything written.
+   *
+   * @param in     the digits to read.
+   * @param from   the first digit of the range.
+   * @param to     the end of the range, exclusive.
+   * @param out    the array to write into.
+   * @param offset the position of the first digit to write.
+   * @return the position after the last digit written.
+   */
+  static int encodeRange(byte[] in, int from, int to, byte[] out, int offset) {
+    if (to - from >= WIDE && KERNEL != Kernel.SCALAR) {
+      return SwarKernel.encodeRange(in, from, to, out, offset);
+    }
+    return encodeTail(in, from, to, out, offset);
+  }
+
+  /**
+   * Reads a range of digits out loud one digit at a time, for short ranges and for the end of a
+   * range a wide kernel stopped short of. The range must start and end on run boundaries.
+   *
+   * @param in     the digits to read.
+   * @param from   the first digit of the range.
+   * @param to     the end of the range, exclusive.
+   * @param out    the array to write into.
+   * @param offset the position of the first digit to write.
+   * @return the position after the last digit written.
+   */
+  static int encodeTail(byte[] in, int from, int to, byte[] out, int offset) {
+    int written = offset;
+    int start = from;
+    while (start < to) {
+      byte digit = in[start];
+      int end = start + 1;
+      while (end < to && in[end] == digit) {
+        end++;
+      }
+      written = writeCount(out, written, end - start);
+      out[written++] = digit;
+      start = end;
+    }
+    return written;
+  }
+
+  /**
+   * Takes the digits of the source buffer two at a time and writes out the second digit of each
+   * pair as many times as the first digit says. Leading zeros of the result are dropped, just as
+   * they would be by a BigInteger, so 1012 decodes to 2.
+   *
+   * @param source      the current term, which must have an even number of digits.
+   * @param destination the buffer that receives the previous term.
+   */
+  static void decode(DigitBuffer source, DigitBuffer destination) {
+    byte[] in = source.digits;
+    int length = source.length;
+
+    if (KERNEL == Kernel.SCALAR) {
+      long total = 0;
+      for (int i = 0; i < length; i += 2) {
+        total += in[i];
+      }
+      destination.ensureCapacity(total);
+      byte[] out = destination.digits;
+      int written = 0;
+      for (int i = 0; i < length; i += 2) {
+        byte digit = in[i + 1];
+        for (int j = 0; j < in[i]; j++) {
+          out[written++] = digit;
+        }
+      }
+      destination.length = written;
+    } else {
+      long total = SwarKernel.decodedLength(in, 0, length);
+      destination.ensureCapacity(total + SwarKernel.DECODE_SLACK);
+      destination.length = SwarKernel.decodeRange(in, 0, length, destination.digits, 0);
+    }
+    stripLeadingZeros(destination);
+  }
+
+  /**
+   * Tells whether decoding what the term encodes to gives the term back, which is the case
+   * exactly when no run of the term is ten digits or longer.
+   *
+   * @param term the term to look at.
+   * @return true if prev() undoes next() on this term.
+   */
+  static boolean encodeIsReversible(DigitBuffer term) {
+    byte[] in = term.digits;
+    if (term.length >= WIDE && KERNEL != Kernel.SCALAR) {
+      long boundaries = KERNEL == Kernel.VECTOR
+              ? VectorKernel.boundaries(in, 0, term.length)
+              : SwarKernel.boundaries(in, 0, term.length);
+      if (boundaries >= 0) {
+        return true;
+      }
+    }
+    int run = 1;
+    for (int i = 1; i < term.length; i++) {
+      run = in[i] == in[i - 1] ? run + 1 : 1;
+      if (run >= 10) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Tells whether encoding what the term decodes to gives the term back. That holds when the term
+   * is made of pairs with non zero counts, no two neighbouring pairs share a digit, and decoding
+   * drops no leading zeros.
+   *
+   * @param term the term to look at.
+   * @return true if next() undoes prev() on this term.
+   */
+  static boolean decodeIsReversible(DigitBuffer term) {
+    byte[] in = term.digits;
+    int length = term.length;
+    if (length % 2 != 0 || (in[1] == 0 && (length > 2 || in[0] != 1))) {
+      return false;
+    }
+    for (int i = 0; i < length; i += 2) {
+      if (in[i] == 0 || (i > 0 && in[i + 1] == in[i - 1])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finishes a boundary count that a wide kernel stopped short of the end of a range, one digit at
+   * a time.
+   *
+   * @param in      the digits to scan.
+   * @param scanned the first digit no wide kernel has looked at as the start of a run.
+   * @param to      the end of the range, exclusive.
+   * @param count   the boundaries found before that digit.
+   * @return the number of run boundaries in the range, or -1 if it holds a run of four or more.
+   */
+  static long boundariesTail(byte[] in, int scanned, int to, long count) {
+    long total = count;
+    int equal = 0;
+    for (int i = scanned; i + 1 < to; i++) {
+      if (in[i] != in[i + 1]) {
+        total++;
+        equal = 0;
+      } else if (++equal == 3) {
+        return -1;
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Writes the decimal representation of a run length into the buffer.
+   *
+   * @param out    the buffer to write into.
+   * @param offset the position of the first digit to write.
+   * @param count  the run length, at least one.
+   * @return the position after the last digit written.
+   */
+  static int writeCount(byte[] out, int offset, int count) {
+    if (count < 10) {
+      out[offset] = (byte) count;
+      return offset + 1;
+    }
+    int width = countWidth(count);
+    for (int i = offset + width - 1; i >= offset; i--) {
+      out[i] = (byte) (count % 10);
+      count /= 10;
+    }
+    return offset + width;
+  }
+
+  /**
+   * Counts the decimal digits of a run length.
+   *
+   * @param count the run length, at least one.
+   * @return the number of digits needed to write the run length.
+   */
+  private static int countWidth(int count) {
+    int width = 1;
+    for (int rest = count / 10; rest > 0; rest /= 10) {
+      width++;
+    }
+    return width;
+  }
+
+  /**
+   * Removes leading zeros from a buffer, keeping a single zero if the buffer holds nothing else.
+   *
+   * @param buffer the buffer to normalize.
+   */
+  static void stripLeadingZeros(DigitBuffer buffer) {
+    int zeros = 0;
+    while (zeros < buffer.length - 1 && buffer.digits[zeros] == 0) {
+      zeros++;
+    }
+    if (zeros > 0) {
+      System.arraycopy(buffer.digits, zeros, buffer.digits, 0, buffer.length - zeros);
+      buffer.length -= zeros;
+    }
+  }
+
+  /**
+   * Picks the kernel for long ranges: the one named by the lookandsay.kernel system property, or
+   * else the vector kernel when its module is present and the hardware has wide enough vectors,
+   * or else the SWAR kernel.
+   *
+   * @return the kernel to use.
+   */
+  private static Kernel chooseKernel() {
+    String forced = System.getProperty("lookandsay.kernel", "");
+    if (forced.equalsIgnoreCase("scalar")) {
+      return Kernel.SCALAR;
+    }
+    if (forced.equalsIgnoreCase("swar")
+            || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+      return Kernel.SWAR;
+    }
+    try {
+      return VectorKernel.usable() ? Kernel.VECTOR : Kernel.SWAR;
+    } catch (LinkageError e) {
+      return Kernel.SWAR;
+    }
+  }
+
+  /**
+   * The ways long ranges can be scanned.
+   */
+  private enum Kernel {
+    SCALAR, SWAR, VECTOR
+  }
+}
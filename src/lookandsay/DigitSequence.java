@@ -0,0 +1,247 @@
+package lookandsay;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A non negative number held as its decimal digits, which is what the look-and-say sequence works
+ * on. Unlike a BigInteger it never has to be converted between binary and decimal on its way in or
+ * out of an iterator: the digits are read as characters, compared by length and then digit by
+ * digit, and turned into a BigInteger only when that is asked for. Instances are immutable.
+ */
+public final class DigitSequence implements CharSequence, Comparable<DigitSequence> {
+
+  private final byte[] digits;
+  private BigInteger value;
+
+  /**
+   * This constructor wraps digits that no one else holds.
+   *
+   * @param digits the digits, most significant first, without leading zeros.
+   */
+  private DigitSequence(byte[] digits) {
+    this.digits = digits;
+  }
+
+  /**
+   * This method converts a non negative BigInteger.
+   *
+   * @param number the number to convert.
+   * @return the digits of the number.
+   * @throws IllegalArgumentException If the number is null or negative.
+   */
+  public static DigitSequence valueOf(BigInteger number) throws IllegalArgumentException {
+    if (number == null || number.signum() < 0) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    DigitSequence sequence = of(DigitBuffer.valueOf(number));
+    sequence.value = number;
+    return sequence;
+  }
+
+  /**
+   * This method reads a number written in decimal. Leading zeros are dropped, so 007 is 7.
+   *
+   * @param text the decimal digits of the number.
+   * @return the digits of the number.
+   * @throws IllegalArgumentException If the text is null, empty or holds anything but digits.
+   */
+  public static DigitSequence parse(CharSequence text) throws IllegalArgumentException {
+    if (text == null || text.length() == 0) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    int zeros = 0;
+    while (zeros < text.length() - 1 && text.charAt(zeros) == '0') {
+      zeros++;
+    }
+    byte[] digits = new byte[text.length() - zeros];
+    for (int i = 0; i < digits.length; i++) {
+      char character = text.charAt(zeros + i);
+      if (character < '0' || character > '9') {
+        throw new IllegalArgumentException("invalid argument");
+      }
+      digits[i] = (byte) (character - '0');
+    }
+    return new DigitSequence(digits);
+  }
+
+  /**
+   * This method copies the digits held in a buffer.
+   *
+   * @param buffer the buffer to copy.
+   * @return the digits of the buffer.
+   */
+  static DigitSequence of(DigitBuffer buffer) {
+    return new DigitSequence(Arrays.copyOf(buffer.digits, buffer.length));
+  }
+
+  /**
+   * This method copies the digits into a new buffer.
+   *
+   * @return a buffer holding the digits.
+   */
+  DigitBuffer toBuffer() {
+    DigitBuffer buffer = new DigitBuffer(digits.length);
+    System.arraycopy(digits, 0, buffer.digits, 0, digits.length);
+    buffer.length = digits.length;
+    return buffer;
+  }
+
+  /**
+   * This method yields the number of digits.
+   *
+   * @return the number of digits.
+   */
+  @Override
+  public int length() {
+    return digits.length;
+  }
+
+  /**
+   * This method yields a digit as a character from '0' to '9'.
+   *
+   * @param index the position of the digit, counting from the most significant digit at 0.
+   * @return the digit as a character.
+   * @throws IndexOutOfBoundsException If the index is outside the number.
+   */
+  @Override
+  public char charAt(int index) {
+    return (char) ('0' + digits[index]);
+  }
+
+  /**
+   * This method yields a digit as a number from 0 to 9.
+   *
+   * @param index the position of the digit, counting from the most significant digit at 0.
+   * @return the digit.
+   * @throws IndexOutOfBoundsException If the index is outside the number.
+   */
+  public int digitAt(int index) {
+    return digits[index];
+  }
+
+  /**
+   * This method yields some of the digits as characters. The result may start with zeros, so it
+   * is a plain character sequence and not a number.
+   *
+   * @param start the position of the first digit.
+   * @param end   the position after the last digit.
+   * @return the digits from start to end.
+   * @throws IndexOutOfBoundsException If the range is outside the number.
+   */
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > digits.length || start > end) {
+      throw new IndexOutOfBoundsException("no digits from " + start + " to " + end);
+    }
+    byte[] characters = new byte[end - start];
+    for (int i = 0; i < characters.length; i++) {
+      characters[i] = (byte) ('0' + digits[start + i]);
+    }
+    return new String(characters, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * This method streams the digits as numbers from 0 to 9. The stream has a known size and splits
+   * evenly, so a parallel stream over a long number spreads across cores.
+   *
+   * @return the digits, most significant first.
+   */
+  public IntStream digits() {
+    return StreamSupport.intStream(new DigitSpliterator(digits, 0, digits.length), false);
+  }
+
+  /**
+   * This method streams the digits as characters from '0' to '9', splitting as well as
+   * {@link #digits()}.
+   *
+   * @return the digits as characters, most significant first.
+   */
+  @Override
+  public IntStream chars() {
+    return digits().map(digit -> '0' + digit);
+  }
+
+  /**
+   * This method writes the digits as decimal text into a channel, a chunk at a time, without
+   * building a String of them.
+   *
+   * @param channel the channel to write into.
+   * @return the number of bytes written.
+   * @throws IOException If the channel cannot be written.
+   */
+  public long writeTo(WritableByteChannel channel) throws IOException {
+    return TermExport.digits(digits, digits.length, channel);
+  }
+
+  /**
+   * This method converts the number into a BigInteger the first time it is asked for and keeps
+   * the result.
+   *
+   * @return the number as a BigInteger.
+   */
+  public BigInteger toBigInteger() {
+    BigInteger number = value;
+    if (number == null) {
+      number = new BigInteger(toString());
+      value = number;
+    }
+    return number;
+  }
+
+  /**
+   * This method compares two numbers, looking at the number of digits first and at the digits
+   * themselves only when both have the same length.
+   *
+   * @param other the number to compare with.
+   * @return a negative number, zero or a positive number as this number is less than, equal to or
+   *         greater than the other one.
+   */
+  @Override
+  public int compareTo(DigitSequence other) {
+    if (digits.length != other.digits.length) {
+      return digits.length < other.digits.length ? -1 : 1;
+    }
+    return Arrays.compare(digits, other.digits);
+  }
+
+  /**
+   * This method tells whether another object is a DigitSequence holding the same number.
+   *
+   * @param other the object to compare with.
+   * @return true if both hold the same digits.
+   */
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof DigitSequence && Arrays.equals(digits, ((DigitSequence) other).digits);
+  }
+
+  /**
+   * This method yields a hash code computed from the digits.
+   *
+   * @return the hash code.
+   */
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(digits);
+  }
+
+  /**
+   * This method yields the digits as a decimal string.
+   *
+   * @return the number written in decimal.
+   */
+  @Override
+  public String toString() {
+    byte[] characters = new byte[digits.length];
+    for (int i = 0; i < digits.length; i++) {
+      characters[i] = (byte) ('0' + digits[i]);
+    }
+    return new String(characters, StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,118 @@
+package lookandsay;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A RIterator over a look-and-say sequence that hands out its terms as {@link DigitSequence}s
+ * instead of BigIntegers. Reading a number out loud is a decimal operation, so the terms never
+ * need a conversion to or from binary: a step only copies the digits of the term it returns, and
+ * the end value is compared by length first and then digit by digit. Apart from the type of the
+ * terms it behaves exactly like {@link LookAndSayIterator}.
+ */
+public class DigitSequenceIterator extends AbstractTermIterator<DigitSequence> {
+
+  /**
+   * This constructor takes a starting seed and an end value. The iterator stops moving forward
+   * once a number greater than or equal to end is reached.
+   *
+   * @param seed the number at which the sequence begins.
+   * @param end  the end value.
+   * @throws IllegalArgumentException If an argument is null, the seed is greater than the end or
+   *                                  the seed is 22.
+   */
+  public DigitSequenceIterator(DigitSequence seed, DigitSequence end)
+          throws IllegalArgumentException {
+    if (seed == null || end == null) {
+      throw new IllegalArgumentException("seed or end cannot be null");
+    }
+    if (seed.compareTo(end) > 0) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    if (seed.equals(DigitSequence.parse("22"))) {
+      throw new IllegalArgumentException("22 case.");
+    }
+    start(seed.toBuffer(), end.toBuffer(), seed);
+  }
+
+  /**
+   * This constructor takes a starting seed, an end value and a fork/join pool, on which large
+   * terms are read out loud and decoded in parallel chunks. The terms produced are identical.
+   *
+   * @param seed the number at which the sequence begins.
+   * @param end  the end value.
+   * @param pool the pool that encodes large terms.
+   * @throws IllegalArgumentException If an argument is null, the seed is greater than the end or
+   *                                  the seed is 22.
+   */
+  public DigitSequenceIterator(DigitSequence seed, DigitSequence end, ForkJoinPool pool)
+          throws IllegalArgumentException {
+    this(seed, end);
+    if (pool == null) {
+      throw new IllegalArgumentException("pool cannot be null");
+    }
+    encodeOn(pool);
+  }
+
+  /**
+   * This constructor takes a starting seed. The end value is the largest number of 100 digits.
+   *
+   * @param seed the number at which the sequence begins.
+   * @throws IllegalArgumentException If the seed is null, has more than 100 digits or is 22.
+   */
+  public DigitSequenceIterator(DigitSequence seed) throws IllegalArgumentException {
+    this(seed, largestOfHundredDigits());
+  }
+
+  /**
+   * This constructor starts the sequence at 1, with the largest number of 100 digits as the end
+   * value.
+   */
+  public DigitSequenceIterator() {
+    this(DigitSequence.parse("1"));
+  }
+
+  /**
+   * This constructor resumes from a saved state.
+   *
+   * @param checkpoint the saved state.
+   */
+  DigitSequenceIterator(TermCheckpoint checkpoint) {
+    restore(checkpoint);
+  }
+
+  /**
+   * This method resumes an iterator from a file written by saveCheckpoint, standing on the term
+   * that was current, with the same index and end value.
+   *
+   * @param path the checkpoint file.
+   * @return the resumed iterator.
+   * @throws IOException If the file cannot be read, is not a checkpoint or is damaged.
+   */
+  public static DigitSequenceIterator resume(Path path) throws IOException {
+    return new DigitSequenceIterator(TermCheckpoint.read(path));
+  }
+
+  @Override
+  DigitSequence build(DigitBuffer term) {
+    return DigitSequence.of(term);
+  }
+
+  @Override
+  long bytesOf(DigitSequence term) {
+    return term.length();
+  }
+
+  /**
+   * This method yields the default end value.
+   *
+   * @return the number made of 100 9s.
+   */
+  private static DigitSequence largestOfHundredDigits() {
+    char[] nines = new char[100];
+    Arrays.fill(nines, '9');
+    return DigitSequence.parse(new String(nines));
+  }
+}
@@ -0,0 +1,99 @@
+package lookandsay;
+
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * The digits of one term as a spliterator that splits evenly in halves, so that a parallel stream
+ * over the digits of a large term spreads across the common pool. The digits are never changed
+ * while it is in use; the holder must hand over digits that no one writes to.
+ */
+final class DigitSpliterator implements Spliterator.OfInt {
+
+  /**
+   * Ranges shorter than twice this are not split, since the work per digit is tiny.
+   */
+  private static final int SMALLEST_SPLIT = 1 << 12;
+
+  private final byte[] digits;
+  private int from;
+  private final int to;
+
+  /**
+   * This constructor covers a range of digits.
+   *
+   * @param digits the digits, most significant first.
+   * @param from   the position of the first digit covered.
+   * @param to     the position after the last digit covered.
+   */
+  DigitSpliterator(byte[] digits, int from, int to) {
+    this.digits = digits;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * This method hands the next digit to the action, if there is one.
+   *
+   * @param action the action taking the digit.
+   * @return true if a digit was handed over.
+   */
+  @Override
+  public boolean tryAdvance(IntConsumer action) {
+    if (from >= to) {
+      return false;
+    }
+    action.accept(digits[from++]);
+    return true;
+  }
+
+  /**
+   * This method hands all the remaining digits to the action, in order.
+   *
+   * @param action the action taking the digits.
+   */
+  @Override
+  public void forEachRemaining(IntConsumer action) {
+    for (int i = from; i < to; i++) {
+      action.accept(digits[i]);
+    }
+    from = to;
+  }
+
+  /**
+   * This method gives away the first half of the remaining digits.
+   *
+   * @return a spliterator over the first half, or null if too few digits remain.
+   */
+  @Override
+  public Spliterator.OfInt trySplit() {
+    if (to - from < 2 * SMALLEST_SPLIT) {
+      return null;
+    }
+    int middle = (from + to) >>> 1;
+    DigitSpliterator prefix = new DigitSpliterator(digits, from, middle);
+    from = middle;
+    return prefix;
+  }
+
+  /**
+   * This method yields the number of digits left.
+   *
+   * @return the number of digits left.
+   */
+  @Override
+  public long estimateSize() {
+    return to - from;
+  }
+
+  /**
+   * This method yields the characteristics of the digits: ordered, of known size at every split,
+   * never null and never changed.
+   *
+   * @return the characteristics.
+   */
+  @Override
+  public int characteristics() {
+    return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+  }
+}
@@ -0,0 +1,348 @@
+package lookandsay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The 92 common elements of Conway's audioactive chemistry and the rule that tells where a term
+ * splits into parts that evolve independently of each other. Conway showed that every term that is
+ * at least two days old splits into such parts, and that after enough steps every part is one of
+ * the elements below or one of the transuranic elements, which only exist when the seed contains
+ * a digit greater than 3. Elements are listed by atomic number, from hydrogen to uranium.
+ */
+final class Elements {
+
+  /**
+   * The chemical symbol of each common element, indexed by atomic number minus one.
+   */
+  static final String[] SYMBOLS = {
+      "H", "He", "Li", "Be", "B", "C", "N", "O", "F", "Ne", "Na", "Mg", "Al", "Si", "P", "S", "Cl",
+      "Ar", "K", "Ca", "Sc", "Ti", "V", "Cr", "Mn", "Fe", "Co", "Ni", "Cu", "Zn", "Ga", "Ge", "As",
+      "Se", "Br", "Kr", "Rb", "Sr", "Y", "Zr", "Nb", "Mo", "Tc", "Ru", "Rh", "Pd", "Ag", "Cd",
+      "In", "Sn", "Sb", "Te", "I", "Xe", "Cs", "Ba", "La", "Ce", "Pr", "Nd", "Pm", "Sm", "Eu",
+      "Gd", "Tb", "Dy", "Ho", "Er", "Tm", "Yb", "Lu", "Hf", "Ta", "W", "Re", "Os", "Ir", "Pt",
+      "Au", "Hg", "Tl", "Pb", "Bi", "Po", "At", "Rn", "Fr", "Ra", "Ac", "Th", "Pa", "U"
+  };
+
+  /**
+   * The digits of each common element, indexed by atomic number minus one.
+   */
+  static final String[] SEQUENCES = {
+      "22",
+      "13112221133211322112211213322112",
+      "312211322212221121123222112",
+      "111312211312113221133211322112211213322112",
+      "1321132122211322212221121123222112",
+      "3113112211322112211213322112",
+      "111312212221121123222112",
+      "132112211213322112",
+      "31121123222112",
+      "111213322112",
+      "123222112",
+      "3113322112",
+      "1113222112",
+      "1322112",
+      "311311222112",
+      "1113122112",
+      "132112",
+      "3112",
+      "1112",
+      "12",
+      "3113112221133112",
+      "11131221131112",
+      "13211312",
+      "31132",
+      "111311222112",
+      "13122112",
+      "32112",
+      "11133112",
+      "131112",
+      "312",
+      "13221133122211332",
+      "31131122211311122113222",
+      "11131221131211322113322112",
+      "13211321222113222112",
+      "3113112211322112",
+      "11131221222112",
+      "1321122112",
+      "3112112",
+      "1112133",
+      "12322211331222113112211",
+      "1113122113322113111221131221",
+      "13211322211312113211",
+      "311322113212221",
+      "132211331222113112211",
+      "311311222113111221131221",
+      "111312211312113211",
+      "132113212221",
+      "3113112211",
+      "11131221",
+      "13211",
+      "3112221",
+      "1322113312211",
+      "311311222113111221",
+      "11131221131211",
+      "13211321",
+      "311311",
+      "11131",
+      "1321133112",
+      "31131112",
+      "111312",
+      "132",
+      "311332",
+      "1113222",
+      "13221133112",
+      "3113112221131112",
+      "111312211312",
+      "1321132",
+      "311311222",
+      "11131221133112",
+      "1321131112",
+      "311312",
+      "11132",
+      "13112221133211322112211213322113",
+      "312211322212221121123222113",
+      "111312211312113221133211322112211213322113",
+      "1321132122211322212221121123222113",
+      "3113112211322112211213322113",
+      "111312212221121123222113",
+      "132112211213322113",
+      "31121123222113",
+      "111213322113",
+      "123222113",
+      "3113322113",
+      "1113222113",
+      "1322113",
+      "311311222113",
+      "1113122113",
+      "132113",
+      "3113",
+      "1113",
+      "13",
+      "3"
+  };
+
+  /**
+   * The digits of each common element as numbers from 0 to 9, indexed like {@link #SEQUENCES}.
+   */
+  static final byte[][] DIGITS = new byte[SEQUENCES.length][];
+
+  /**
+   * The elements each common element decays into after one step, in order, given by their index
+   * in {@link #SEQUENCES}. Common elements only ever decay into common elements.
+   */
+  static final int[][] DECAYS = new int[SEQUENCES.length][];
+
+  /**
+   * The length of every element after each number of steps, up to the step after which no length
+   * changes any more. Rows are only added under the lock of the class and published as a new
+   * array, so readers need no lock.
+   */
+  private static volatile long[][] grownLengths = new long[0][];
+  private static volatile boolean grownLengthsSettled;
+
+  static {
+    Map<String, Integer> index = new HashMap<String, Integer>();
+    for (int element = 0; element < SEQUENCES.length; element++) {
+      DIGITS[element] = new byte[SEQUENCES[element].length()];
+      for (int i = 0; i < DIGITS[element].length; i++) {
+        DIGITS[element][i] = (byte) (SEQUENCES[element].charAt(i) - '0');
+      }
+      index.put(new String(DIGITS[element], StandardCharsets.ISO_8859_1), element);
+    }
+    DigitBuffer source = new DigitBuffer(64);
+    DigitBuffer target = new DigitBuffer(128);
+    for (int element = 0; element < SEQUENCES.length; element++) {
+      source.ensureCapacity(DIGITS[element].length);
+      System.arraycopy(DIGITS[element], 0, source.digits, 0, DIGITS[element].length);
+      source.length = DIGITS[element].length;
+      DigitKernel.encode(source, target);
+      int[] bounds = split(target.digits, target.length);
+      DECAYS[element] = new int[bounds.length - 1];
+      for (int i = 0; i < DECAYS[element].length; i++) {
+        Integer product = index.get(new String(target.digits, bounds[i], bounds[i + 1] - bounds[i],
+                StandardCharsets.ISO_8859_1));
+        if (product == null) {
+          throw new IllegalStateException("element table is not closed");
+        }
+        DECAYS[element][i] = product;
+      }
+    }
+  }
+
+  /**
+   * This class only holds the table and static helpers.
+   */
+  private Elements() {
+  }
+
+  /**
+   * This method yields how many digits a common element has grown into after a number of steps,
+   * capped at {@link Long#MAX_VALUE}. The lengths are tabulated step by step the first time they
+   * are needed and shared by every engine. Once every element has reached the cap the table
+   * stops, so it never holds more than a few hundred rows.
+   *
+   * @param element the index of the element in {@link #SEQUENCES}.
+   * @param steps   the number of steps.
+   * @return the length of what the element has become, or Long.MAX_VALUE if that does not fit.
+   */
+  static long grownLength(int element, long steps) {
+    boolean settled = grownLengthsSettled;
+    long[][] rows = grownLengths;
+    if (!settled && steps >= rows.length) {
+      rows = growLengths(steps);
+    }
+    return rows[(int) Math.min(steps, rows.length - 1)][element];
+  }
+
+  /**
+   * This method yields the number of steps after which the length of no element changes any
+   * more.
+   *
+   * @return the last step at which some element still grows.
+   */
+  static int grownLengthsSettle() {
+    long[][] rows = grownLengthsSettled ? grownLengths : growLengths(Long.MAX_VALUE);
+    return rows.length - 1;
+  }
+
+  /**
+   * This method extends the table of grown lengths up to a number of steps, or until it settles.
+   *
+   * @param steps the number of steps.
+   * @return the table, as published.
+   */
+  private static synchronized long[][] growLengths(long steps) {
+    List<long[]> rows = new ArrayList<long[]>(Arrays.asList(grownLengths));
+    if (rows.isEmpty()) {
+      long[] lengths = new long[SEQUENCES.length];
+      for (int i = 0; i < lengths.length; i++) {
+        lengths[i] = SEQUENCES[i].length();
+      }
+      rows.add(lengths);
+    }
+    boolean settled = grownLengthsSettled;
+    while (rows.size() <= steps && !settled) {
+      long[] last = rows.get(rows.size() - 1);
+      long[] lengths = new long[last.length];
+      for (int i = 0; i < lengths.length; i++) {
+        long total = 0;
+        for (int product : DECAYS[i]) {
+          total = total > Long.MAX_VALUE - last[product] ? Long.MAX_VALUE : total + last[product];
+        }
+        lengths[i] = total;
+      }
+      if (Arrays.equals(lengths, last)) {
+        settled = true;
+      } else {
+        rows.add(lengths);
+      }
+    }
+    grownLengths = rows.toArray(new long[0][]);
+    grownLengthsSettled = settled;
+    return grownLengths;
+  }
+
+  /**
+   * Finds every position at which a term splits. The term must be at least two days old, which
+   * means it was produced by two or more encoding steps from a seed whose runs were all shorter
+   * than four digits; younger terms do not obey the splitting rule.
+   *
+   * @param digits the digits of the term.
+   * @param length the number of digits in the term.
+   * @return the start of every part, in increasing order, followed by the length of the term.
+   */
+  static int[] split(byte[] digits, int length) {
+    int[] bounds = new int[16];
+    int count = 0;
+    bounds[count++] = 0;
+    for (int i = 1; i < length; i++) {
+      if (digits[i] != digits[i - 1] && splitsAt(digits, length, i)) {
+        if (count == bounds.length - 1) {
+          bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[count++] = i;
+      }
+    }
+    bounds[count++] = length;
+    return Arrays.copyOf(bounds, count);
+  }
+
+  /**
+   * Conway's splitting theorem. A term LR splits between L and R exactly when the first digit of R
+   * never becomes equal to the last digit of L as the term evolves, which depends only on that last
+   * digit and on the first few runs of R:
+   * <ul>
+   *   <li>L ends in a digit other than 1, 2 or 3: always.</li>
+   *   <li>L ends in 2: R starts as described by {@link #safeAfterTwo}.</li>
+   *   <li>L ends in 1 or 3: R starts with exactly two 2s, followed either by nothing or by
+   *   something that is safe after a 2.</li>
+   * </ul>
+   *
+   * @param digits   the digits of the term.
+   * @param length   the number of digits in the term.
+   * @param position the first digit of R, which must start a new run.
+   * @return true if the term splits in front of the given position.
+   */
+  static boolean splitsAt(byte[] digits, int length, int position) {
+    byte last = digits[position - 1];
+    if (last < 1 || last > 3) {
+      return true;
+    }
+    if (last == 2) {
+      return safeAfterTwo(digits, length, position);
+    }
+    if (runLength(digits, length, position) != 2 || digits[position] != 2) {
+      return false;
+    }
+    return position + 2 == length || safeAfterTwo(digits, length, position + 2);
+  }
+
+  /**
+   * Tells whether the part starting at the given position can never start with a 2. That is the
+   * case when it starts with a digit other than 1, 2 or 3, with a single 1 followed by a single
+   * other digit, with exactly three 1s, or with a single 3 that is not followed by a run of three.
+   *
+   * @param digits   the digits of the term.
+   * @param length   the number of digits in the term.
+   * @param position the first digit of the part, which must start a new run.
+   * @return true if the part never starts with a 2.
+   */
+  private static boolean safeAfterTwo(byte[] digits, int length, int position) {
+    byte first = digits[position];
+    if (first < 1 || first > 3) {
+      return true;
+    }
+    int run = runLength(digits, length, position);
+    if (first == 1 && run == 1) {
+      return position + 1 < length && runLength(digits, length, position + 1) == 1;
+    }
+    if (first == 1) {
+      return run == 3;
+    }
+    if (first == 3 && run == 1) {
+      return position + 1 == length || runLength(digits, length, position + 1) != 3;
+    }
+    return false;
+  }
+
+  /**
+   * Counts the equal digits starting at the given position.
+   *
+   * @param digits   the digits of the term.
+   * @param length   the number of digits in the term.
+   * @param position the first digit of the run.
+   * @return the length of the run.
+   */
+  private static int runLength(byte[] digits, int length, int position) {
+    int end = position + 1;
+    while (end < length && digits[end] == digits[position]) {
+      end++;
+    }
+    return end - position;
+  }
+}
@@ -0,0 +1,243 @@
+package lookandsay;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+
+/**
+ * How fast each {@link TermEngine} computes terms on this machine, from which an iterator picks
+ * the engine of every step. The speeds are digits written per nanosecond; the parallel speed is
+ * given per worker of the pool and scaled by the parallelism of the pool an iterator uses, and it
+ * only applies from a given term length on, below which splitting a term costs more than it
+ * saves. A profile can be measured with {@link #calibrate(ForkJoinPool)}, saved and loaded again
+ * so that the measurement is made once, or made up from known numbers. Instances are immutable.
+ */
+public final class EngineProfile {
+
+  private static final EngineProfile DEFAULTS =
+          new EngineProfile(0.5, 0.8, 0.4, ParallelEncoder.THRESHOLD);
+
+  /**
+   * The number of times every engine is timed during a calibration; the fastest run counts.
+   */
+  private static final int TRIALS = 5;
+
+  private final double digitsRate;
+  private final double atomsRate;
+  private final double parallelRate;
+  private final int parallelFrom;
+
+  /**
+   * This constructor takes the measured speeds.
+   *
+   * @param digitsRate   the digits per nanosecond written by {@link TermEngine#DIGITS}.
+   * @param atomsRate    the digits per nanosecond written by {@link TermEngine#ATOMS}.
+   * @param parallelRate the digits per nanosecond written by every worker of
+   *                     {@link TermEngine#PARALLEL}.
+   * @param parallelFrom the length from which a term is worth encoding in parallel.
+   * @throws IllegalArgumentException If a speed is not positive or the length is negative.
+   */
+  public EngineProfile(double digitsRate, double atomsRate, double parallelRate, int parallelFrom)
+          throws IllegalArgumentException {
+    if (!(digitsRate > 0) || !(atomsRate > 0) || !(parallelRate > 0) || parallelFrom < 0) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    this.digitsRate = digitsRate;
+    this.atomsRate = atomsRate;
+    this.parallelRate = parallelRate;
+    this.parallelFrom = parallelFrom;
+  }
+
+  /**
+   * This method yields the profile iterators use unless told otherwise, with typical speeds: atoms
+   * beat the digit scan, and a pool beats both once it has a couple of workers.
+   *
+   * @return the default profile.
+   */
+  public static EngineProfile defaults() {
+    return DEFAULTS;
+  }
+
+  /**
+   * This method times every engine on terms of the sequence starting at 1 and makes a profile of
+   * the results. It takes a few hundred milliseconds.
+   *
+   * @param pool the pool the parallel engine is timed on.
+   * @return the measured profile.
+   * @throws IllegalArgumentException If the pool is null.
+   */
+  public static EngineProfile calibrate(ForkJoinPool pool) throws IllegalArgumentException {
+    if (pool == null) {
+      throw new IllegalArgumentException("pool cannot be null");
+    }
+    DigitBuffer term = DigitBuffer.valueOf(BigInteger.ONE);
+    DigitBuffer next = new DigitBuffer(16);
+    AtomExpander expander = new AtomExpander();
+    int parallelFrom = Integer.MAX_VALUE;
+    double digitsRate = 0;
+    double atomsRate = 0;
+    double parallelRate = 0;
+    while (term.length < 1 << 20) {
+      if (term.length >= ParallelEncoder.THRESHOLD) {
+        long[] times = time(term, next, pool, expander);
+        if (times[2] < times[0] && parallelFrom == Integer.MAX_VALUE) {
+          parallelFrom = term.length;
+        }
+        digitsRate = (double) next.length / times[0];
+        atomsRate = (double) next.length / times[1];
+        parallelRate = (double) next.length / times[2] / pool.getParallelism();
+      }
+      DigitKernel.encode(term, next);
+      DigitBuffer written = next;
+      next = term;
+      term = written;
+    }
+    return new EngineProfile(digitsRate, atomsRate, parallelRate, parallelFrom);
+  }
+
+  /**
+   * This method reads a profile saved by {@link #save(Path)}.
+   *
+   * @param path the file to read.
+   * @return the profile.
+   * @throws IOException If the file cannot be read or is not a profile.
+   */
+  public static EngineProfile load(Path path) throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(path)) {
+      properties.load(in);
+    }
+    try {
+      return new EngineProfile(Double.parseDouble(properties.getProperty("digitsRate")),
+              Double.parseDouble(properties.getProperty("atomsRate")),
+              Double.parseDouble(properties.getProperty("parallelRate")),
+              Integer.parseInt(properties.getProperty("parallelFrom")));
+    } catch (RuntimeException re) {
+      throw new IOException("not an engine profile: " + path, re);
+    }
+  }
+
+  /**
+   * This method writes this profile into a properties file.
+   *
+   * @param path the file to create or overwrite.
+   * @throws IOException If the file cannot be written.
+   */
+  public void save(Path path) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("digitsRate", Double.toString(digitsRate));
+    properties.setProperty("atomsRate", Double.toString(atomsRate));
+    properties.setProperty("parallelRate", Double.toString(parallelRate));
+    properties.setProperty("parallelFrom", Integer.toString(parallelFrom));
+    try (OutputStream out = Files.newOutputStream(path)) {
+      properties.store(out, "look-and-say engine profile");
+    }
+  }
+
+  /**
+   * This method yields the speed of the digit scan.
+   *
+   * @return the digits written per nanosecond.
+   */
+  public double digitsRate() {
+    return digitsRate;
+  }
+
+  /**
+   * This method yields the speed of the atom engine.
+   *
+   * @return the digits written per nanosecond.
+   */
+  public double atomsRate() {
+    return atomsRate;
+  }
+
+  /**
+   * This method yields the speed of one worker of the parallel engine.
+   *
+   * @return the digits written per nanosecond and worker.
+   */
+  public double parallelRate() {
+    return parallelRate;
+  }
+
+  /**
+   * This method yields the length from which terms are worth encoding in parallel.
+   *
+   * @return the number of digits.
+   */
+  public int parallelFrom() {
+    return parallelFrom;
+  }
+
+  /**
+   * This method picks the fastest engine for a step. Whether the term has split into atoms is
+   * only asked when the atom engine would be the fastest, since finding out may mean cutting the
+   * term.
+   *
+   * @param length      the number of digits of the current term.
+   * @param parallelism the parallelism of the pool of the iterator, or 0 if it has none.
+   * @param atoms       tells whether the atoms of the term are known, or null for a step back.
+   * @return the engine to use.
+   */
+  TermEngine choose(long length, int parallelism, BooleanSupplier atoms) {
+    TermEngine best = TermEngine.DIGITS;
+    double rate = digitsRate;
+    if (parallelism > 0 && length >= Math.max(parallelFrom, ParallelEncoder.THRESHOLD)
+            && parallelRate * parallelism > rate) {
+      best = TermEngine.PARALLEL;
+      rate = parallelRate * parallelism;
+    }
+    if (atoms != null && atomsRate > rate && atoms.getAsBoolean()) {
+      best = TermEngine.ATOMS;
+    }
+    return best;
+  }
+
+  /**
+   * This method times every engine on one term.
+   *
+   * @param term     the term to read out loud, which must have split into atoms.
+   * @param next     the buffer that receives the next term.
+   * @param pool     the pool of the parallel engine.
+   * @param expander the atom table of the atom engine.
+   * @return the nanoseconds taken by the digit, atom and parallel engines, in that order.
+   */
+  private static long[] time(DigitBuffer term, DigitBuffer next, ForkJoinPool pool,
+          AtomExpander expander) {
+    AtomExpander.Parts parts = expander.split(term);
+    return new long[] {
+        best(() -> DigitKernel.encode(term, next)),
+        best(() -> expander.step(parts, null, next)),
+        best(() -> ParallelEncoder.encode(term, next, pool))
+    };
+  }
+
+  /**
+   * This method times an action a few times.
+   *
+   * @param action the action to time.
+   * @return the shortest time taken, in nanoseconds, at least 1.
+   */
+  private static long best(Runnable action) {
+    long best = Long.MAX_VALUE;
+    for (int trial = 0; trial < TRIALS; trial++) {
+      long started = System.nanoTime();
+      action.run();
+      best = Math.min(best, System.nanoTime() - started);
+    }
+    return Math.max(1, best);
+  }
+
+  @Override
+  public String toString() {
+    return "EngineProfile[digits=" + digitsRate + ", atoms=" + atomsRate + ", parallel="
+            + parallelRate + "/worker from " + parallelFrom + "]";
+  }
+}
@@ -1,9 +1,9 @@
 package lookandsay;
 
+import java.io.IOException;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.NoSuchElementException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This is a concrete implementation of the RIterator. A look-and-say sequence is a sequence of
@@ -20,10 +20,7 @@ import java.util.NoSuchElementException;
  * hasPrevious()should return true if it is possible to go back one step.
  */
 
-public class LookAndSayIterator implements RIterator<BigInteger> {
-
-  private BigInteger end;
-  private BigInteger current;
+public class LookAndSayIterator extends AbstractTermIterator<BigInteger> {
 
   /**
    * This constructor that takes two arguments: a starting seed and an end value. The seed is the
@@ -46,9 +43,29 @@ public class LookAndSayIterator implements RIterator<BigInteger> {
       throw new IllegalArgumentException("22 case.");
     }
 
-    this.end = end;
-    this.current = seed;
+    start(DigitBuffer.valueOf(seed), DigitBuffer.valueOf(end), seed);
+
+  }
 
+  /**
+   * This constructor takes a starting seed, an end value and a fork/join pool. It behaves like the
+   * constructor with a seed and an end value, except that large terms are read out loud and
+   * decoded in parallel chunks on the given pool. The terms produced are identical.
+   *
+   * @param seed the number at which the sequence begins.
+   * @param end  the end value.
+   * @param pool the pool that encodes large terms.
+   * @throws IllegalArgumentException If the pool is null.
+   * @throws IllegalArgumentException If the seed is not a positive number.
+   * @throws IllegalArgumentException If the seed is not less than the end.
+   */
+  public LookAndSayIterator(BigInteger seed, BigInteger end, ForkJoinPool pool)
+          throws IllegalArgumentException {
+    this(seed, end);
+    if (pool == null) {
+      throw new IllegalArgumentException("pool cannot be null");
+    }
+    encodeOn(pool);
   }
 
   /**
@@ -66,12 +83,12 @@ public class LookAndSayIterator implements RIterator<BigInteger> {
     if (seed.compareTo(new BigInteger("22")) == 0) {
       throw new IllegalArgumentException("22 case.");
     }
-    this.end = new BigInteger("10").pow(100).subtract(new BigInteger("1"));
+    BigInteger end = new BigInteger("10").pow(100).subtract(new BigInteger("1"));
     if (seed.compareTo(new BigInteger("0")) == -1 || seed.compareTo(end) == 1) {
       throw new IllegalArgumentException("invalid argument");
     }
 
-    this.current = seed;
+    start(DigitBuffer.valueOf(seed), DigitBuffer.valueOf(end), seed);
 
   }
 
@@ -82,175 +99,40 @@ public class LookAndSayIterator implements RIterator<BigInteger> {
    */
   public LookAndSayIterator() {
 
-    this.end = new BigInteger("10").pow(100).subtract(new BigInteger("1"));
-    this.current = new BigInteger("1");
+    start(DigitBuffer.valueOf(new BigInteger("1")),
+            DigitBuffer.valueOf(new BigInteger("10").pow(100).subtract(new BigInteger("1"))),
+            new BigInteger("1"));
 
   }
 
   /**
-   * this method should return the current number in the sequence and revert to the previous number
-   * in the sequence.
+   * This constructor resumes from a saved state.
    *
-   * @return the current number as BigInteger.
+   * @param checkpoint the saved state.
    */
-  public BigInteger prev() {
-
-    if (hasPrevious()) {
-      BigInteger currentNumber = this.current;
-      this.current = lookandsayDecoder(currentNumber);
-
-      return currentNumber;
-    } else {
-      return this.current;
-    }
+  LookAndSayIterator(TermCheckpoint checkpoint) {
+    restore(checkpoint);
   }
 
   /**
-   * should yield true if it is possible to go back one step, false otherwise.
+   * This method resumes an iterator from a file written by saveCheckpoint, standing on the term
+   * that was current, with the same index and end value.
    *
-   * @return true if it is possible to go back one step, false otherwise.
+   * @param path the checkpoint file.
+   * @return the resumed iterator.
+   * @throws IOException If the file cannot be read, is not a checkpoint or is damaged.
    */
-  public boolean hasPrevious() {
-
-
-    Integer length = this.current.toString().length();
-
-    return length % 2 == 0;
+  public static LookAndSayIterator resume(Path path) throws IOException {
+    return new LookAndSayIterator(TermCheckpoint.read(path));
   }
 
-  /**
-   * Returns {@code true} if the iteration has more elements. (In other words, returns {@code true}
-   * if {@link #next} would return an element rather than throwing an exception.)
-   *
-   * @return {@code true} if the iteration has more elements
-   */
   @Override
-  public boolean hasNext() {
-    return current.compareTo(end) == -1;
-
+  BigInteger build(DigitBuffer term) {
+    return term.toBigInteger();
   }
 
-  /**
-   * Returns the next element in the iteration.
-   *
-   * @return the next element in the iteration
-   * @throws NoSuchElementException when seed exceeds end value.
-   */
   @Override
-  public BigInteger next() throws NoSuchElementException {
-
-    if (hasNext()) {
-      BigInteger currentNumber = this.current;
-
-      this.current = lookandsayEncoder(currentNumber);
-
-      return currentNumber;
-    } else {
-      return this.current;
-    }
-  }
-
-  /**
-   * This method yields the next number in the look and say sequence.
-   *
-   * @param receivedNumber BigInteger that represents the current Number.
-   * @return BigInteger that is the next number in the Look and Say Sequence.
-   */
-  private BigInteger lookandsayEncoder(BigInteger receivedNumber) {
-    ArrayList<Character> big = convertedArray(receivedNumber);
-
-    ArrayList<String> number = new ArrayList<String>();
-
-    int counter = 1;
-
-    if (big.size() == 1) {
-      number.add(counter + "");
-      number.add(big.get(0) + "");
-    } else {
-
-      Character sede = big.get(0);
-      for (int i = 1; i < big.size(); i++) {
-        if (big.get(i) == sede) {
-          counter++;
-          if (i == big.size() - 1) {
-            number.add(counter + "");
-            number.add(big.get(i) + "");
-          }
-        } else {
-
-          number.add(counter + "");
-          number.add(big.get(i - 1) + "");
-          counter = 1;
-          sede = big.get(i);
-          if (i == big.size() - 1) {
-            number.add(counter + "");
-            number.add(big.get(i) + "");
-          }
-
-        }
-
-
-      }
-    }
-
-
-    return new BigInteger(bigIntegerString(number));
-  }
-
-
-  /**
-   * This method yields the previous number in the look and say sequence.
-   *
-   * @param receivedNumber BigInteger that represents the current Number.
-   * @return BigInteger that is the previous number in the Look and Say Sequence.
-   */
-  private BigInteger lookandsayDecoder(BigInteger receivedNumber) {
-
-    ArrayList<Character> big = convertedArray(receivedNumber);
-
-    ArrayList<String> number = new ArrayList<String>();
-
-    for (int i = 0; i < big.size(); i = i + 2) {
-
-
-      Integer counter = Integer.parseInt(big.get(i) + "");
-
-
-      for (int j = 0; j < counter; j++) {
-
-        number.add(big.get(i + 1) + "");
-
-      }
-
-    }
-
-    return new BigInteger(bigIntegerString(number));
-  }
-
-  /**
-   * This method converts the bigInteger into an arry of Characters.
-   *
-   * @param receivedNumber is a big Integer.
-   * @return ArrayList of Characters that is a representation of BigInteger.
-   */
-  private ArrayList<Character> convertedArray(BigInteger receivedNumber) {
-    String bigRepresntation = receivedNumber.toString();
-    Character[] rep = bigRepresntation.chars().mapToObj(c -> (char) c).toArray(Character[]::new);
-    ArrayList<Character> big = new ArrayList<Character>(Arrays.asList(rep));
-    return big;
-  }
-
-  /**
-   * This method is used to convert the ArrayList of each digit to a String.
-   *
-   * @param number ArrayList of Each Digit.
-   * @return the String representation of the number.
-   */
-  private String bigIntegerString(ArrayList<String> number) {
-    String nextNumber = "";
-    for (String dig : number) {
-      nextNumber = nextNumber + dig;
-    }
-    return nextNumber;
+  long bytesOf(BigInteger term) {
+    return term.bitLength() / 8 + 1;
   }
 }
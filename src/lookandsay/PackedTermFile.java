@@ -0,0 +1,450 @@
+package lookandsay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A term of a look-and-say sequence kept in a file rather than on the heap. The file starts with
+ * the number of digits as an eight byte big-endian value, followed by the digits packed two per
+ * byte, the first digit in the high nibble. Moving to the next or previous term streams the digits
+ * from one file into another through memory-mapped windows, so the size of a term is bounded by
+ * the disk and not by the heap.
+ */
+public final class PackedTermFile {
+
+  /**
+   * The number of bytes in front of the packed digits.
+   */
+  static final int HEADER = Long.BYTES;
+
+  /**
+   * The number of bytes mapped at once when reading a file.
+   */
+  private static final long WINDOW = 1L << 26;
+
+  private final Path path;
+  private final long length;
+
+  /**
+   * This constructor wraps a file that has already been written.
+   *
+   * @param path   the file holding the term.
+   * @param length the number of digits in the term.
+   */
+  PackedTermFile(Path path, long length) {
+    this.path = path;
+    this.length = length;
+  }
+
+  /**
+   * This method writes a number into a new file.
+   *
+   * @param path  the file to create, which must not exist yet.
+   * @param value the non negative number to store.
+   * @return the stored term.
+   * @throws IOException              If the file cannot be written.
+   * @throws IllegalArgumentException If the value is null or negative.
+   */
+  public static PackedTermFile write(Path path, BigInteger value) throws IOException {
+    if (value == null || value.signum() < 0) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    String digits = value.toString();
+    try (Writer writer = new Writer(path)) {
+      for (int i = 0; i < digits.length(); i++) {
+        writer.write(digits.charAt(i) - '0');
+      }
+      return new PackedTermFile(path, writer.finish());
+    }
+  }
+
+  /**
+   * This method opens a file written earlier by this class.
+   *
+   * @param path the file holding the term.
+   * @return the stored term.
+   * @throws IOException If the file cannot be read or is not a packed term.
+   */
+  public static PackedTermFile open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        continue;
+      }
+      if (header.hasRemaining()) {
+        throw new IOException("not a packed term: " + path);
+      }
+      long length = header.getLong(0);
+      if (length < 1 || channel.size() < HEADER + (length + 1) / 2) {
+        throw new IOException("not a packed term: " + path);
+      }
+      return new PackedTermFile(path, length);
+    }
+  }
+
+  /**
+   * This method yields the file holding this term.
+   *
+   * @return the path of the file.
+   */
+  public Path path() {
+    return path;
+  }
+
+  /**
+   * This method yields the number of digits of this term.
+   *
+   * @return the number of digits.
+   */
+  public long length() {
+    return length;
+  }
+
+  /**
+   * This method yields one digit of this term.
+   *
+   * @param index the position of the digit, counting from the most significant digit at 0.
+   * @return the digit at the given position.
+   * @throws IOException               If the file cannot be read.
+   * @throws IndexOutOfBoundsException If the index is outside the term.
+   */
+  public int digitAt(long index) throws IOException {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("no digit at " + index);
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer single = ByteBuffer.allocate(1);
+      channel.read(single, HEADER + index / 2);
+      int packed = single.get(0);
+      return index % 2 == 0 ? packed >> 4 & 0xF : packed & 0xF;
+    }
+  }
+
+  /**
+   * This method tells whether this term can be read as (count, digit) pairs.
+   *
+   * @return true if the term has an even number of digits.
+   */
+  public boolean hasPrevious() {
+    return length % 2 == 0;
+  }
+
+  /**
+   * This method reads this term out loud into a new file.
+   *
+   * @param target the file that receives the next term, which must not exist yet.
+   * @return the next term.
+   * @throws IOException If either file cannot be accessed.
+   */
+  public PackedTermFile next(Path target) throws IOException {
+    try (Reader reader = new Reader(this); Writer writer = new Writer(target)) {
+      int digit = reader.next();
+      long run = 1;
+      while (reader.hasNext()) {
+        int following = reader.next();
+        if (following == digit) {
+          run++;
+        } else {
+          writeRun(writer, run, digit);
+          digit = following;
+          run = 1;
+        }
+      }
+      writeRun(writer, run, digit);
+      return new PackedTermFile(target, writer.finish());
+    }
+  }
+
+  /**
+   * This method takes the digits of this term two at a time and writes out the previous term into
+   * a new file. Leading zeros are dropped, as they would be by a BigInteger.
+   *
+   * @param target the file that receives the previous term, which must not exist yet.
+   * @return the previous term.
+   * @throws IOException           If either file cannot be accessed.
+   * @throws IllegalStateException If this term has an odd number of digits.
+   */
+  public PackedTermFile previous(Path target) throws IOException {
+    if (!hasPrevious()) {
+      throw new IllegalStateException("term has an odd number of digits");
+    }
+    try (Reader reader = new Reader(this); Writer writer = new Writer(target)) {
+      boolean started = false;
+      while (reader.hasNext()) {
+        int count = reader.next();
+        int digit = reader.next();
+        if (!started && digit == 0) {
+          continue;
+        }
+        for (int i = 0; i < count; i++) {
+          writer.write(digit);
+          started = true;
+        }
+      }
+      if (!started) {
+        writer.write(0);
+      }
+      return new PackedTermFile(target, writer.finish());
+    }
+  }
+
+  /**
+   * This method converts this term into a BigInteger. It is only meant for terms small enough to
+   * fit comfortably on the heap.
+   *
+   * @return the number held in the file.
+   * @throws IOException           If the file cannot be read.
+   * @throws IllegalStateException If the term is too long for a String.
+   */
+  public BigInteger toBigInteger() throws IOException {
+    if (length > DigitBuffer.MAX_CAPACITY) {
+      throw new IllegalStateException("term too large for an in-memory buffer");
+    }
+    char[] characters = new char[(int) length];
+    try (Reader reader = new Reader(this)) {
+      for (int i = 0; i < characters.length; i++) {
+        characters[i] = (char) ('0' + reader.next());
+      }
+    }
+    return new BigInteger(new String(characters));
+  }
+
+  /**
+   * This method writes the digits of this term as decimal text into a channel, unpacking them a
+   * chunk at a time.
+   *
+   * @param channel the channel to write into.
+   * @return the number of bytes written.
+   * @throws IOException If the file cannot be read or the channel cannot be written.
+   */
+  public long writeDigits(WritableByteChannel channel) throws IOException {
+    return TermExport.packed(this, channel);
+  }
+
+  /**
+   * This method copies the file of this term as it is into a channel, header and packed digits,
+   * with FileChannel.transferTo, so that the operating system can move the bytes without them
+   * going through the heap. The copy can be opened with {@link #open(Path)} once written to a file.
+   *
+   * @param channel the channel to write into.
+   * @return the number of bytes written.
+   * @throws IOException If the file cannot be read or the channel cannot be written.
+   */
+  public long transferTo(WritableByteChannel channel) throws IOException {
+    return TermExport.transfer(this, channel);
+  }
+
+  /**
+   * This method compares this term with a number held in a digit buffer, looking at the number of
+   * digits first and at the digits themselves only when both have the same length.
+   *
+   * @param other the number to compare with.
+   * @return a negative number, zero or a positive number as this term is less than, equal to or
+   *         greater than the other number.
+   * @throws IOException If the file cannot be read.
+   */
+  int compareTo(DigitBuffer other) throws IOException {
+    if (length != other.length) {
+      return length < other.length ? -1 : 1;
+    }
+    try (Reader reader = new Reader(this)) {
+      for (int i = 0; i < other.length; i++) {
+        int digit = reader.next();
+        if (digit != other.digits[i]) {
+          return digit < other.digits[i] ? -1 : 1;
+        }
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * This method writes the decimal representation of a run length followed by the digit of the
+   * run.
+   *
+   * @param writer the writer to write into.
+   * @param run    the length of the run.
+   * @param digit  the digit of the run.
+   * @throws IOException If the file cannot be written.
+   */
+  private static void writeRun(Writer writer, long run, int digit) throws IOException {
+    if (run < 10) {
+      writer.write((int) run);
+    } else {
+      String count = Long.toString(run);
+      for (int i = 0; i < count.length(); i++) {
+        writer.write(count.charAt(i) - '0');
+      }
+    }
+    writer.write(digit);
+  }
+
+  /**
+   * Reads the digits of a packed term from first to last through read-only mapped windows.
+   */
+  static final class Reader implements Closeable {
+
+    private final FileChannel channel;
+    private final long length;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    /**
+     * This constructor opens a packed term for reading.
+     *
+     * @param term the term to read.
+     * @throws IOException If the file cannot be opened.
+     */
+    Reader(PackedTermFile term) throws IOException {
+      this.channel = FileChannel.open(term.path, StandardOpenOption.READ);
+      this.length = term.length;
+      this.windowStart = -WINDOW;
+      this.position = 0;
+    }
+
+    /**
+     * This method tells whether there are digits left to read.
+     *
+     * @return true if another digit can be read.
+     */
+    boolean hasNext() {
+      return position < length;
+    }
+
+    /**
+     * This method passes over digits without reading them.
+     *
+     * @param count the number of digits to pass over.
+     */
+    void skip(long count) {
+      position += count;
+      windowStart = -WINDOW;
+    }
+
+    /**
+     * This method yields the next digit of the term.
+     *
+     * @return the next digit.
+     * @throws IOException If the next window cannot be mapped.
+     */
+    int next() throws IOException {
+      long offset = position >> 1;
+      if (offset - windowStart >= WINDOW) {
+        windowStart = offset;
+        long size = Math.min(WINDOW, (length + 1) / 2 - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + offset, size);
+      }
+      int packed = window.get((int) (offset - windowStart));
+      int digit = (position & 1) == 0 ? packed >> 4 & 0xF : packed & 0xF;
+      position++;
+      return digit;
+    }
+
+    /**
+     * This method releases the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  /**
+   * Writes digits into a new packed term through a direct buffer, filling in the header with the
+   * final digit count when the term is finished.
+   */
+  static final class Writer implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long count;
+    private int pending;
+
+    /**
+     * This constructor creates the file to write into. An existing file is never overwritten,
+     * since it may belong to another writer.
+     *
+     * @param path the file to write, which must not exist yet.
+     * @throws IOException If the file cannot be created or already exists.
+     */
+    Writer(Path path) throws IOException {
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+              StandardOpenOption.WRITE);
+      this.buffer = ByteBuffer.allocateDirect(1 << 20);
+      this.channel.position(HEADER);
+      this.count = 0;
+    }
+
+    /**
+     * This method appends one digit.
+     *
+     * @param digit the digit to append, from 0 to 9.
+     * @throws IOException If the file cannot be written.
+     */
+    void write(int digit) throws IOException {
+      if ((count & 1) == 0) {
+        pending = digit << 4;
+      } else {
+        if (!buffer.hasRemaining()) {
+          flush();
+        }
+        buffer.put((byte) (pending | digit));
+      }
+      count++;
+    }
+
+    /**
+     * This method writes out everything buffered and records the digit count in the header.
+     *
+     * @return the number of digits written.
+     * @throws IOException If the file cannot be written.
+     */
+    long finish() throws IOException {
+      if ((count & 1) != 0) {
+        if (!buffer.hasRemaining()) {
+          flush();
+        }
+        buffer.put((byte) pending);
+      }
+      flush();
+      ByteBuffer header = ByteBuffer.allocate(HEADER).putLong(0, count);
+      while (header.hasRemaining()) {
+        channel.write(header, header.position());
+      }
+      return count;
+    }
+
+    /**
+     * This method writes the buffered bytes to the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    /**
+     * This method releases the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
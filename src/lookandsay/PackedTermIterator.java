@@ -0,0 +1,193 @@
+package lookandsay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+
+/**
+ * A RIterator over a look-and-say sequence whose terms live in files of a working directory
+ * instead of on the heap, so that terms of hundreds of millions of digits can be generated. Every
+ * step streams the current term into a new file. A term returned by next() or prev() stays readable
+ * until the following call, after which its file is deleted. The files of an iterator go into a
+ * subdirectory of the working directory that belongs to it alone, so that several iterators can
+ * share a working directory. Closing the iterator deletes the files it still holds and its
+ * subdirectory.
+ */
+public class PackedTermIterator implements RIterator<PackedTermFile>, Closeable {
+
+  private final Path directory;
+  private final DigitBuffer end;
+  private PackedTermFile current;
+  private PackedTermFile returned;
+  private long serial;
+
+  /**
+   * This constructor takes a working directory, a starting seed and an end value. The iterator
+   * stops moving forward once a number greater than or equal to end is reached.
+   *
+   * @param directory the existing directory in which the subdirectory of the term files is
+   *                  created.
+   * @param seed      the number at which the sequence begins.
+   * @param end       the end value.
+   * @throws IllegalArgumentException If an argument is null, the seed is negative or greater than
+   *                                  the end, or the seed is 22.
+   * @throws UncheckedIOException     If the subdirectory or the seed cannot be created.
+   */
+  public PackedTermIterator(Path directory, BigInteger seed, BigInteger end)
+          throws IllegalArgumentException {
+    if (directory == null || seed == null || end == null) {
+      throw new IllegalArgumentException("directory, seed or end cannot be null");
+    }
+    if (seed.signum() < 0 || seed.compareTo(end) > 0) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    if (seed.equals(BigInteger.valueOf(22))) {
+      throw new IllegalArgumentException("22 case.");
+    }
+    this.end = DigitBuffer.valueOf(end);
+    try {
+      this.directory = Files.createTempDirectory(directory, "terms-");
+      this.current = PackedTermFile.write(nextPath(), seed);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * This constructor takes a working directory and a starting seed. The sequence has no end
+   * value, so the iterator keeps moving forward until the disk is full.
+   *
+   * @param directory the existing directory in which the subdirectory of the term files is
+   *                  created.
+   * @param seed      the number at which the sequence begins.
+   * @throws IllegalArgumentException If an argument is null, the seed is negative or the seed is
+   *                                  22.
+   * @throws UncheckedIOException     If the subdirectory or the seed cannot be created.
+   */
+  public PackedTermIterator(Path directory, BigInteger seed) throws IllegalArgumentException {
+    if (directory == null || seed == null) {
+      throw new IllegalArgumentException("directory or seed cannot be null");
+    }
+    if (seed.signum() < 0) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    if (seed.equals(BigInteger.valueOf(22))) {
+      throw new IllegalArgumentException("22 case.");
+    }
+    this.end = null;
+    try {
+      this.directory = Files.createTempDirectory(directory, "terms-");
+      this.current = PackedTermFile.write(nextPath(), seed);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns {@code true} if the current term is less than the end value.
+   *
+   * @return {@code true} if next() would move forward.
+   * @throws UncheckedIOException If the current term cannot be read.
+   */
+  @Override
+  public boolean hasNext() {
+    try {
+      return end == null || current.compareTo(end) < 0;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the current term and moves forward to the next one. Once the end value has been
+   * reached the current term is returned without moving.
+   *
+   * @return the current term.
+   * @throws UncheckedIOException If a term file cannot be accessed.
+   */
+  @Override
+  public PackedTermFile next() throws NoSuchElementException {
+    if (!hasNext()) {
+      return current;
+    }
+    try {
+      return advance(current.next(nextPath()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns {@code true} if the current term has an even number of digits.
+   *
+   * @return {@code true} if prev() would move back.
+   */
+  @Override
+  public boolean hasPrevious() {
+    return current.hasPrevious();
+  }
+
+  /**
+   * Returns the current term and moves back to the previous one. When the current term cannot be
+   * read in pairs it is returned without moving.
+   *
+   * @return the current term.
+   * @throws UncheckedIOException If a term file cannot be accessed.
+   */
+  @Override
+  public PackedTermFile prev() {
+    if (!hasPrevious()) {
+      return current;
+    }
+    try {
+      return advance(current.previous(nextPath()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Deletes the term files this iterator still holds and their subdirectory.
+   *
+   * @throws IOException If a file cannot be deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    if (returned != null) {
+      Files.deleteIfExists(returned.path());
+      returned = null;
+    }
+    Files.deleteIfExists(current.path());
+    Files.deleteIfExists(directory);
+  }
+
+  /**
+   * This method makes a freshly written term current and deletes the term returned by the call
+   * before this one.
+   *
+   * @param following the term that becomes current.
+   * @return the term that was current.
+   * @throws IOException If the old file cannot be deleted.
+   */
+  private PackedTermFile advance(PackedTermFile following) throws IOException {
+    if (returned != null) {
+      Files.deleteIfExists(returned.path());
+    }
+    returned = current;
+    current = following;
+    return returned;
+  }
+
+  /**
+   * This method yields the name of the next term file.
+   *
+   * @return a path inside the subdirectory of this iterator that has not been used yet.
+   */
+  private Path nextPath() {
+    return directory.resolve("term-" + serial++ + ".lsd");
+  }
+}
@@ -0,0 +1,199 @@
+package lookandsay;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Reads a term out loud on a fork/join pool. The term is cut into chunks, one chunk boundary is
+ * moved forward until it no longer falls inside a run, and every chunk is then encoded on its own.
+ * A first parallel pass counts the digits each chunk produces, a prefix sum of those counts gives
+ * every chunk its place in the output, and a second parallel pass writes the chunks straight into
+ * the destination buffer. The result is identical to the sequential kernel. Going back decodes
+ * the same way: the pairs are cut into chunks at even positions, the counts of every chunk are
+ * added up in parallel, a prefix sum places the chunks, and the chunks are expanded in parallel.
+ */
+final class ParallelEncoder {
+
+  /**
+   * Terms shorter than this are encoded sequentially, because splitting them costs more than it
+   * saves.
+   */
+  static final int THRESHOLD = 1 << 16;
+
+  /**
+   * The smallest chunk handed to a worker.
+   */
+  private static final int MIN_CHUNK = 1 << 14;
+
+  /**
+   * This class only holds static helpers.
+   */
+  private ParallelEncoder() {
+  }
+
+  /**
+   * Reads the digits of the source buffer out loud into the destination buffer.
+   *
+   * @param source      the current term.
+   * @param destination the buffer that receives the next term.
+   * @param pool        the pool that runs the chunks.
+   */
+  static void encode(DigitBuffer source, DigitBuffer destination, ForkJoinPool pool) {
+    if (source.length < THRESHOLD) {
+      DigitKernel.encode(source, destination);
+      return;
+    }
+    byte[] in = source.digits;
+    int[] bounds = chunkBounds(source, pool.getParallelism());
+    int chunks = bounds.length - 1;
+
+    long[] offsets = new long[chunks + 1];
+    forEachChunk(pool, chunks, chunk ->
+            offsets[chunk + 1] = DigitKernel.encodedLength(in, bounds[chunk], bounds[chunk + 1]));
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      offsets[chunk + 1] += offsets[chunk];
+    }
+
+    destination.ensureCapacity(offsets[chunks]);
+    byte[] out = destination.digits;
+    forEachChunk(pool, chunks, chunk -> DigitKernel.encodeRange(in, bounds[chunk],
+            bounds[chunk + 1], out, (int) offsets[chunk]));
+    destination.length = (int) offsets[chunks];
+  }
+
+  /**
+   * Takes the digits of the source buffer two at a time and writes out the previous term into the
+   * destination buffer, dropping its leading zeros as the sequential kernel does.
+   *
+   * @param source      the current term, which must have an even number of digits.
+   * @param destination the buffer that receives the previous term.
+   * @param pool        the pool that runs the chunks.
+   */
+  static void decode(DigitBuffer source, DigitBuffer destination, ForkJoinPool pool) {
+    if (source.length < THRESHOLD) {
+      DigitKernel.decode(source, destination);
+      return;
+    }
+    byte[] in = source.digits;
+    int size = Math.max(MIN_CHUNK, source.length / (4 * pool.getParallelism()) + 1) & ~1;
+    int chunks = (source.length + size - 1) / size;
+
+    long[] offsets = new long[chunks + 1];
+    forEachChunk(pool, chunks, chunk -> offsets[chunk + 1] = SwarKernel.decodedLength(in,
+            chunk * size, (int) Math.min(source.length, (chunk + 1L) * size)));
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      offsets[chunk + 1] += offsets[chunk];
+    }
+
+    destination.ensureCapacity(offsets[chunks] + SwarKernel.DECODE_SLACK);
+    byte[] out = destination.digits;
+    forEachChunk(pool, chunks, chunk -> decodeChunk(in, chunk * size,
+            (int) Math.min(source.length, (chunk + 1L) * size), out, (int) offsets[chunk]));
+    destination.length = (int) offsets[chunks];
+    DigitKernel.stripLeadingZeros(destination);
+  }
+
+  /**
+   * Expands the pairs of one chunk. The word-at-a-time kernel may write up to
+   * {@link SwarKernel#DECODE_SLACK} bytes past the last digit it decodes, which would land on the
+   * digits of the next chunk while another worker writes them. The last pairs of the chunk are
+   * therefore written one digit at a time after it, as many as it takes to decode to at least that
+   * many digits; pairs with a count of zero write nothing and do not count.
+   *
+   * @param in     the pairs of the term.
+   * @param from   the first digit of the chunk, at an even position.
+   * @param to     the end of the chunk, exclusive.
+   * @param out    the array to write into.
+   * @param offset the position of the first digit to write.
+   */
+  private static void decodeChunk(byte[] in, int from, int to, byte[] out, int offset) {
+    int tail = to;
+    int tailDigits = 0;
+    while (tail > from && tailDigits < SwarKernel.DECODE_SLACK) {
+      tail -= 2;
+      tailDigits += in[tail];
+    }
+    int written = SwarKernel.decodeRange(in, from, tail, out, offset);
+    for (int i = tail; i < to; i += 2) {
+      byte digit = in[i + 1];
+      for (int j = 0; j < in[i]; j++) {
+        out[written++] = digit;
+      }
+    }
+  }
+
+  /**
+   * Cuts a term into chunks of roughly equal size whose boundaries never fall inside a run.
+   *
+   * @param term        the term to cut.
+   * @param parallelism the number of workers of the pool.
+   * @return the start of every chunk, in increasing order, followed by the length of the term.
+   */
+  private static int[] chunkBounds(DigitBuffer term, int parallelism) {
+    int size = Math.max(MIN_CHUNK, term.length / (4 * parallelism) + 1);
+    int[] bounds = new int[term.length / size + 2];
+    int count = 0;
+    bounds[count++] = 0;
+    int next = size;
+    while (next < term.length) {
+      while (next < term.length && term.digits[next] == term.digits[next - 1]) {
+        next++;
+      }
+      if (next < term.length) {
+        bounds[count++] = next;
+      }
+      next += size;
+    }
+    bounds[count++] = term.length;
+    return Arrays.copyOf(bounds, count);
+  }
+
+  /**
+   * Runs an action for every chunk index on the pool and waits for all of them.
+   *
+   * @param pool   the pool to run on.
+   * @param chunks the number of chunks.
+   * @param action the action to run for each chunk index.
+   */
+  static void forEachChunk(ForkJoinPool pool, int chunks, IntConsumer action) {
+    pool.invoke(new ChunkTask(action, 0, chunks));
+  }
+
+  /**
+   * Splits a range of chunk indices in halves until single chunks are left and runs the action on
+   * each of them.
+   */
+  private static final class ChunkTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final IntConsumer action;
+    private final int from;
+    private final int to;
+
+    /**
+     * This constructor takes the action and the range of chunk indices it is applied to.
+     *
+     * @param action the action to run for each chunk index.
+     * @param from   the first chunk index.
+     * @param to     the end of the range, exclusive.
+     */
+    ChunkTask(IntConsumer action, int from, int to) {
+      this.action = action;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        action.accept(from);
+      } else if (to > from) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new ChunkTask(action, from, middle), new ChunkTask(action, middle, to));
+      }
+    }
+  }
+}
@@ -0,0 +1,330 @@
+package lookandsay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A worker process of a {@link PartitionedTerm}. It keeps one slice of the digits of a term in a
+ * packed file of its own and carries out the commands the coordinator sends over a local socket:
+ * reading its slice out loud into the slice of the next term, and handing out or taking in digits
+ * when the slices are rebalanced. After every change of its slice it reports the length of the
+ * slice and the run it starts with, from which the coordinator joins the runs that cross slice
+ * boundaries. It is started by the coordinator and not meant to be run by hand.
+ */
+public final class PartitionWorker {
+
+  /**
+   * Reads the slice out loud, given the digits to pass over and the count to add to the last run.
+   */
+  static final byte STEP = 1;
+
+  /**
+   * Starts writing a new slice next to the current one.
+   */
+  static final byte BEGIN = 2;
+
+  /**
+   * Appends the digits that follow the command to the new slice.
+   */
+  static final byte APPEND = 3;
+
+  /**
+   * Appends digits of the current slice to the new slice.
+   */
+  static final byte COPY = 4;
+
+  /**
+   * Replaces the current slice with the new one.
+   */
+  static final byte COMMIT = 5;
+
+  /**
+   * Sends digits of the current slice to the coordinator.
+   */
+  static final byte EXTRACT = 6;
+
+  /**
+   * Deletes the slice and ends the worker.
+   */
+  static final byte QUIT = 7;
+
+  /**
+   * The number of digits sent over the socket at once.
+   */
+  static final int CHUNK = 1 << 16;
+
+  private final Path slice;
+  private final Path next;
+  private final byte[] buffer;
+  private long length;
+  private Output output;
+
+  /**
+   * This constructor sets up a worker with an empty slice.
+   *
+   * @param directory the directory that receives the files of the slice.
+   */
+  private PartitionWorker(Path directory) {
+    this.slice = directory.resolve("slice");
+    this.next = directory.resolve("next");
+    this.buffer = new byte[CHUNK];
+    this.length = 0;
+  }
+
+  /**
+   * This method connects to the coordinator and serves it until it is told to quit.
+   *
+   * @param args the socket of the coordinator, the directory of the slice and the number of the
+   *             worker.
+   * @throws IOException If the socket or the files of the slice cannot be accessed.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 3) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(args[0]))) {
+      DataInputStream in = new DataInputStream(
+              new BufferedInputStream(Channels.newInputStream(channel), CHUNK));
+      DataOutputStream out = new DataOutputStream(
+              new BufferedOutputStream(Channels.newOutputStream(channel), CHUNK));
+      out.writeInt(Integer.parseInt(args[2]));
+      out.flush();
+      new PartitionWorker(Path.of(args[1])).serve(in, out);
+    }
+  }
+
+  /**
+   * This method carries out commands until the coordinator sends QUIT.
+   *
+   * @param in  the commands of the coordinator.
+   * @param out the answers to the coordinator.
+   * @throws IOException If the socket or the files of the slice cannot be accessed.
+   */
+  private void serve(DataInputStream in, DataOutputStream out) throws IOException {
+    while (true) {
+      byte command = in.readByte();
+      switch (command) {
+        case STEP:
+          step(in.readLong(), in.readLong());
+          commit(out);
+          break;
+        case BEGIN:
+          output = new Output(next);
+          break;
+        case APPEND:
+          int size = in.readInt();
+          in.readFully(buffer, 0, size);
+          for (int i = 0; i < size; i++) {
+            output.digit(buffer[i]);
+          }
+          break;
+        case COPY:
+          copy(in.readLong(), in.readLong());
+          break;
+        case COMMIT:
+          commit(out);
+          break;
+        case EXTRACT:
+          extract(in.readLong(), in.readLong(), out);
+          break;
+        case QUIT:
+          Files.deleteIfExists(slice);
+          Files.deleteIfExists(next);
+          return;
+        default:
+          throw new IOException("unknown command " + command);
+      }
+    }
+  }
+
+  /**
+   * This method reads the slice out loud into a new slice. The coordinator tells which leading
+   * digits belong to a run started in an earlier slice, and how many digits of later slices
+   * continue the last run of this one.
+   *
+   * @param skip  the number of leading digits to pass over.
+   * @param carry the number to add to the count of the last run.
+   * @throws IOException If the files of the slice cannot be accessed.
+   */
+  private void step(long skip, long carry) throws IOException {
+    output = new Output(next);
+    try (PackedTermFile.Reader reader = new PackedTermFile.Reader(current())) {
+      reader.skip(skip);
+      if (reader.hasNext()) {
+        int digit = reader.next();
+        long run = 1;
+        while (reader.hasNext()) {
+          int following = reader.next();
+          if (following == digit) {
+            run++;
+          } else {
+            output.run(run, digit);
+            digit = following;
+            run = 1;
+          }
+        }
+        output.run(run + carry, digit);
+      }
+    }
+  }
+
+  /**
+   * This method appends digits of the current slice to the new slice.
+   *
+   * @param from  the position of the first digit in the slice.
+   * @param count the number of digits.
+   * @throws IOException If the files of the slice cannot be accessed.
+   */
+  private void copy(long from, long count) throws IOException {
+    try (PackedTermFile.Reader reader = new PackedTermFile.Reader(current())) {
+      reader.skip(from);
+      for (long i = 0; i < count; i++) {
+        output.digit(reader.next());
+      }
+    }
+  }
+
+  /**
+   * This method sends digits of the current slice to the coordinator, one byte per digit.
+   *
+   * @param from  the position of the first digit in the slice.
+   * @param count the number of digits.
+   * @param out   the answers to the coordinator.
+   * @throws IOException If the socket or the files of the slice cannot be accessed.
+   */
+  private void extract(long from, long count, DataOutputStream out) throws IOException {
+    try (PackedTermFile.Reader reader = new PackedTermFile.Reader(current())) {
+      reader.skip(from);
+      for (long done = 0; done < count; ) {
+        int size = (int) Math.min(CHUNK, count - done);
+        for (int i = 0; i < size; i++) {
+          buffer[i] = (byte) reader.next();
+        }
+        out.write(buffer, 0, size);
+        done += size;
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * This method finishes the new slice, puts it in place of the current one and reports the length
+   * of the slice and its leading run.
+   *
+   * @param out the answers to the coordinator.
+   * @throws IOException If the socket or the files of the slice cannot be accessed.
+   */
+  private void commit(DataOutputStream out) throws IOException {
+    try (Output written = output) {
+      output = null;
+      length = written.finish();
+      Files.move(next, slice, StandardCopyOption.REPLACE_EXISTING);
+      out.writeLong(length);
+      out.writeByte(written.first);
+      out.writeLong(written.leading);
+      out.writeByte(written.last);
+      out.flush();
+    }
+  }
+
+  /**
+   * This method yields the current slice.
+   *
+   * @return the slice, which may have no digits.
+   */
+  private PackedTermFile current() {
+    return new PackedTermFile(slice, length);
+  }
+
+  /**
+   * Writes a new slice and keeps track of its leading run and last digit as it goes, so that they
+   * need not be read back.
+   */
+  private static final class Output implements Closeable {
+
+    private final PackedTermFile.Writer writer;
+    private long length;
+    private int first;
+    private long leading;
+    private int last;
+
+    /**
+     * This constructor creates the file of the new slice, in place of any left by a step that
+     * failed.
+     *
+     * @param path the file to write.
+     * @throws IOException If the file cannot be created.
+     */
+    Output(Path path) throws IOException {
+      Files.deleteIfExists(path);
+      this.writer = new PackedTermFile.Writer(path);
+    }
+
+    /**
+     * This method appends one digit.
+     *
+     * @param digit the digit, from 0 to 9.
+     * @throws IOException If the file cannot be written.
+     */
+    void digit(int digit) throws IOException {
+      writer.write(digit);
+      if (length == 0) {
+        first = digit;
+      }
+      if (leading == length && digit == first) {
+        leading++;
+      }
+      last = digit;
+      length++;
+    }
+
+    /**
+     * This method appends the decimal count of a run followed by its digit.
+     *
+     * @param run   the length of the run.
+     * @param digit the digit of the run.
+     * @throws IOException If the file cannot be written.
+     */
+    void run(long run, int digit) throws IOException {
+      if (run < 10) {
+        digit((int) run);
+      } else {
+        String count = Long.toString(run);
+        for (int i = 0; i < count.length(); i++) {
+          digit(count.charAt(i) - '0');
+        }
+      }
+      digit(digit);
+    }
+
+    /**
+     * This method writes out everything buffered.
+     *
+     * @return the number of digits written.
+     * @throws IOException If the file cannot be written.
+     */
+    long finish() throws IOException {
+      return writer.finish();
+    }
+
+    /**
+     * This method releases the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+  }
+}
@@ -0,0 +1,487 @@
+package lookandsay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A term of a look-and-say sequence split into consecutive slices, each held by a
+ * {@link PartitionWorker} process in a packed file of its own, so that the work and the disk of a
+ * step are shared by several processes. This object is the coordinator: it talks to the workers
+ * over local sockets and never holds the digits of the term itself.
+ *
+ * <p>A step has every worker read its slice out loud at the same time. A run of equal digits may
+ * cross the boundary between slices; before the step, the coordinator compares the digits at the
+ * ends of neighbouring slices and tells the slice where such a run starts to count the digits of
+ * the following slices as well, and those slices to pass over them. The slices written make up the
+ * next term, which thus stays split without being gathered anywhere. As the slices do not grow at
+ * exactly the same pace, they are rebalanced when one of them outgrows its share: only the digits
+ * that change hands pass through the coordinator.
+ *
+ * <p>The workers run on the same machine, started with the Java runtime and class path of the
+ * calling process. Closing the term stops them and deletes their files.
+ */
+public final class PartitionedTerm implements Closeable {
+
+  /**
+   * The part of its share by which a slice may grow before the slices are rebalanced.
+   */
+  private static final int BALANCE = 4;
+
+  /**
+   * The milliseconds the workers are given to start and connect.
+   */
+  private static final long STARTUP = 60_000;
+
+  private final int workers;
+  private final Process[] processes;
+  private final SocketChannel[] channels;
+  private final DataInputStream[] in;
+  private final DataOutputStream[] out;
+  private final long[] lengths;
+  private final int[] first;
+  private final long[] leading;
+  private final int[] last;
+  private boolean closed;
+
+  /**
+   * This constructor sets up a coordinator without workers.
+   *
+   * @param workers the number of workers.
+   */
+  private PartitionedTerm(int workers) {
+    this.workers = workers;
+    this.processes = new Process[workers];
+    this.channels = new SocketChannel[workers];
+    this.in = new DataInputStream[workers];
+    this.out = new DataOutputStream[workers];
+    this.lengths = new long[workers];
+    this.first = new int[workers];
+    this.leading = new long[workers];
+    this.last = new int[workers];
+  }
+
+  /**
+   * This method starts the workers and hands each of them an equal slice of the seed.
+   *
+   * @param directory the existing directory that receives the socket and the files of the workers.
+   * @param workers   the number of worker processes.
+   * @param seed      the number at which the sequence begins.
+   * @return the seed, split among the workers.
+   * @throws IOException              If a worker cannot be started or reached.
+   * @throws IllegalArgumentException If the directory or seed is null, the seed is negative or the
+   *                                  number of workers is not positive.
+   */
+  public static PartitionedTerm launch(Path directory, int workers, BigInteger seed)
+          throws IOException {
+    if (directory == null || seed == null) {
+      throw new IllegalArgumentException("directory or seed cannot be null");
+    }
+    if (workers < 1) {
+      throw new IllegalArgumentException("workers must be positive");
+    }
+    if (seed.signum() < 0) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    PartitionedTerm term = new PartitionedTerm(workers);
+    try {
+      term.connect(directory);
+      term.load(seed.toString());
+    } catch (IOException | RuntimeException e) {
+      term.close();
+      throw e;
+    }
+    return term;
+  }
+
+  /**
+   * This method yields the number of digits of this term.
+   *
+   * @return the number of digits.
+   */
+  public long length() {
+    long length = 0;
+    for (long slice : lengths) {
+      length += slice;
+    }
+    return length;
+  }
+
+  /**
+   * This method yields the number of digits held by every worker.
+   *
+   * @return the lengths of the slices, in the order of the digits.
+   */
+  public long[] sliceLengths() {
+    return lengths.clone();
+  }
+
+  /**
+   * This method replaces this term with the next one, every worker reading its slice out loud at
+   * the same time.
+   *
+   * @throws IOException           If a worker fails.
+   * @throws IllegalStateException If the term is closed.
+   */
+  public void next() throws IOException {
+    ensureOpen();
+    long[] skip = new long[workers];
+    long[] carry = new long[workers];
+    int owner = -1;
+    int digit = -1;
+    for (int i = 0; i < workers; i++) {
+      if (lengths[i] == 0) {
+        continue;
+      }
+      if (owner >= 0 && first[i] == digit) {
+        skip[i] = leading[i];
+        carry[owner] += leading[i];
+        if (leading[i] == lengths[i]) {
+          continue;
+        }
+      }
+      owner = i;
+      digit = last[i];
+    }
+    for (int i = 0; i < workers; i++) {
+      out[i].writeByte(PartitionWorker.STEP);
+      out[i].writeLong(skip[i]);
+      out[i].writeLong(carry[i]);
+      out[i].flush();
+    }
+    for (int i = 0; i < workers; i++) {
+      readSlice(i);
+    }
+    long share = length() / workers;
+    for (long slice : lengths) {
+      if (slice > share + share / BALANCE + 1) {
+        rebalance();
+        break;
+      }
+    }
+  }
+
+  /**
+   * This method yields one digit of this term.
+   *
+   * @param index the position of the digit, counting from the most significant digit at 0.
+   * @return the digit at the given position.
+   * @throws IOException               If the worker holding the digit fails.
+   * @throws IndexOutOfBoundsException If the index is outside the term.
+   * @throws IllegalStateException     If the term is closed.
+   */
+  public int digitAt(long index) throws IOException {
+    ensureOpen();
+    if (index < 0) {
+      throw new IndexOutOfBoundsException("no digit at " + index);
+    }
+    long offset = index;
+    for (int i = 0; i < workers; i++) {
+      if (offset < lengths[i]) {
+        extract(i, offset, 1);
+        return in[i].readByte();
+      }
+      offset -= lengths[i];
+    }
+    throw new IndexOutOfBoundsException("no digit at " + index);
+  }
+
+  /**
+   * This method writes the digits of this term as decimal text into a channel, fetching them from
+   * one worker after the other a chunk at a time.
+   *
+   * @param channel the channel to write into.
+   * @return the number of bytes written.
+   * @throws IOException           If a worker fails or the channel cannot be written.
+   * @throws IllegalStateException If the term is closed.
+   */
+  public long writeDigits(WritableByteChannel channel) throws IOException {
+    ensureOpen();
+    byte[] digits = new byte[PartitionWorker.CHUNK];
+    ByteBuffer buffer = ByteBuffer.allocateDirect(PartitionWorker.CHUNK);
+    for (int i = 0; i < workers; i++) {
+      extract(i, 0, lengths[i]);
+      for (long done = 0; done < lengths[i]; ) {
+        int size = (int) Math.min(digits.length, lengths[i] - done);
+        in[i].readFully(digits, 0, size);
+        for (int j = 0; j < size; j++) {
+          digits[j] += '0';
+        }
+        buffer.put(digits, 0, size).flip();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        buffer.clear();
+        done += size;
+      }
+    }
+    return length();
+  }
+
+  /**
+   * This method gathers this term into a BigInteger. It is only meant for terms small enough to
+   * fit comfortably on the heap.
+   *
+   * @return the number split among the workers.
+   * @throws IOException           If a worker fails.
+   * @throws IllegalStateException If the term is closed or too long for a String.
+   */
+  public BigInteger toBigInteger() throws IOException {
+    if (length() > DigitBuffer.MAX_CAPACITY) {
+      throw new IllegalStateException("term too large for an in-memory buffer");
+    }
+    ByteArrayOutputStream text = new ByteArrayOutputStream((int) length());
+    writeDigits(Channels.newChannel(text));
+    return new BigInteger(text.toString(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * This method stops the workers, which delete their slices.
+   *
+   * @throws IOException If a worker cannot be told to stop.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    IOException failure = null;
+    for (int i = 0; i < workers; i++) {
+      try {
+        if (out[i] != null) {
+          out[i].writeByte(PartitionWorker.QUIT);
+          out[i].flush();
+        }
+      } catch (IOException ioe) {
+        failure = failure == null ? ioe : failure;
+      }
+    }
+    for (int i = 0; i < workers; i++) {
+      try {
+        if (processes[i] != null && !processes[i].waitFor(10, TimeUnit.SECONDS)) {
+          processes[i].destroyForcibly();
+        }
+      } catch (InterruptedException ie) {
+        processes[i].destroyForcibly();
+        Thread.currentThread().interrupt();
+      }
+      try {
+        if (channels[i] != null) {
+          channels[i].close();
+        }
+      } catch (IOException ioe) {
+        failure = failure == null ? ioe : failure;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * This method starts the worker processes and waits for each of them to connect to a socket in
+   * the directory.
+   *
+   * @param directory the directory that receives the socket and the files of the workers.
+   * @throws IOException If a worker cannot be started or does not connect in time.
+   */
+  private void connect(Path directory) throws IOException {
+    Path socket = directory.resolve("coordinator.sock");
+    Files.deleteIfExists(socket);
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+         Selector selector = Selector.open()) {
+      server.bind(UnixDomainSocketAddress.of(socket));
+      server.configureBlocking(false);
+      server.register(selector, SelectionKey.OP_ACCEPT);
+      for (int i = 0; i < workers; i++) {
+        Path home = Files.createDirectories(directory.resolve("worker-" + i));
+        List<String> command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PartitionWorker.class.getName());
+        command.add(socket.toString());
+        command.add(home.toString());
+        command.add(Integer.toString(i));
+        processes[i] = new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+      }
+      long deadline = System.currentTimeMillis() + STARTUP;
+      int connected = 0;
+      while (connected < workers) {
+        for (int i = 0; i < workers; i++) {
+          if (channels[i] == null && !processes[i].isAlive()) {
+            throw new IOException("worker " + i + " did not start");
+          }
+        }
+        if (System.currentTimeMillis() > deadline) {
+          throw new IOException("workers did not connect in time");
+        }
+        selector.select(100);
+        selector.selectedKeys().clear();
+        for (SocketChannel channel = server.accept(); channel != null; channel = server.accept()) {
+          DataInputStream input = new DataInputStream(
+                  new BufferedInputStream(Channels.newInputStream(channel), PartitionWorker.CHUNK));
+          int index = input.readInt();
+          if (index < 0 || index >= workers || channels[index] != null) {
+            channel.close();
+            throw new IOException("unexpected worker " + index);
+          }
+          channels[index] = channel;
+          in[index] = input;
+          out[index] = new DataOutputStream(new BufferedOutputStream(
+                  Channels.newOutputStream(channel), PartitionWorker.CHUNK));
+          connected++;
+        }
+      }
+    } finally {
+      Files.deleteIfExists(socket);
+    }
+  }
+
+  /**
+   * This method hands every worker an equal slice of the seed.
+   *
+   * @param seed the digits of the seed.
+   * @throws IOException If a worker fails.
+   */
+  private void load(String seed) throws IOException {
+    byte[] digits = new byte[seed.length()];
+    for (int i = 0; i < digits.length; i++) {
+      digits[i] = (byte) (seed.charAt(i) - '0');
+    }
+    for (int i = 0; i < workers; i++) {
+      int from = (int) ((long) digits.length * i / workers);
+      int to = (int) ((long) digits.length * (i + 1) / workers);
+      out[i].writeByte(PartitionWorker.BEGIN);
+      for (int done = from; done < to; done += PartitionWorker.CHUNK) {
+        int size = Math.min(PartitionWorker.CHUNK, to - done);
+        out[i].writeByte(PartitionWorker.APPEND);
+        out[i].writeInt(size);
+        out[i].write(digits, done, size);
+      }
+    }
+    commit();
+  }
+
+  /**
+   * This method gives every worker an equal share of the digits again. Every worker writes its new
+   * slice next to its current one, copying the digits it keeps and receiving the others from its
+   * neighbours through the coordinator; the slices are only replaced once all new ones are
+   * written.
+   *
+   * @throws IOException If a worker fails.
+   */
+  private void rebalance() throws IOException {
+    long length = length();
+    long[] starts = new long[workers + 1];
+    for (int i = 0; i < workers; i++) {
+      starts[i + 1] = starts[i] + lengths[i];
+    }
+    byte[] digits = new byte[PartitionWorker.CHUNK];
+    for (int i = 0; i < workers; i++) {
+      long from = length * i / workers;
+      long to = length * (i + 1) / workers;
+      out[i].writeByte(PartitionWorker.BEGIN);
+      for (int holder = 0; holder < workers; holder++) {
+        long start = Math.max(from, starts[holder]);
+        long end = Math.min(to, starts[holder + 1]);
+        if (start >= end) {
+          continue;
+        }
+        if (holder == i) {
+          out[i].writeByte(PartitionWorker.COPY);
+          out[i].writeLong(start - starts[holder]);
+          out[i].writeLong(end - start);
+          continue;
+        }
+        extract(holder, start - starts[holder], end - start);
+        for (long done = start; done < end; ) {
+          int size = (int) Math.min(digits.length, end - done);
+          in[holder].readFully(digits, 0, size);
+          out[i].writeByte(PartitionWorker.APPEND);
+          out[i].writeInt(size);
+          out[i].write(digits, 0, size);
+          done += size;
+        }
+      }
+    }
+    commit();
+  }
+
+  /**
+   * This method has every worker put its new slice in place, and records what they report.
+   *
+   * @throws IOException If a worker fails.
+   */
+  private void commit() throws IOException {
+    for (int i = 0; i < workers; i++) {
+      out[i].writeByte(PartitionWorker.COMMIT);
+      out[i].flush();
+    }
+    for (int i = 0; i < workers; i++) {
+      readSlice(i);
+    }
+  }
+
+  /**
+   * This method asks a worker for digits of its slice; they are then read from its input.
+   *
+   * @param worker the number of the worker.
+   * @param from   the position of the first digit in the slice.
+   * @param count  the number of digits.
+   * @throws IOException If the worker cannot be reached.
+   */
+  private void extract(int worker, long from, long count) throws IOException {
+    out[worker].writeByte(PartitionWorker.EXTRACT);
+    out[worker].writeLong(from);
+    out[worker].writeLong(count);
+    out[worker].flush();
+  }
+
+  /**
+   * This method records the length, leading run and last digit of the slice a worker has just
+   * written.
+   *
+   * @param worker the number of the worker.
+   * @throws IOException If the worker failed.
+   */
+  private void readSlice(int worker) throws IOException {
+    lengths[worker] = in[worker].readLong();
+    first[worker] = in[worker].readByte();
+    leading[worker] = in[worker].readLong();
+    last[worker] = in[worker].readByte();
+  }
+
+  /**
+   * This method checks that the workers are still running.
+   *
+   * @throws IllegalStateException If the term is closed.
+   */
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException("term is closed");
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package lookandsay;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+
+/**
+ * An RIterator that moves a copy of a term iterator forward on an executor ahead of its caller,
+ * so that the next terms are being computed while the caller works on the current one. Every
+ * term computed ahead is kept as a copy of the iterator standing on it, the first of them being
+ * the term the caller stands on; up to a given number of terms are kept ready, and next() only
+ * waits when the caller has caught up with the background task. The background task never moves
+ * the iterator the caller stands on, so going back is a step back from a copy standing on the
+ * caller's term. Asking whether that is possible does not disturb the background task, and taking
+ * it keeps the terms computed ahead as long as they still follow the term reached: reading out loud
+ * the term prev() leads to does not always give back the term it left, and when it does not, the
+ * terms ahead are given up and computed again from there.
+ *
+ * <p>The wrapped iterator belongs to this one from then on and must not be used directly; the
+ * history it keeps serves the terms computed ahead, while the copies keep none. Like the
+ * iterators, a prefetching iterator belongs to one thread; only the background task runs on
+ * another.
+ *
+ * @param <T> the type of the terms.
+ */
+public final class PrefetchingIterator<T> implements RIterator<T> {
+
+  private final int depth;
+  private final Executor executor;
+
+  /**
+   * Copies of the iterator standing on the caller's term and on the terms after it that are
+   * ready, in order. While the background task runs, only it touches the worker, which stands on
+   * the term after the last one ready.
+   */
+  private final ArrayDeque<AbstractTermIterator<T>> ahead;
+  private AbstractTermIterator<T> worker;
+  private boolean running;
+  private boolean stopping;
+  private boolean exhausted;
+  private RuntimeException failure;
+
+  /**
+   * This constructor wraps an iterator.
+   *
+   * @param source   the iterator to move forward ahead of the caller, a LookAndSayIterator or a
+   *                 DigitSequenceIterator.
+   * @param depth    the number of terms kept ready.
+   * @param executor the executor that runs the background task.
+   * @throws IllegalArgumentException If the source or executor is null, the source is not a term
+   *                                  iterator or depth is not positive.
+   */
+  public PrefetchingIterator(RIterator<T> source, int depth, Executor executor)
+          throws IllegalArgumentException {
+    if (source == null || executor == null) {
+      throw new IllegalArgumentException("source or executor cannot be null");
+    }
+    if (!(source instanceof AbstractTermIterator)) {
+      throw new IllegalArgumentException("source must be a term iterator");
+    }
+    if (depth < 1) {
+      throw new IllegalArgumentException("depth must be positive");
+    }
+    this.worker = (AbstractTermIterator<T>) source;
+    this.depth = depth;
+    this.executor = executor;
+    this.ahead = new ArrayDeque<AbstractTermIterator<T>>(depth);
+  }
+
+  /**
+   * This method starts computing terms in the background, if that is not already under way. The
+   * wait for the first term only starts when it is asked for.
+   *
+   * @return this iterator.
+   */
+  public synchronized PrefetchingIterator<T> start() {
+    fill();
+    return this;
+  }
+
+  /**
+   * Returns {@code true} if the iteration has more elements, waiting for the background task to
+   * compute the next term if it has not yet.
+   *
+   * @return {@code true} if the iteration has more elements
+   */
+  @Override
+  public synchronized boolean hasNext() {
+    fill();
+    return here().hasNext();
+  }
+
+  /**
+   * Returns the next element in the iteration, and has the background task compute one more.
+   *
+   * @return the next element in the iteration
+   * @throws NoSuchElementException when seed exceeds end value.
+   */
+  @Override
+  public synchronized T next() throws NoSuchElementException {
+    fill();
+    AbstractTermIterator<T> here = here();
+    if (ahead.isEmpty() || !here.hasNext()) {
+      return here.next();
+    }
+    ahead.poll();
+    fill();
+    return here.currentTerm();
+  }
+
+  /**
+   * should yield true if it is possible to go back one step, false otherwise. The background task
+   * carries on.
+   *
+   * @return true if it is possible to go back one step, false otherwise.
+   */
+  @Override
+  public synchronized boolean hasPrevious() {
+    return here().hasPrevious();
+  }
+
+  /**
+   * This method returns the current number in the sequence and reverts to the previous number in
+   * the sequence. The step back is taken on a copy of the iterator standing on the current term,
+   * which is put in front of the terms computed ahead if the current term follows it. When more
+   * terms than the depth are then kept, the last ones are given up and the background task carries
+   * on from the first of them. Otherwise the background task is stopped, the terms ahead are given
+   * up and it starts again from the term reached at the next call to next().
+   *
+   * @return the current number.
+   */
+  @Override
+  public synchronized T prev() {
+    AbstractTermIterator<T> here = here();
+    if (!here.hasPrevious()) {
+      return here.prev();
+    }
+    AbstractTermIterator<T> back = here.fork();
+    boolean reversible = here.prevIsReversible();
+    T term = back.prev();
+    if (!reversible) {
+      stop();
+      ahead.clear();
+      worker = back;
+      exhausted = false;
+      failure = null;
+      return term;
+    }
+    ahead.addFirst(back);
+    while (!running && ahead.size() > depth) {
+      worker = ahead.pollLast();
+      exhausted = false;
+    }
+    return term;
+  }
+
+  /**
+   * This method yields the iterator standing on the caller's term, waiting for the background
+   * task to compute it if needed. The caller holds the lock.
+   *
+   * @return the first copy ready, or the worker if none is and the background task has stopped.
+   * @throws RuntimeException If the background task failed, the exception it threw.
+   */
+  private AbstractTermIterator<T> here() {
+    boolean interrupted = false;
+    while (ahead.isEmpty() && running) {
+      try {
+        wait();
+      } catch (InterruptedException ie) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (!ahead.isEmpty()) {
+      return ahead.peek();
+    }
+    if (failure != null) {
+      RuntimeException thrown = failure;
+      failure = null;
+      throw thrown;
+    }
+    return worker;
+  }
+
+  /**
+   * This method waits for the background task to stop after the term it is computing. The caller
+   * holds the lock.
+   */
+  private void stop() {
+    stopping = true;
+    boolean interrupted = false;
+    while (running) {
+      try {
+        wait();
+      } catch (InterruptedException ie) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    stopping = false;
+  }
+
+  /**
+   * This method hands the worker to the executor if more terms should be computed and it is not
+   * already at it. The caller holds the lock.
+   */
+  private void fill() {
+    if (!running && !exhausted && failure == null && ahead.size() < depth) {
+      running = true;
+      executor.execute(this::produce);
+    }
+  }
+
+  /**
+   * This method is the background task: it moves the worker forward until enough terms are ready,
+   * the end value is reached or the caller gives up the terms ahead, keeping a copy standing on
+   * each term it leaves. The worker is only touched outside the lock, while no other thread
+   * touches it.
+   */
+  private void produce() {
+    while (true) {
+      synchronized (this) {
+        if (stopping || ahead.size() >= depth) {
+          running = false;
+          notifyAll();
+          return;
+        }
+      }
+      AbstractTermIterator<T> ready = null;
+      RuntimeException thrown = null;
+      try {
+        if (worker.hasNext()) {
+          worker.currentTerm();
+          ready = worker.fork();
+          worker.next();
+        }
+      } catch (RuntimeException re) {
+        ready = null;
+        thrown = re;
+      }
+      synchronized (this) {
+        if (ready != null) {
+          ahead.add(ready);
+        } else {
+          exhausted = thrown == null;
+          failure = thrown;
+          running = false;
+        }
+        notifyAll();
+        if (ready == null) {
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package lookandsay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class evaluates the look-and-say sequences of many seeds at once on a fork/join pool.
+ * Every seed is read out loud for a couple of steps, until its term splits into atoms, and the far
+ * term is then assembled from the descendants of those atoms. Different seeds soon reach the same
+ * common elements, so what is worked out about an atom by one seed is shared with all the others
+ * through a cache bounded in size, and the same descendants are only built once per batch. An
+ * instance can be used for any number of batches, from any number of threads; what is known about
+ * the common elements lasts as long as the instance, the other atoms only as long as their batch.
+ */
+public final class SeedBatch {
+
+  private final ForkJoinPool pool;
+  private final AtomCache cache;
+
+  /**
+   * This constructor takes the pool that runs the seeds and the size of the shared cache.
+   *
+   * @param pool       the pool that runs the seeds.
+   * @param cacheBytes the number of bytes the cached digits may take.
+   * @throws IllegalArgumentException If the pool is null or the cache size is negative.
+   */
+  public SeedBatch(ForkJoinPool pool, long cacheBytes) throws IllegalArgumentException {
+    if (pool == null) {
+      throw new IllegalArgumentException("pool cannot be null");
+    }
+    if (cacheBytes < 0) {
+      throw new IllegalArgumentException("cache size cannot be negative");
+    }
+    this.pool = pool;
+    this.cache = new AtomCache(cacheBytes);
+  }
+
+  /**
+   * This method yields the term the given number of steps after each seed.
+   *
+   * @param seeds the seeds.
+   * @param steps the number of steps.
+   * @return the terms, in the order of the seeds.
+   * @throws IllegalArgumentException If a seed is null or steps is negative.
+   * @throws IllegalStateException    If a term is too large for a buffer.
+   */
+  public List<DigitSequence> termsAt(List<DigitSequence> seeds, int steps)
+          throws IllegalArgumentException {
+    DigitSequence[] terms = new DigitSequence[check(seeds, steps)];
+    ConcurrentHashMap<String, AtomCache.Atom> scope =
+            new ConcurrentHashMap<String, AtomCache.Atom>();
+    ParallelEncoder.forEachChunk(pool, terms.length, seed ->
+            terms[seed] = DigitSequence.of(termAt(seeds.get(seed), steps, scope)));
+    return new ArrayList<DigitSequence>(Arrays.asList(terms));
+  }
+
+  /**
+   * This method yields the number of digits of the term the given number of steps after each
+   * seed, without building the terms once they have split into atoms.
+   *
+   * @param seeds the seeds.
+   * @param steps the number of steps.
+   * @return the lengths, in the order of the seeds, Long.MAX_VALUE for those that do not fit in a
+   *         long.
+   * @throws IllegalArgumentException If a seed is null or steps is negative.
+   */
+  public long[] lengthsAt(List<DigitSequence> seeds, int steps) throws IllegalArgumentException {
+    long[] lengths = new long[check(seeds, steps)];
+    ConcurrentHashMap<String, AtomCache.Atom> scope =
+            new ConcurrentHashMap<String, AtomCache.Atom>();
+    ParallelEncoder.forEachChunk(pool, lengths.length, seed ->
+            lengths[seed] = lengthAt(seeds.get(seed), steps, scope));
+    return lengths;
+  }
+
+  /**
+   * This method yields the digits from one position up to another of the term the given number of
+   * steps after a seed. Once the term has split into atoms, only the descendants that overlap the
+   * positions are built, so the term itself may be far too large for a buffer.
+   *
+   * @param seed  the seed.
+   * @param steps the number of steps.
+   * @param from  the position of the first digit, counting from 0.
+   * @param to    the position after the last digit.
+   * @return the digits from one position up to the other.
+   * @throws IllegalArgumentException  If the seed is null or steps is negative.
+   * @throws IndexOutOfBoundsException If the positions are outside the term.
+   * @throws IllegalStateException     If the digits are too many for a buffer.
+   */
+  public DigitSequence digitsAt(DigitSequence seed, int steps, long from, long to)
+          throws IllegalArgumentException {
+    if (seed == null) {
+      throw new IllegalArgumentException("seed cannot be null");
+    }
+    if (steps < 0) {
+      throw new IllegalArgumentException("steps cannot be negative");
+    }
+    DigitBuffer[] buffers = {seed.toBuffer(), new DigitBuffer(2 * seed.length())};
+    int age = ripen(buffers, steps);
+    AtomCache.Atom[] parts = age == steps ? null
+            : cache.split(buffers[0], new ConcurrentHashMap<String, AtomCache.Atom>());
+    long length = parts == null ? buffers[0].length : length(parts, steps - age);
+    if (from < 0 || from > to || to > length) {
+      throw new IndexOutOfBoundsException("no digits from " + from + " to " + to);
+    }
+    DigitBuffer digits = new DigitBuffer(0);
+    digits.ensureCapacity(to - from);
+    if (parts == null) {
+      System.arraycopy(buffers[0].digits, (int) from, digits.digits, 0, (int) (to - from));
+      digits.length = (int) (to - from);
+      return DigitSequence.of(digits);
+    }
+    long start = 0;
+    int position = 0;
+    for (AtomCache.Atom part : parts) {
+      long partLength = cache.length(part, steps - age);
+      if (partLength > from - start) {
+        position = cache.writeRange(part, steps - age, from - start, to - start, digits.digits,
+                position);
+      }
+      if (partLength >= to - start) {
+        break;
+      }
+      start += partLength;
+    }
+    digits.length = position;
+    return DigitSequence.of(digits);
+  }
+
+  /**
+   * This method yields the number of bytes the cached digits take at the moment.
+   *
+   * @return the number of bytes cached.
+   */
+  public long cachedBytes() {
+    return cache.keptBytes();
+  }
+
+  /**
+   * This method checks the arguments of a batch.
+   *
+   * @param seeds the seeds.
+   * @param steps the number of steps.
+   * @return the number of seeds.
+   * @throws IllegalArgumentException If a seed is null or steps is negative.
+   */
+  private static int check(List<DigitSequence> seeds, int steps) throws IllegalArgumentException {
+    if (seeds == null) {
+      throw new IllegalArgumentException("seed cannot be null");
+    }
+    for (DigitSequence seed : seeds) {
+      if (seed == null) {
+        throw new IllegalArgumentException("seed cannot be null");
+      }
+    }
+    if (steps < 0) {
+      throw new IllegalArgumentException("steps cannot be negative");
+    }
+    return seeds.size();
+  }
+
+  /**
+   * This method works out the term a number of steps after one seed.
+   *
+   * @param seed  the seed.
+   * @param steps the number of steps.
+   * @param scope the atoms of the batch.
+   * @return a buffer holding the term.
+   */
+  private DigitBuffer termAt(DigitSequence seed, int steps,
+          ConcurrentHashMap<String, AtomCache.Atom> scope) {
+    DigitBuffer[] buffers = {seed.toBuffer(), new DigitBuffer(2 * seed.length())};
+    int age = ripen(buffers, steps);
+    if (age == steps) {
+      return buffers[0];
+    }
+    AtomCache.Atom[] parts = cache.split(buffers[0], scope);
+    DigitBuffer term = buffers[1];
+    term.ensureCapacity(length(parts, steps - age));
+    int position = 0;
+    for (AtomCache.Atom part : parts) {
+      position = cache.write(part, steps - age, term.digits, position);
+    }
+    term.length = position;
+    return term;
+  }
+
+  /**
+   * This method works out the number of digits of the term a number of steps after one seed.
+   *
+   * @param seed  the seed.
+   * @param steps the number of steps.
+   * @param scope the atoms of the batch.
+   * @return the number of digits, or Long.MAX_VALUE if it does not fit in a long.
+   */
+  private long lengthAt(DigitSequence seed, int steps,
+          ConcurrentHashMap<String, AtomCache.Atom> scope) {
+    DigitBuffer[] buffers = {seed.toBuffer(), new DigitBuffer(2 * seed.length())};
+    int age = ripen(buffers, steps);
+    if (age == steps) {
+      return buffers[0].length;
+    }
+    return length(cache.split(buffers[0], scope), steps - age);
+  }
+
+  /**
+   * This method reads a seed out loud until its term splits into atoms or the steps run out.
+   *
+   * @param buffers the seed followed by a spare buffer; on return, the term reached followed by a
+   *                spare buffer.
+   * @param steps   the number of steps wanted.
+   * @return the number of steps taken.
+   */
+  private static int ripen(DigitBuffer[] buffers, int steps) {
+    int age = 0;
+    while (age < steps && (age < 2 || !AtomExpander.splittable(buffers[0]))) {
+      DigitKernel.encode(buffers[0], buffers[1]);
+      DigitBuffer written = buffers[1];
+      buffers[1] = buffers[0];
+      buffers[0] = written;
+      age++;
+    }
+    return age;
+  }
+
+  /**
+   * This method adds up the lengths of the descendants of some atoms.
+   *
+   * @param parts the atoms.
+   * @param steps the number of steps.
+   * @return the number of digits, or Long.MAX_VALUE if it does not fit in a long.
+   */
+  private long length(AtomCache.Atom[] parts, int steps) {
+    long total = 0;
+    for (AtomCache.Atom part : parts) {
+      total += cache.length(part, steps);
+      if (total < 0) {
+        return Long.MAX_VALUE;
+      }
+    }
+    return total;
+  }
+}
@@ -0,0 +1,47 @@
+package lookandsay;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The flight recorder event of one move of an iterator. It is only filled in and committed while
+ * a recording has it enabled; otherwise creating and beginning it costs next to nothing.
+ */
+@Name("lookandsay.Step")
+@Label("Look-and-Say Step")
+@Category("Look-and-Say")
+@Description("A call to next(), prev() or skip() that moved an iterator")
+@StackTrace(false)
+final class StepEvent extends Event {
+
+  static final String NEXT = "next";
+  static final String PREV = "prev";
+  static final String SKIP = "skip";
+
+  @Label("Direction")
+  String direction;
+
+  @Label("Steps")
+  long steps;
+
+  @Label("Digits Read")
+  @Description("The digits read out loud or decoded, 0 when the term was kept in the history")
+  long digitsRead;
+
+  @Label("Digits Written")
+  @Description("The digits of the term reached, 0 when the term was kept in the history")
+  long digitsWritten;
+
+  @Label("Engine")
+  @Description("The engine that computed the term, none when it was kept or reached by a skip")
+  String engine;
+
+  @Label("Allocated")
+  @DataAmount
+  long allocated;
+}
@@ -0,0 +1,163 @@
+package lookandsay;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Loops that look at eight digits at a time by loading them into a long. Two words, one shifted by
+ * a digit against the other, are compared with a single exclusive or, and every byte that comes
+ * out non zero marks the end of a run. Words shifted by two and three digits tell whether a run of
+ * four or more starts anywhere in the word. Encoding walks the non zero bytes of the same
+ * exclusive or, so a word without a run end costs one compare. Decoding sums the counts of four
+ * pairs with one multiply and writes each digit as a four byte word, moving forward by the count,
+ * which avoids a loop per pair for the counts of 1 to 3 that real terms are made of. The boundary
+ * scan is used when the Vector API is not available.
+ */
+final class SwarKernel {
+
+  private static final VarHandle LONGS =
+          MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle INTS =
+          MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private static final long HIGH_BITS = 0x8080808080808080L;
+  private static final long LOW_SEVEN = 0x7F7F7F7F7F7F7F7FL;
+  private static final long EVEN_BYTES = 0x00FF00FF00FF00FFL;
+  private static final long LANE_SUM = 0x0001000100010001L;
+
+  /**
+   * The number of bytes the decoder may write past the end of the decoded digits.
+   */
+  static final int DECODE_SLACK = Integer.BYTES;
+
+  /**
+   * This class only holds static helpers.
+   */
+  private SwarKernel() {
+  }
+
+  /**
+   * Counts the places inside a range where a digit differs from the one after it. The count alone
+   * gives the encoded length only when no run needs a count of two digits, so the scan gives up
+   * as soon as it meets a run of four or more, which terms past their second day never hold.
+   *
+   * @param in   the digits to scan.
+   * @param from the first digit of the range.
+   * @param to   the end of the range, exclusive.
+   * @return the number of run boundaries, or -1 if the range holds a run of four or more.
+   */
+  static long boundaries(byte[] in, int from, int to) {
+    long count = 0;
+    int i = from;
+    while (i + Long.BYTES + 3 <= to) {
+      long here = (long) LONGS.get(in, i);
+      long one = here ^ (long) LONGS.get(in, i + 1);
+      long two = here ^ (long) LONGS.get(in, i + 2);
+      long three = here ^ (long) LONGS.get(in, i + 3);
+      if (hasZeroByte(one | two | three)) {
+        return -1;
+      }
+      count += Long.bitCount((one + LOW_SEVEN) & HIGH_BITS);
+      i += Long.BYTES;
+    }
+    return DigitKernel.boundariesTail(in, i, to, count);
+  }
+
+  /**
+   * Reads a range of digits out loud into an array, as {@link DigitKernel#encodeRange} does. The
+   * run ends inside each word are the non zero bytes of the word exclusive or the word one digit
+   * further, taken lowest first.
+   *
+   * @param in     the digits to read.
+   * @param from   the first digit of the range, which must start a run.
+   * @param to     the end of the range, exclusive, which must end a run.
+   * @param out    the array to write into.
+   * @param offset the position of the first digit to write.
+   * @return the position after the last digit written.
+   */
+  static int encodeRange(byte[] in, int from, int to, byte[] out, int offset) {
+    int written = offset;
+    int start = from;
+    int i = from;
+    while (i + Long.BYTES < to) {
+      long one = (long) LONGS.get(in, i) ^ (long) LONGS.get(in, i + 1);
+      long ends = (one + LOW_SEVEN) & HIGH_BITS;
+      while (ends != 0) {
+        int end = i + (Long.numberOfTrailingZeros(ends) >>> 3) + 1;
+        if (end - start < 10) {
+          out[written] = (byte) (end - start);
+          out[written + 1] = in[end - 1];
+          written += 2;
+        } else {
+          written = DigitKernel.writeCount(out, written, end - start);
+          out[written++] = in[start];
+        }
+        start = end;
+        ends &= ends - 1;
+      }
+      i += Long.BYTES;
+    }
+    return DigitKernel.encodeTail(in, start, to, out, written);
+  }
+
+  /**
+   * Adds up the first digit of every (count, digit) pair of a range.
+   *
+   * @param in   the pairs to read.
+   * @param from the first digit of the first pair.
+   * @param to   the end of the pairs, exclusive.
+   * @return the number of digits the pairs expand to.
+   */
+  static long decodedLength(byte[] in, int from, int to) {
+    long total = 0;
+    int i = from;
+    while (i + Long.BYTES <= to) {
+      long counts = (long) LONGS.get(in, i) & EVEN_BYTES;
+      total += counts * LANE_SUM >>> 48;
+      i += Long.BYTES;
+    }
+    for (; i < to; i += 2) {
+      total += in[i];
+    }
+    return total;
+  }
+
+  /**
+   * This method tells whether any byte of a word is zero.
+   *
+   * @param word the word to look at.
+   * @return true if at least one of the eight bytes is zero.
+   */
+  private static boolean hasZeroByte(long word) {
+    return ((word - 0x0101010101010101L) & ~word & HIGH_BITS) != 0;
+  }
+
+  /**
+   * Expands (count, digit) pairs into an array that has room for the decoded digits plus
+   * {@link #DECODE_SLACK} bytes.
+   *
+   * @param in     the pairs to expand.
+   * @param from   the first digit of the first pair.
+   * @param to     the end of the pairs, exclusive.
+   * @param out    the array to write into.
+   * @param offset the position of the first digit to write.
+   * @return the position after the last digit written.
+   */
+  static int decodeRange(byte[] in, int from, int to, byte[] out, int offset) {
+    int written = offset;
+    for (int i = from; i < to; i += 2) {
+      int count = in[i];
+      byte digit = in[i + 1];
+      if (count <= Integer.BYTES) {
+        INTS.set(out, written, digit * 0x01010101);
+        written += count;
+      } else {
+        for (int j = 0; j < count; j++) {
+          out[written++] = digit;
+        }
+      }
+    }
+    return written;
+  }
+}
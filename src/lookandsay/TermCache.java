@@ -0,0 +1,260 @@
+package lookandsay;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The terms asked for by the clients of a {@link TermServer}, each computed once. A term that is
+ * asked for again while it is being computed is not computed twice: the second request waits for
+ * the first. Terms with the same index are computed together, as one {@link SeedBatch} of all the
+ * seeds waiting for that index, so that seeds reaching the same atoms share their descendants.
+ * Computed terms are kept up to a budget of bytes, one byte per digit; when the budget is
+ * exceeded, the terms asked for least recently are dropped.
+ */
+final class TermCache {
+
+  private final SeedBatch batch;
+  private final Executor executor;
+  private final long maxBytes;
+  private final ConcurrentHashMap<Key, CompletableFuture<DigitSequence>> running;
+  private final AtomicLong computed;
+
+  /**
+   * The kept terms in the order they were last asked for, their size and the requests not yet
+   * handed to a batch, all guarded by the lock of the cache.
+   */
+  private final LinkedHashMap<Key, DigitSequence> kept;
+  private final Map<Integer, List<Key>> waiting;
+  private long keptBytes;
+
+  /**
+   * This constructor starts an empty cache.
+   *
+   * @param batch    the batch that computes the terms.
+   * @param executor the executor that runs the batches.
+   * @param maxBytes the number of bytes the kept terms may take.
+   */
+  TermCache(SeedBatch batch, Executor executor, long maxBytes) {
+    this.batch = batch;
+    this.executor = executor;
+    this.maxBytes = maxBytes;
+    this.running = new ConcurrentHashMap<Key, CompletableFuture<DigitSequence>>();
+    this.computed = new AtomicLong();
+    this.kept = new LinkedHashMap<Key, DigitSequence>(16, 0.75f, true);
+    this.waiting = new HashMap<Integer, List<Key>>();
+  }
+
+  /**
+   * This method yields a term, from the cache if it is there, from the request already computing
+   * it if there is one, and otherwise from the next batch of its index.
+   *
+   * @param seed  the seed of the sequence.
+   * @param index the index of the term, the seed being term 0.
+   * @return the term, once computed.
+   */
+  CompletableFuture<DigitSequence> term(DigitSequence seed, int index) {
+    Key key = new Key(seed, index);
+    DigitSequence term = cached(key);
+    if (term != null) {
+      return CompletableFuture.completedFuture(term);
+    }
+    CompletableFuture<DigitSequence> created = new CompletableFuture<DigitSequence>();
+    CompletableFuture<DigitSequence> found = running.putIfAbsent(key, created);
+    if (found != null) {
+      return found;
+    }
+    term = cached(key);
+    if (term != null) {
+      running.remove(key, created);
+      created.complete(term);
+    } else {
+      enqueue(key);
+    }
+    return created;
+  }
+
+  /**
+   * This method yields the number of digits of a term, without computing the term unless it is
+   * kept.
+   *
+   * @param seed  the seed of the sequence.
+   * @param index the index of the term, the seed being term 0.
+   * @return the number of digits, or Long.MAX_VALUE if it does not fit in a long.
+   */
+  long length(DigitSequence seed, int index) {
+    DigitSequence term = cached(new Key(seed, index));
+    if (term != null) {
+      return term.length();
+    }
+    return batch.lengthsAt(List.of(seed), index)[0];
+  }
+
+  /**
+   * This method yields the digits of a term from one position up to another, without computing
+   * the term unless it is kept.
+   *
+   * @param seed  the seed of the sequence.
+   * @param index the index of the term, the seed being term 0.
+   * @param from  the position of the first digit, counting from 0.
+   * @param to    the position after the last digit.
+   * @return the digits as characters.
+   * @throws IndexOutOfBoundsException If the positions are outside the term.
+   */
+  CharSequence range(DigitSequence seed, int index, long from, long to) {
+    DigitSequence term = cached(new Key(seed, index));
+    if (term != null && from <= to && to <= term.length()) {
+      return term.subSequence((int) from, (int) to);
+    }
+    return batch.digitsAt(seed, index, from, to).toString();
+  }
+
+  /**
+   * This method yields the number of terms computed so far.
+   *
+   * @return the number of terms computed.
+   */
+  long computed() {
+    return computed.get();
+  }
+
+  /**
+   * This method yields the number of bytes the kept terms take at the moment.
+   *
+   * @return the number of bytes kept.
+   */
+  synchronized long keptBytes() {
+    return keptBytes;
+  }
+
+  /**
+   * This method looks a term up among the kept ones.
+   *
+   * @param key the seed and index of the term.
+   * @return the term, or null if it is not kept.
+   */
+  private synchronized DigitSequence cached(Key key) {
+    return kept.get(key);
+  }
+
+  /**
+   * This method keeps a term and drops the terms asked for least recently until the budget is
+   * met again. Terms larger than the whole budget are not kept.
+   *
+   * @param key  the seed and index of the term.
+   * @param term the term.
+   */
+  private synchronized void keep(Key key, DigitSequence term) {
+    if (term.length() > maxBytes || kept.containsKey(key)) {
+      return;
+    }
+    kept.put(key, term);
+    keptBytes += term.length();
+    Iterator<DigitSequence> oldest = kept.values().iterator();
+    while (keptBytes > maxBytes) {
+      keptBytes -= oldest.next().length();
+      oldest.remove();
+    }
+  }
+
+  /**
+   * This method adds a request to the batch of its index, and has the batch run if it is not
+   * already waiting to.
+   *
+   * @param key the seed and index of the term.
+   */
+  private synchronized void enqueue(Key key) {
+    List<Key> keys = waiting.get(key.index);
+    if (keys == null) {
+      keys = new ArrayList<Key>();
+      waiting.put(key.index, keys);
+      executor.execute(() -> run(key.index));
+    }
+    keys.add(key);
+  }
+
+  /**
+   * This method is the task that computes the batch of an index, with every request that joined
+   * it up to then.
+   *
+   * @param index the index of the terms.
+   */
+  private void run(int index) {
+    List<Key> keys;
+    synchronized (this) {
+      keys = waiting.remove(index);
+    }
+    compute(keys, index);
+  }
+
+  /**
+   * This method computes the terms of some seeds and completes their requests. If the batch
+   * fails, every seed is tried on its own, so that one term too large for a buffer only fails its
+   * own requests. Errors fail the requests too, so that no request is left waiting for good.
+   *
+   * @param keys  the seeds and the index of the terms.
+   * @param index the index of the terms.
+   */
+  private void compute(List<Key> keys, int index) {
+    List<DigitSequence> seeds = new ArrayList<DigitSequence>(keys.size());
+    for (Key key : keys) {
+      seeds.add(key.seed);
+    }
+    List<DigitSequence> terms;
+    try {
+      terms = batch.termsAt(seeds, index);
+    } catch (RuntimeException | Error thrown) {
+      if (keys.size() == 1) {
+        running.remove(keys.get(0)).completeExceptionally(thrown);
+      } else {
+        for (Key key : keys) {
+          compute(List.of(key), index);
+        }
+      }
+      return;
+    }
+    computed.addAndGet(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      keep(keys.get(i), terms.get(i));
+      running.remove(keys.get(i)).complete(terms.get(i));
+    }
+  }
+
+  /**
+   * The seed and index of a term.
+   */
+  private static final class Key {
+
+    final DigitSequence seed;
+    final int index;
+
+    /**
+     * This constructor takes the seed and index of a term.
+     *
+     * @param seed  the seed of the sequence.
+     * @param index the index of the term.
+     */
+    Key(DigitSequence seed, int index) {
+      this.seed = seed;
+      this.index = index;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Key && ((Key) other).index == index
+              && ((Key) other).seed.equals(seed);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * seed.hashCode() + index;
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package lookandsay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The state of an iterator as saved to a file, and the frame format shared with {@link TermStore}.
+ * A frame holds one term: its index in the sequence and its age (the number of steps since it was
+ * last reached by prev(), which tells whether it can be cut into atoms), both eight byte
+ * big-endian values, then its number of digits, eight bytes, then the digits packed two per byte
+ * with the first digit in the high nibble as in {@link PackedTermFile}, and finally the CRC-32 of
+ * all of the above as four bytes. A checkpoint file is a four byte magic number and a version byte
+ * followed by the frame of the current term and the frame of the end value.
+ */
+final class TermCheckpoint {
+
+  /**
+   * "LSCK" in ASCII.
+   */
+  private static final int MAGIC = 0x4C53434B;
+
+  private static final byte VERSION = 1;
+
+  /**
+   * The number of bytes in front of the packed digits of a frame.
+   */
+  private static final int FRAME_HEADER = 3 * Long.BYTES;
+
+  /**
+   * The number of bytes packed or unpacked at once.
+   */
+  private static final int CHUNK = 1 << 20;
+
+  final DigitBuffer term;
+  final long index;
+  final long age;
+  final DigitBuffer end;
+
+  /**
+   * This constructor gathers what was read from a file.
+   *
+   * @param term  the digits of the term.
+   * @param index the index of the term.
+   * @param age   the age of the term.
+   * @param end   the digits of the end value, or null for a frame on its own.
+   */
+  TermCheckpoint(DigitBuffer term, long index, long age, DigitBuffer end) {
+    this.term = term;
+    this.index = index;
+    this.age = age;
+    this.end = end;
+  }
+
+  /**
+   * This method writes a checkpoint file. The checkpoint is written to a new file next to it and
+   * forced to disk, which then replaces the file in one atomic move, so that a crash leaves either
+   * the old checkpoint or the new one and never a mix of both.
+   *
+   * @param path  the file to create or overwrite.
+   * @param term  the current term.
+   * @param index the index of the current term.
+   * @param age   the age of the current term.
+   * @param end   the end value.
+   * @throws IOException If the file cannot be written.
+   */
+  static void write(Path path, DigitBuffer term, long index, long age, DigitBuffer end)
+          throws IOException {
+    Path absolute = path.toAbsolutePath();
+    Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(),
+            ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + 1).putInt(MAGIC).put(VERSION);
+        writeFully(channel, header.flip());
+        writeFrame(channel, term, index, age);
+        writeFrame(channel, end, 0, 0);
+        channel.force(true);
+      }
+      Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE,
+              StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * This method reads a checkpoint file.
+   *
+   * @param path the file to read.
+   * @return the saved state.
+   * @throws IOException If the file cannot be read, is not a checkpoint or is damaged.
+   */
+  static TermCheckpoint read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + 1);
+      readFully(channel, header, 0, path);
+      if (header.getInt(0) != MAGIC || header.get(Integer.BYTES) != VERSION) {
+        throw new IOException("not a checkpoint: " + path);
+      }
+      TermCheckpoint current = readFrame(channel, header.capacity(), path);
+      long endAt = header.capacity() + frameSize(current.term.length);
+      TermCheckpoint end = readFrame(channel, endAt, path);
+      return new TermCheckpoint(current.term, current.index, current.age, end.term);
+    }
+  }
+
+  /**
+   * This method yields the number of bytes of the frame of a term.
+   *
+   * @param length the number of digits of the term.
+   * @return the size of its frame.
+   */
+  static long frameSize(long length) {
+    return FRAME_HEADER + (length + 1) / 2 + Integer.BYTES;
+  }
+
+  /**
+   * This method writes the frame of a term at the position of a channel.
+   *
+   * @param channel the channel to write into.
+   * @param term    the term.
+   * @param index   the index of the term.
+   * @param age     the age of the term.
+   * @throws IOException If the channel cannot be written.
+   */
+  static void writeFrame(FileChannel channel, DigitBuffer term, long index, long age)
+          throws IOException {
+    CRC32 crc = new CRC32();
+    ByteBuffer buffer = ByteBuffer.allocate(
+            Math.min(CHUNK, FRAME_HEADER + (term.length + 1) / 2 + Integer.BYTES));
+    buffer.putLong(index).putLong(age).putLong(term.length);
+    byte[] digits = term.digits;
+    for (int i = 0; i < term.length; i += 2) {
+      if (!buffer.hasRemaining()) {
+        flush(channel, buffer, crc);
+      }
+      int low = i + 1 < term.length ? digits[i + 1] : 0;
+      buffer.put((byte) (digits[i] << 4 | low));
+    }
+    if (buffer.remaining() < Integer.BYTES) {
+      flush(channel, buffer, crc);
+    }
+    buffer.flip();
+    crc.update(buffer.duplicate());
+    buffer.position(buffer.limit()).limit(buffer.capacity());
+    buffer.putInt((int) crc.getValue());
+    writeFully(channel, buffer.flip());
+  }
+
+  /**
+   * This method reads the frame of a term.
+   *
+   * @param channel  the channel to read from.
+   * @param position the position of the frame in the channel.
+   * @param path     the file, for error messages.
+   * @return the term with its index and age.
+   * @throws IOException If the channel cannot be read or the frame is damaged.
+   */
+  static TermCheckpoint readFrame(FileChannel channel, long position, Path path)
+          throws IOException {
+    CRC32 crc = new CRC32();
+    ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+    readFully(channel, header, position, path);
+    crc.update(header.array());
+    long index = header.getLong(0);
+    long age = header.getLong(Long.BYTES);
+    long length = header.getLong(2 * Long.BYTES);
+    if (length < 1 || length > DigitBuffer.MAX_CAPACITY || age < 0
+            || frameSize(length) > channel.size() - position) {
+      throw new IOException("damaged checkpoint: " + path);
+    }
+    DigitBuffer term = new DigitBuffer((int) length);
+    byte[] digits = term.digits;
+    long packed = (length + 1) / 2;
+    long at = position + FRAME_HEADER;
+    ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(CHUNK, packed));
+    byte[] bytes = buffer.array();
+    int written = 0;
+    int invalid = 0;
+    for (long done = 0; done < packed; ) {
+      int size = (int) Math.min(buffer.capacity(), packed - done);
+      buffer.clear().limit(size);
+      readFully(channel, buffer, at + done, path);
+      crc.update(bytes, 0, size);
+      int whole = done + size == packed && length % 2 != 0 ? size - 1 : size;
+      for (int i = 0; i < whole; i++) {
+        int high = bytes[i] >> 4 & 0xF;
+        int low = bytes[i] & 0xF;
+        invalid |= (9 - high) | (9 - low);
+        digits[written] = (byte) high;
+        digits[written + 1] = (byte) low;
+        written += 2;
+      }
+      if (whole < size) {
+        int high = bytes[whole] >> 4 & 0xF;
+        invalid |= (9 - high) | -(bytes[whole] & 0xF);
+        digits[written++] = (byte) high;
+      }
+      done += size;
+    }
+    ByteBuffer stored = ByteBuffer.allocate(Integer.BYTES);
+    readFully(channel, stored, at + packed, path);
+    if (stored.getInt(0) != (int) crc.getValue()) {
+      throw new IOException("checksum mismatch: " + path);
+    }
+    if (invalid < 0 || (length > 1 && digits[0] == 0)) {
+      throw new IOException("damaged checkpoint: " + path);
+    }
+    term.length = (int) length;
+    return new TermCheckpoint(term, index, age, null);
+  }
+
+  /**
+   * This method writes out the bytes gathered in a buffer, adding them to the checksum, and
+   * clears it.
+   *
+   * @param channel the channel to write into.
+   * @param buffer  the buffer, in write mode.
+   * @param crc     the checksum of the frame.
+   * @throws IOException If the channel cannot be written.
+   */
+  private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+    buffer.flip();
+    crc.update(buffer.duplicate());
+    writeFully(channel, buffer);
+    buffer.clear();
+  }
+
+  /**
+   * This method writes all the remaining bytes of a buffer.
+   *
+   * @param channel the channel to write into.
+   * @param buffer  the buffer, in read mode.
+   * @throws IOException If the channel cannot be written.
+   */
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * This method fills a buffer from a position of a channel.
+   *
+   * @param channel  the channel to read from.
+   * @param buffer   the buffer to fill up to its limit.
+   * @param position the position to read from.
+   * @param path     the file, for error messages.
+   * @throws IOException If the channel cannot be read or ends too soon.
+   */
+  static void readFully(FileChannel channel, ByteBuffer buffer, long position, Path path)
+          throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("damaged checkpoint: " + path);
+      }
+    }
+  }
+}
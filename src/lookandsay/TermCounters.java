@@ -0,0 +1,173 @@
+package lookandsay;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A TermMetrics that adds up what it is told: how many calls were made, how many digits were read
+ * and written, how many bytes were allocated, and how long the calls to next() and prev() took, as
+ * histograms with one bucket per power of two nanoseconds. It can be shared by any number of
+ * iterators and read at any time; the readings of a counter being updated are not atomic with
+ * respect to each other.
+ */
+public final class TermCounters implements TermMetrics {
+
+  /**
+   * The number of latency buckets; bucket i counts the calls that took from 2^i to 2^(i+1)
+   * nanoseconds, and bucket 0 also those that took less.
+   */
+  public static final int BUCKETS = 64;
+
+  private final LongAdder nextCalls = new LongAdder();
+  private final LongAdder prevCalls = new LongAdder();
+  private final LongAdder skipCalls = new LongAdder();
+  private final LongAdder stepsSkipped = new LongAdder();
+  private final LongAdder digitsEncoded = new LongAdder();
+  private final LongAdder digitsProduced = new LongAdder();
+  private final LongAdder digitsDecoded = new LongAdder();
+  private final LongAdder bytesAllocated = new LongAdder();
+  private final AtomicLongArray nextLatencies = new AtomicLongArray(BUCKETS);
+  private final AtomicLongArray prevLatencies = new AtomicLongArray(BUCKETS);
+
+  @Override
+  public void next(long nanos, long digitsRead, long digitsWritten) {
+    nextCalls.increment();
+    digitsEncoded.add(digitsRead);
+    digitsProduced.add(digitsWritten);
+    nextLatencies.incrementAndGet(bucket(nanos));
+  }
+
+  @Override
+  public void prev(long nanos, long digitsRead, long digitsWritten) {
+    prevCalls.increment();
+    digitsDecoded.add(digitsRead);
+    prevLatencies.incrementAndGet(bucket(nanos));
+  }
+
+  @Override
+  public void skip(long nanos, long steps, long digitsWritten) {
+    skipCalls.increment();
+    stepsSkipped.add(steps);
+  }
+
+  @Override
+  public void allocated(long bytes) {
+    bytesAllocated.add(bytes);
+  }
+
+  /**
+   * This method yields the number of calls to next() that moved an iterator.
+   *
+   * @return the number of calls.
+   */
+  public long nextCalls() {
+    return nextCalls.sum();
+  }
+
+  /**
+   * This method yields the number of calls to prev() that moved an iterator.
+   *
+   * @return the number of calls.
+   */
+  public long prevCalls() {
+    return prevCalls.sum();
+  }
+
+  /**
+   * This method yields the number of calls to skip() that moved an iterator.
+   *
+   * @return the number of calls.
+   */
+  public long skipCalls() {
+    return skipCalls.sum();
+  }
+
+  /**
+   * This method yields the number of steps taken by skip().
+   *
+   * @return the number of steps.
+   */
+  public long stepsSkipped() {
+    return stepsSkipped.sum();
+  }
+
+  /**
+   * This method yields the number of digits read out loud by next().
+   *
+   * @return the number of digits.
+   */
+  public long digitsEncoded() {
+    return digitsEncoded.sum();
+  }
+
+  /**
+   * This method yields the number of digits decoded by prev().
+   *
+   * @return the number of digits.
+   */
+  public long digitsDecoded() {
+    return digitsDecoded.sum();
+  }
+
+  /**
+   * This method yields the number of bytes allocated for digits and values.
+   *
+   * @return the number of bytes.
+   */
+  public long bytesAllocated() {
+    return bytesAllocated.sum();
+  }
+
+  /**
+   * This method yields how much longer the terms produced by next() are than the terms they were
+   * read from, on average over all the digits; it tends to Conway's constant, about 1.3036.
+   *
+   * @return the ratio of digits produced to digits read, or 0 if next() has read nothing yet.
+   */
+  public double growth() {
+    long read = digitsEncoded.sum();
+    return read == 0 ? 0 : (double) digitsProduced.sum() / read;
+  }
+
+  /**
+   * This method yields a copy of the histogram of the time taken by next().
+   *
+   * @return the number of calls in each of the {@link #BUCKETS} buckets.
+   */
+  public long[] nextLatencies() {
+    return snapshot(nextLatencies);
+  }
+
+  /**
+   * This method yields a copy of the histogram of the time taken by prev().
+   *
+   * @return the number of calls in each of the {@link #BUCKETS} buckets.
+   */
+  public long[] prevLatencies() {
+    return snapshot(prevLatencies);
+  }
+
+  /**
+   * This method yields the bucket of a duration.
+   *
+   * @param nanos the duration in nanoseconds.
+   * @return the index of the highest bit set, or 0.
+   */
+  private static int bucket(long nanos) {
+    return nanos <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+  }
+
+  /**
+   * This method copies a histogram.
+   *
+   * @param histogram the histogram.
+   * @return the counts of the buckets.
+   */
+  private static long[] snapshot(AtomicLongArray histogram) {
+    long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = histogram.get(i);
+    }
+    return counts;
+  }
+}
@@ -0,0 +1,29 @@
+package lookandsay;
+
+/**
+ * The ways an iterator can compute the term next to the current one. Which one is used for a step
+ * is chosen by an {@link EngineProfile} from the length of the term, whether the iterator has a
+ * pool and how fast each engine was measured to be, unless the iterator was told to always use
+ * one of them.
+ */
+public enum TermEngine {
+
+  /**
+   * Scans the digits one word at a time on the calling thread; the only engine that works on any
+   * term.
+   */
+  DIGITS,
+
+  /**
+   * Puts the next term together from the atoms of the current one, without looking at its
+   * digits. It only moves forward, and only once a term has split into atoms; other steps fall
+   * back to {@link #DIGITS}.
+   */
+  ATOMS,
+
+  /**
+   * Scans the digits in chunks on the pool of the iterator. Without a pool, or for terms too
+   * short to be worth splitting, it falls back to {@link #DIGITS}.
+   */
+  PARALLEL
+}
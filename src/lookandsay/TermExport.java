@@ -0,0 +1,168 @@
+package lookandsay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes terms to channels as decimal text, straight from their digits and through one direct
+ * buffer, so that no String or BigInteger of the term is ever built and the memory needed does not
+ * depend on the length of the term.
+ */
+final class TermExport {
+
+  /**
+   * The number of bytes written to the channel at once.
+   */
+  private static final int CHUNK = 1 << 20;
+
+  /**
+   * The longest decimal count of a run, with room for its digit.
+   */
+  private static final int LONGEST_RUN = 20;
+
+  /**
+   * This class only has static methods.
+   */
+  private TermExport() {
+  }
+
+  /**
+   * This method writes digits as characters from '0' to '9'.
+   *
+   * @param digits  the digits, most significant first.
+   * @param length  the number of digits to write.
+   * @param channel the channel to write into.
+   * @return the number of bytes written.
+   * @throws IOException If the channel cannot be written.
+   */
+  static long digits(byte[] digits, int length, WritableByteChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(1, Math.min(CHUNK, length)));
+    byte[] characters = new byte[buffer.capacity()];
+    for (int from = 0; from < length; from += characters.length) {
+      int size = Math.min(characters.length, length - from);
+      for (int i = 0; i < size; i++) {
+        characters[i] = (byte) (digits[from + i] + '0');
+      }
+      buffer.put(characters, 0, size);
+      flush(channel, buffer);
+    }
+    return length;
+  }
+
+  /**
+   * This method writes the runs of equal digits of a term as (count, digit) pairs, which are the
+   * digits of the next term, without building that term.
+   *
+   * @param digits  the digits of the term, most significant first.
+   * @param length  the number of digits of the term.
+   * @param channel the channel to write into.
+   * @return the number of bytes written.
+   * @throws IOException If the channel cannot be written.
+   */
+  static long runs(byte[] digits, int length, WritableByteChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK);
+    long written = 0;
+    int start = 0;
+    while (start < length) {
+      byte digit = digits[start];
+      int end = start + 1;
+      while (end < length && digits[end] == digit) {
+        end++;
+      }
+      if (buffer.remaining() < LONGEST_RUN) {
+        written += flush(channel, buffer);
+      }
+      int run = end - start;
+      if (run < 10) {
+        buffer.put((byte) ('0' + run));
+      } else {
+        String count = Integer.toString(run);
+        for (int i = 0; i < count.length(); i++) {
+          buffer.put((byte) count.charAt(i));
+        }
+      }
+      buffer.put((byte) ('0' + digit));
+      start = end;
+    }
+    return written + flush(channel, buffer);
+  }
+
+  /**
+   * This method unpacks a term kept in a file and writes its digits as characters, reading the
+   * file a chunk at a time.
+   *
+   * @param term    the term.
+   * @param channel the channel to write into.
+   * @return the number of bytes written.
+   * @throws IOException If either channel cannot be accessed.
+   */
+  static long packed(PackedTermFile term, WritableByteChannel channel) throws IOException {
+    long length = term.length();
+    long packed = (length + 1) / 2;
+    ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(CHUNK, 2 * packed));
+    ByteBuffer read = ByteBuffer.allocate(buffer.capacity() / 2);
+    byte[] bytes = read.array();
+    byte[] characters = new byte[buffer.capacity()];
+    try (FileChannel file = FileChannel.open(term.path(), StandardOpenOption.READ)) {
+      for (long done = 0; done < packed; ) {
+        int size = (int) Math.min(bytes.length, packed - done);
+        read.clear().limit(size);
+        while (read.hasRemaining()) {
+          if (file.read(read, PackedTermFile.HEADER + done + read.position()) < 0) {
+            throw new IOException("not a packed term: " + term.path());
+          }
+        }
+        for (int i = 0; i < size; i++) {
+          characters[2 * i] = (byte) ((bytes[i] >> 4 & 0xF) + '0');
+          characters[2 * i + 1] = (byte) ((bytes[i] & 0xF) + '0');
+        }
+        done += size;
+        int digits = done == packed && length % 2 != 0 ? 2 * size - 1 : 2 * size;
+        buffer.put(characters, 0, digits);
+        flush(channel, buffer);
+      }
+    }
+    return length;
+  }
+
+  /**
+   * This method copies a file as it is into a channel, letting the operating system move the
+   * bytes when it can.
+   *
+   * @param term    the term whose file is copied.
+   * @param channel the channel to write into.
+   * @return the number of bytes written.
+   * @throws IOException If either channel cannot be accessed.
+   */
+  static long transfer(PackedTermFile term, WritableByteChannel channel) throws IOException {
+    try (FileChannel file = FileChannel.open(term.path(), StandardOpenOption.READ)) {
+      long size = PackedTermFile.HEADER + (term.length() + 1) / 2;
+      long done = 0;
+      while (done < size) {
+        done += file.transferTo(done, size - done, channel);
+      }
+      return size;
+    }
+  }
+
+  /**
+   * This method writes out what a buffer holds and clears it.
+   *
+   * @param channel the channel to write into.
+   * @param buffer  the buffer, in write mode.
+   * @return the number of bytes written.
+   * @throws IOException If the channel cannot be written.
+   */
+  private static int flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    int size = buffer.remaining();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+    return size;
+  }
+}
@@ -0,0 +1,259 @@
+package lookandsay;
+
+/**
+ * The terms an iterator has recently visited, kept as a window of consecutive terms in a ring
+ * buffer whose total size in bytes is bounded. Every term in the window is followed by the term
+ * next() produces from it, and each link also records whether prev() on the later term gives the
+ * earlier one back, so moving along the window in either direction only moves a cursor. The value
+ * an iterator hands out for a term is kept with it once built. When the window outgrows its
+ * budget, whichever end was visited least recently is dropped, and the digit buffer of a dropped
+ * term is handed back to receive the next term that has to be computed.
+ */
+final class TermHistory {
+
+  private final long maxBytes;
+  private Entry[] ring;
+  private int head;
+  private int size;
+  private int cursor;
+  private long bytes;
+  private long clock;
+  private DigitBuffer free;
+
+  /**
+   * This constructor starts a window holding only the given term.
+   *
+   * @param maxBytes   the number of bytes the window may hold; the current term is always kept.
+   * @param term       the digits of the current term, which the window takes over.
+   * @param value      the value handed out for the current term, or null if it has not been built.
+   * @param valueBytes the heap held by that value.
+   * @param stats      the statistics of the current term, or null if they have not been gathered.
+   */
+  TermHistory(long maxBytes, DigitBuffer term, Object value, long valueBytes, TermStats stats) {
+    this.maxBytes = maxBytes;
+    this.ring = new Entry[16];
+    this.ring[0] = new Entry(term);
+    this.size = 1;
+    this.bytes = ring[0].bytes();
+    remember(value, valueBytes, stats);
+  }
+
+  /**
+   * This method yields the entry of the current term.
+   *
+   * @return the entry under the cursor.
+   */
+  Entry current() {
+    return at(cursor);
+  }
+
+  /**
+   * This method keeps what has been built for the current term so that it does not have to be
+   * built again when the term is visited later.
+   *
+   * @param value      the value handed out for the current term, or null.
+   * @param valueBytes the heap held by that value.
+   * @param stats      the statistics of the current term, or null.
+   */
+  void remember(Object value, long valueBytes, TermStats stats) {
+    Entry entry = current();
+    bytes -= entry.bytes();
+    entry.value = value;
+    entry.valueBytes = value == null ? 0 : valueBytes;
+    entry.stats = stats;
+    entry.used = ++clock;
+    bytes += entry.bytes();
+    trim();
+  }
+
+  /**
+   * This method moves to the term after the current one if the window holds it.
+   *
+   * @return the entry of the next term, or null if it has to be computed.
+   */
+  Entry forward() {
+    if (cursor + 1 >= size) {
+      return null;
+    }
+    cursor++;
+    current().used = ++clock;
+    return current();
+  }
+
+  /**
+   * This method moves to the term before the current one if the window holds it and prev() on
+   * the current term leads back to it.
+   *
+   * @return the entry of the previous term, or null if it has to be computed.
+   */
+  Entry backward() {
+    if (cursor == 0 || !at(cursor - 1).reversible) {
+      return null;
+    }
+    cursor--;
+    current().used = ++clock;
+    return current();
+  }
+
+  /**
+   * This method adds a freshly encoded term after the current one and moves to it. The window
+   * must have no term after the current one.
+   *
+   * @param term       the digits of the next term, which the window takes over.
+   * @param reversible whether prev() on the next term gives the current term back.
+   * @return the entry of the next term.
+   */
+  Entry append(DigitBuffer term, boolean reversible) {
+    current().reversible = reversible;
+    if (size == ring.length) {
+      grow();
+    }
+    Entry entry = new Entry(term);
+    ring[(head + size) % ring.length] = entry;
+    size++;
+    cursor++;
+    entry.used = ++clock;
+    bytes += entry.bytes();
+    trim();
+    return entry;
+  }
+
+  /**
+   * This method adds a freshly decoded term before the current one and moves to it. Terms kept
+   * before the current one are dropped, since prev() did not lead back to them. When next() on
+   * the new term would not give the current term back, the whole window is dropped instead.
+   *
+   * @param term       the digits of the previous term, which the window takes over.
+   * @param reversible whether next() on the previous term gives the current term back.
+   * @return the entry of the previous term.
+   */
+  Entry prepend(DigitBuffer term, boolean reversible) {
+    int keep = reversible ? cursor : size;
+    for (int i = 0; i < keep; i++) {
+      release(removeFirst());
+    }
+    cursor = 0;
+    if (size == ring.length) {
+      grow();
+    }
+    Entry entry = new Entry(term);
+    entry.reversible = true;
+    head = (head - 1 + ring.length) % ring.length;
+    ring[head] = entry;
+    size++;
+    entry.used = ++clock;
+    bytes += entry.bytes();
+    trim();
+    return entry;
+  }
+
+  /**
+   * This method yields a buffer to write the next computed term into, reusing the buffer of a
+   * dropped term when there is one.
+   *
+   * @return a buffer that no entry of the window refers to.
+   */
+  DigitBuffer takeSpare() {
+    DigitBuffer spare = free;
+    free = null;
+    return spare != null ? spare : new DigitBuffer(16);
+  }
+
+  /**
+   * This method drops terms from the ends of the window, the one visited least recently first,
+   * until the window fits its budget or only the current term is left.
+   */
+  private void trim() {
+    while (bytes > maxBytes && size > 1) {
+      boolean dropFirst = cursor > 0
+              && (cursor == size - 1 || at(0).used < at(size - 1).used);
+      if (dropFirst) {
+        release(removeFirst());
+        cursor--;
+      } else {
+        Entry last = at(size - 1);
+        ring[(head + size - 1) % ring.length] = null;
+        size--;
+        release(last);
+      }
+    }
+  }
+
+  /**
+   * This method takes the first entry out of the window without moving the cursor.
+   *
+   * @return the entry that was first.
+   */
+  private Entry removeFirst() {
+    Entry first = ring[head];
+    ring[head] = null;
+    head = (head + 1) % ring.length;
+    size--;
+    return first;
+  }
+
+  /**
+   * This method forgets a dropped entry and keeps its digit buffer for reuse.
+   *
+   * @param entry the entry that left the window.
+   */
+  private void release(Entry entry) {
+    bytes -= entry.bytes();
+    if (free == null || free.digits.length < entry.term.digits.length) {
+      free = entry.term;
+    }
+  }
+
+  /**
+   * This method doubles the ring, laying the window out from the start of the new array.
+   */
+  private void grow() {
+    Entry[] larger = new Entry[ring.length * 2];
+    for (int i = 0; i < size; i++) {
+      larger[i] = at(i);
+    }
+    ring = larger;
+    head = 0;
+  }
+
+  /**
+   * This method yields the entry at a position of the window.
+   *
+   * @param index the position, counting from the first term of the window.
+   * @return the entry at that position.
+   */
+  private Entry at(int index) {
+    return ring[(head + index) % ring.length];
+  }
+
+  /**
+   * One term of the window with whatever has been built for it so far.
+   */
+  static final class Entry {
+
+    final DigitBuffer term;
+    Object value;
+    long valueBytes;
+    TermStats stats;
+    boolean reversible;
+    long used;
+
+    /**
+     * This constructor wraps the digits of a term.
+     *
+     * @param term the digits of the term.
+     */
+    Entry(DigitBuffer term) {
+      this.term = term;
+    }
+
+    /**
+     * This method estimates the heap held by this entry.
+     *
+     * @return the bytes of the digit buffer plus those of the value, if built.
+     */
+    long bytes() {
+      return term.digits.length + valueBytes;
+    }
+  }
+}
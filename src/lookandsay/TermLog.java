@@ -0,0 +1,272 @@
+package lookandsay;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * The terms of one look-and-say sequence, each computed once and shared by any number of threads.
+ * The terms are appended to a log and never change once there; the log itself is an array that is
+ * replaced by a copy twice as long when it is full, and the number of terms in it is published
+ * after each append, so that readers only ever read volatile fields and never lock. A thread that
+ * asks for a term not yet in the log computes the terms up to it one at a time, holding the lock
+ * of the log for one term only; the other threads asking for such terms wait for the term being
+ * computed, take it if it is the one they want, and otherwise compute the next one themselves.
+ *
+ * <p>The log is read through cursors, which are cheap to create and which, like the iterators,
+ * each belong to one thread.
+ */
+public final class TermLog {
+
+  private volatile Entry[] entries;
+  private volatile int size;
+
+  /**
+   * The state of the thread computing terms, only touched while holding the lock of the log.
+   */
+  private DigitBuffer last;
+  private DigitBuffer spare;
+  private AtomExpander expander;
+  private AtomExpander.Parts parts;
+  private AtomExpander.Parts spareParts;
+
+  /**
+   * This constructor starts a log at the given seed.
+   *
+   * @param seed the first term of the sequence.
+   * @throws IllegalArgumentException If the seed is null.
+   */
+  public TermLog(DigitSequence seed) throws IllegalArgumentException {
+    if (seed == null) {
+      throw new IllegalArgumentException("seed cannot be null");
+    }
+    entries = new Entry[] {new Entry(seed)};
+    size = 1;
+    last = seed.toBuffer();
+    spare = new DigitBuffer(2 * last.length);
+  }
+
+  /**
+   * This constructor starts a log at 1.
+   */
+  public TermLog() {
+    this(DigitSequence.parse("1"));
+  }
+
+  /**
+   * This method yields the number of terms computed so far, the seed included.
+   *
+   * @return the number of terms in the log.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * This method yields one term, computing it and the terms before it if no thread did yet.
+   *
+   * @param term the index of the term, the seed being term 0.
+   * @return the digits of the term.
+   * @throws IndexOutOfBoundsException If the index is negative.
+   * @throws IllegalStateException     If a term is too large for a buffer.
+   */
+  public DigitSequence term(int term) {
+    return entry(term).digits;
+  }
+
+  /**
+   * This method creates a cursor that reads the terms as BigIntegers, from the seed up to the
+   * first term that is not below the end value, like a LookAndSayIterator would. It can only go
+   * back as far as the seed.
+   *
+   * @param end the end value.
+   * @return a cursor standing on the seed.
+   * @throws IllegalArgumentException If the end is null or less than the seed.
+   */
+  public RIterator<BigInteger> iterator(BigInteger end) throws IllegalArgumentException {
+    if (end == null) {
+      throw new IllegalArgumentException("end cannot be null");
+    }
+    if (end.signum() < 0) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    return new Cursor<BigInteger>(DigitSequence.valueOf(end), Entry::value);
+  }
+
+  /**
+   * This method creates a cursor that reads the terms as digit sequences, from the seed up to the
+   * first term that is not below the end value, like a DigitSequenceIterator would. It can only go
+   * back as far as the seed.
+   *
+   * @param end the end value.
+   * @return a cursor standing on the seed.
+   * @throws IllegalArgumentException If the end is null or less than the seed.
+   */
+  public RIterator<DigitSequence> digitIterator(DigitSequence end)
+          throws IllegalArgumentException {
+    if (end == null) {
+      throw new IllegalArgumentException("end cannot be null");
+    }
+    return new Cursor<DigitSequence>(end, entry -> entry.digits);
+  }
+
+  /**
+   * This method yields the entry of one term, from the log if it is there already.
+   *
+   * @param term the index of the term.
+   * @return the entry.
+   */
+  private Entry entry(int term) {
+    if (term < 0) {
+      throw new IndexOutOfBoundsException("no term " + term);
+    }
+    int count = size;
+    while (term >= count) {
+      append(count);
+      count = size;
+    }
+    return entries[term];
+  }
+
+  /**
+   * This method appends the next term to the log, unless another thread appended it while this one
+   * was waiting for the lock. The entry is stored before the new size is published, so a reader
+   * that sees the size finds the entry.
+   *
+   * @param count the number of terms in the log when the caller last looked.
+   */
+  private synchronized void append(int count) {
+    if (size != count) {
+      return;
+    }
+    step(count);
+    Entry[] log = entries;
+    if (log.length == count) {
+      log = Arrays.copyOf(log, 2 * count);
+      entries = log;
+    }
+    log[count] = new Entry(DigitSequence.of(last));
+    size = count + 1;
+  }
+
+  /**
+   * This method computes the term after the last one of the log, putting it together from its
+   * atoms once the terms have split into atoms, as the iterators do.
+   *
+   * @param term the index of the term computed.
+   */
+  private void step(int term) {
+    if (parts == null && term > 2 && AtomExpander.splittable(last)) {
+      if (expander == null) {
+        expander = new AtomExpander();
+      }
+      parts = expander.split(last);
+    }
+    if (parts == null) {
+      DigitKernel.encode(last, spare);
+    } else {
+      AtomExpander.Parts next = expander.step(parts, spareParts, spare);
+      spareParts = parts;
+      parts = next;
+    }
+    DigitBuffer written = spare;
+    spare = last;
+    last = written;
+  }
+
+  /**
+   * A term of the log, with its value as a BigInteger built the first time a cursor asks for it.
+   * Two threads may both build the value; they build equal ones and either may be kept.
+   */
+  private static final class Entry {
+
+    final DigitSequence digits;
+    private volatile BigInteger value;
+
+    /**
+     * This constructor wraps the digits of a term.
+     *
+     * @param digits the digits of the term.
+     */
+    Entry(DigitSequence digits) {
+      this.digits = digits;
+    }
+
+    /**
+     * This method yields the term as a BigInteger.
+     *
+     * @return the value of the term.
+     */
+    BigInteger value() {
+      BigInteger built = value;
+      if (built == null) {
+        built = digits.toBigInteger();
+        value = built;
+      }
+      return built;
+    }
+  }
+
+  /**
+   * A position in the log. A cursor only holds an index and compares each term it stands on with
+   * its end value once.
+   *
+   * @param <T> the type of the terms handed out.
+   */
+  private final class Cursor<T> implements RIterator<T> {
+
+    private final DigitSequence end;
+    private final Function<Entry, T> view;
+    private int index;
+    private int checked = -1;
+    private boolean belowEnd;
+
+    /**
+     * This constructor stands a cursor on the seed.
+     *
+     * @param end  the end value.
+     * @param view how a term is handed out.
+     * @throws IllegalArgumentException If the end is less than the seed.
+     */
+    Cursor(DigitSequence end, Function<Entry, T> view) throws IllegalArgumentException {
+      this.end = end;
+      this.view = view;
+      if (term(0).compareTo(end) > 0) {
+        throw new IllegalArgumentException("invalid argument");
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (checked != index) {
+        belowEnd = term(index).compareTo(end) < 0;
+        checked = index;
+      }
+      return belowEnd;
+    }
+
+    @Override
+    public T next() throws NoSuchElementException {
+      T current = view.apply(entry(index));
+      if (hasNext()) {
+        index++;
+      }
+      return current;
+    }
+
+    @Override
+    public boolean hasPrevious() {
+      return index > 0;
+    }
+
+    @Override
+    public T prev() {
+      T current = view.apply(entry(index));
+      if (hasPrevious()) {
+        index--;
+      }
+      return current;
+    }
+  }
+}
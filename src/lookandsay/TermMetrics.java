@@ -0,0 +1,53 @@
+package lookandsay;
+
+/**
+ * Receives measurements from an iterator as it moves, to be passed on to whatever monitoring is in
+ * use. An iterator only takes measurements while it has a TermMetrics to report to, so iterators
+ * that have none pay a single null check per call. Every method does nothing unless overridden, so
+ * an implementation only overrides what it forwards. One instance may be given to several
+ * iterators, and the stream of an iterator reports from the threads that run it, so
+ * implementations should be safe to call from several threads at once.
+ *
+ * @see TermCounters
+ */
+public interface TermMetrics {
+
+  /**
+   * This method is called after a call to next() that moved the iterator.
+   *
+   * @param nanos         the time the call took, in nanoseconds.
+   * @param digitsRead    the digits of the term read out loud, or 0 if the next term was kept.
+   * @param digitsWritten the digits of the term produced, or 0 if the next term was kept.
+   */
+  default void next(long nanos, long digitsRead, long digitsWritten) {
+  }
+
+  /**
+   * This method is called after a call to prev() that moved the iterator.
+   *
+   * @param nanos         the time the call took, in nanoseconds.
+   * @param digitsRead    the digits of the term decoded, or 0 if the previous term was kept.
+   * @param digitsWritten the digits of the term produced, or 0 if the previous term was kept.
+   */
+  default void prev(long nanos, long digitsRead, long digitsWritten) {
+  }
+
+  /**
+   * This method is called after a call to skip(), or to advanceTo(), that moved the iterator.
+   *
+   * @param nanos         the time the call took, in nanoseconds.
+   * @param steps         the number of steps taken.
+   * @param digitsWritten the digits of the term reached.
+   */
+  default void skip(long nanos, long steps, long digitsWritten) {
+  }
+
+  /**
+   * This method is called when the iterator allocates memory for digits or for the value of a
+   * term.
+   *
+   * @param bytes the number of bytes allocated, estimated for values.
+   */
+  default void allocated(long bytes) {
+  }
+}
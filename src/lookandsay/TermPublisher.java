@@ -0,0 +1,231 @@
+package lookandsay;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+/**
+ * A publisher of the terms of a look-and-say sequence, from a new iterator for every subscriber.
+ * Each subscription runs two tasks on the executor that never wait for each other: one moves the
+ * iterator forward until a given number of terms are ready, and one hands the ready terms to the
+ * subscriber as fast as it requests them. A slow subscriber thus works on a term while the next
+ * ones are computed, and a subscriber that stops requesting stops the computation once the ready
+ * terms are used up. When the iterator reaches its end value the subscriber is completed; when it
+ * throws, the subscriber gets the exception after the terms already ready.
+ *
+ * @param <T> the type of the terms.
+ */
+public final class TermPublisher<T> implements Flow.Publisher<T> {
+
+  private final Supplier<? extends RIterator<T>> iterators;
+  private final int depth;
+  private final Executor executor;
+
+  /**
+   * This constructor takes what every subscription needs.
+   *
+   * @param iterators the source of a new iterator for every subscriber.
+   * @param depth     the number of terms kept ready for a subscriber.
+   * @param executor  the executor that runs the tasks of the subscriptions.
+   * @throws IllegalArgumentException If the source of iterators or the executor is null or depth
+   *                                  is not positive.
+   */
+  public TermPublisher(Supplier<? extends RIterator<T>> iterators, int depth, Executor executor)
+          throws IllegalArgumentException {
+    if (iterators == null || executor == null) {
+      throw new IllegalArgumentException("source or executor cannot be null");
+    }
+    if (depth < 1) {
+      throw new IllegalArgumentException("depth must be positive");
+    }
+    this.iterators = iterators;
+    this.depth = depth;
+    this.executor = executor;
+  }
+
+  /**
+   * This method starts a subscription on a new iterator. No term is computed before the
+   * subscriber requests one.
+   *
+   * @param subscriber the subscriber.
+   * @throws NullPointerException If the subscriber is null.
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber cannot be null");
+    }
+    RIterator<T> terms;
+    try {
+      terms = iterators.get();
+    } catch (RuntimeException re) {
+      subscriber.onSubscribe(new Subscription(subscriber, null));
+      subscriber.onError(re);
+      return;
+    }
+    subscriber.onSubscribe(new Subscription(subscriber, terms));
+  }
+
+  /**
+   * The link between one subscriber and its iterator. All its fields but the iterator are guarded
+   * by its lock; the iterator is only touched by the task moving it forward.
+   */
+  private final class Subscription implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super T> subscriber;
+    private final RIterator<T> terms;
+    private final ArrayDeque<T> ahead;
+    private long demand;
+    private boolean producing;
+    private boolean delivering;
+    private boolean exhausted;
+    private boolean done;
+    private Throwable failure;
+
+    /**
+     * This constructor links a subscriber to its iterator.
+     *
+     * @param subscriber the subscriber.
+     * @param terms      the iterator, or null if there is none and the subscription is over.
+     */
+    Subscription(Flow.Subscriber<? super T> subscriber, RIterator<T> terms) {
+      this.subscriber = subscriber;
+      this.terms = terms;
+      this.ahead = new ArrayDeque<T>(depth);
+      this.done = terms == null;
+    }
+
+    @Override
+    public synchronized void request(long count) {
+      if (done || exhausted && failure != null) {
+        return;
+      }
+      if (count <= 0) {
+        ahead.clear();
+        exhausted = true;
+        failure = new IllegalArgumentException("request must be positive");
+      } else {
+        demand = demand + count < 0 ? Long.MAX_VALUE : demand + count;
+      }
+      schedule();
+    }
+
+    @Override
+    public synchronized void cancel() {
+      done = true;
+      ahead.clear();
+    }
+
+    /**
+     * This method starts the tasks that have work to do and are not already running. The caller
+     * holds the lock.
+     */
+    private void schedule() {
+      if (done) {
+        return;
+      }
+      if (!producing && !exhausted && ahead.size() < depth) {
+        producing = true;
+        executor.execute(this::produce);
+      }
+      if (!delivering && (demand > 0 && !ahead.isEmpty() || exhausted && ahead.isEmpty())) {
+        delivering = true;
+        executor.execute(this::deliver);
+      }
+    }
+
+    /**
+     * This method is the task that moves the iterator forward until enough terms are ready.
+     */
+    private void produce() {
+      while (true) {
+        synchronized (this) {
+          if (done || exhausted || ahead.size() >= depth) {
+            producing = false;
+            return;
+          }
+        }
+        T term = null;
+        boolean more;
+        RuntimeException thrown = null;
+        try {
+          more = terms.hasNext();
+          if (more) {
+            term = terms.next();
+          }
+        } catch (RuntimeException re) {
+          more = false;
+          thrown = re;
+        }
+        synchronized (this) {
+          if (done || exhausted) {
+            producing = false;
+            return;
+          }
+          if (more) {
+            ahead.add(term);
+          } else {
+            exhausted = true;
+            failure = thrown;
+            producing = false;
+          }
+          schedule();
+          if (!more) {
+            return;
+          }
+        }
+      }
+    }
+
+    /**
+     * This method is the task that hands the ready terms to the subscriber while it requests them,
+     * and completes it once the iterator is exhausted and every term was handed out. It is never
+     * running twice at once, so the subscriber is called by one thread at a time.
+     */
+    private void deliver() {
+      while (true) {
+        T term;
+        Throwable ended = null;
+        synchronized (this) {
+          if (done) {
+            delivering = false;
+            return;
+          }
+          if (exhausted && ahead.isEmpty()) {
+            done = true;
+            delivering = false;
+            ended = failure;
+            term = null;
+          } else if (demand == 0 || ahead.isEmpty()) {
+            delivering = false;
+            return;
+          } else {
+            term = ahead.poll();
+            if (demand != Long.MAX_VALUE) {
+              demand--;
+            }
+            schedule();
+          }
+        }
+        if (term == null) {
+          if (ended == null) {
+            subscriber.onComplete();
+          } else {
+            subscriber.onError(ended);
+          }
+          return;
+        }
+        try {
+          subscriber.onNext(term);
+        } catch (RuntimeException re) {
+          cancel();
+          synchronized (this) {
+            delivering = false;
+          }
+          throw re;
+        }
+      }
+    }
+  }
+}
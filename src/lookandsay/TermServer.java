@@ -0,0 +1,337 @@
+package lookandsay;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A small HTTP server on the loopback interface that answers questions about look-and-say terms,
+ * so that several services on a machine can share the terms instead of each computing its own.
+ * Every query is a GET with the seed of the sequence (1 if left out) and the index of the term,
+ * the seed being term 0:
+ *
+ * <ul>
+ *   <li>{@code /term?seed=1&index=40} yields the digits of the term;</li>
+ *   <li>{@code /length?seed=1&index=40} yields its number of digits;</li>
+ *   <li>{@code /digit?seed=1&index=40&position=7} yields one digit, counting from 0;</li>
+ *   <li>{@code /range?seed=1&index=40&from=7&to=20} yields the digits from one position up to
+ *       another, exclusive, at most {@link #MAX_RANGE} of them.</li>
+ * </ul>
+ *
+ * <p>Answers are plain ASCII text. Invalid queries are answered with status 400 and the reason,
+ * ranges that are too long with status 413, and queries that fail for any other reason with
+ * status 500.
+ * Terms are computed and kept by a {@link TermCache}: concurrent requests for the same term share
+ * one computation, requests for terms of the same index are computed in one batch, and the terms
+ * asked for recently are kept up to a budget. Lengths, digits and ranges are worked out from the
+ * atoms of the terms, without building terms that are not kept.
+ */
+public final class TermServer implements Closeable {
+
+  /**
+   * The number of requests answered at the same time.
+   */
+  private static final int HANDLERS = 16;
+
+  /**
+   * The largest index a query may ask for. The terms of every seed but 22 are longer than
+   * Long.MAX_VALUE digits some two hundred steps in, so no answer changes past this index.
+   */
+  static final int MAX_INDEX = 4096;
+
+  /**
+   * The largest number of digits a range query may ask for.
+   */
+  static final int MAX_RANGE = 1 << 20;
+
+  private final HttpServer server;
+  private final ExecutorService handlers;
+  private final SeedBatch batch;
+  private final TermCache cache;
+
+  /**
+   * This constructor binds the server to a port of the loopback interface; it answers once
+   * started. A quarter of the budget goes to the atoms the seeds share, the rest to the terms.
+   *
+   * @param port       the port, or 0 for any free port.
+   * @param pool       the pool that computes the terms.
+   * @param cacheBytes the number of bytes the cached digits may take.
+   * @throws IOException              If the port cannot be bound.
+   * @throws IllegalArgumentException If the pool is null, the port is outside 0 to 65535 or the
+   *                                  cache size is negative.
+   */
+  public TermServer(int port, ForkJoinPool pool, long cacheBytes) throws IOException {
+    if (pool == null) {
+      throw new IllegalArgumentException("pool cannot be null");
+    }
+    if (port < 0 || port > 0xFFFF) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    if (cacheBytes < 0) {
+      throw new IllegalArgumentException("cache size cannot be negative");
+    }
+    this.batch = new SeedBatch(pool, cacheBytes / 4);
+    this.cache = new TermCache(batch, pool, cacheBytes - cacheBytes / 4);
+    this.handlers = Executors.newFixedThreadPool(HANDLERS);
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+            0);
+    this.server.createContext("/", this::handle);
+    this.server.setExecutor(handlers);
+  }
+
+  /**
+   * This method starts answering queries.
+   *
+   * @return this server.
+   */
+  public TermServer start() {
+    server.start();
+    return this;
+  }
+
+  /**
+   * This method yields the port the server listens on.
+   *
+   * @return the port.
+   */
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * This method yields a term as a query for it would, for callers in the same process.
+   *
+   * @param seed  the seed of the sequence.
+   * @param index the index of the term, the seed being term 0.
+   * @return the term.
+   * @throws IllegalArgumentException If the seed is null or the index is negative or too large.
+   * @throws IllegalStateException    If the term is too large for a buffer.
+   */
+  public DigitSequence term(DigitSequence seed, int index) throws IllegalArgumentException {
+    check(seed, index);
+    try {
+      return cache.term(seed, index).join();
+    } catch (CompletionException ce) {
+      if (ce.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ce.getCause();
+      }
+      if (ce.getCause() instanceof Error) {
+        throw (Error) ce.getCause();
+      }
+      throw ce;
+    }
+  }
+
+  /**
+   * This method yields the number of digits of a term as a query for it would, for callers in the
+   * same process.
+   *
+   * @param seed  the seed of the sequence.
+   * @param index the index of the term, the seed being term 0.
+   * @return the number of digits, or Long.MAX_VALUE if it does not fit in a long.
+   * @throws IllegalArgumentException If the seed is null or the index is negative or too large.
+   */
+  public long length(DigitSequence seed, int index) throws IllegalArgumentException {
+    check(seed, index);
+    return cache.length(seed, index);
+  }
+
+  /**
+   * This method yields the digits of a term from one position up to another as a query for them
+   * would, for callers in the same process. Only the digits asked for are built, unless the term
+   * is cached.
+   *
+   * @param seed  the seed of the sequence.
+   * @param index the index of the term, the seed being term 0.
+   * @param from  the position of the first digit, counting from 0.
+   * @param to    the position after the last digit.
+   * @return the digits as characters.
+   * @throws IllegalArgumentException  If the seed is null or the index is negative or too large.
+   * @throws IndexOutOfBoundsException If the positions are outside the term.
+   * @throws IllegalStateException     If the digits are too many for a buffer.
+   */
+  public CharSequence range(DigitSequence seed, int index, long from, long to)
+          throws IllegalArgumentException {
+    check(seed, index);
+    return cache.range(seed, index, from, to);
+  }
+
+  /**
+   * This method yields the number of terms computed since the server was created. Terms served
+   * from the cache or shared with a concurrent request are not counted again.
+   *
+   * @return the number of terms computed.
+   */
+  public long computedTerms() {
+    return cache.computed();
+  }
+
+  /**
+   * This method yields the number of bytes the cached terms and atoms take at the moment.
+   *
+   * @return the number of bytes cached.
+   */
+  public long cachedBytes() {
+    return cache.keptBytes() + batch.cachedBytes();
+  }
+
+  /**
+   * This method stops the server, without waiting for queries being answered.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    handlers.shutdown();
+  }
+
+  /**
+   * This method answers one query.
+   *
+   * @param exchange the query and its answer.
+   * @throws IOException If the answer cannot be sent.
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        reply(exchange, 405, "only GET is supported");
+        return;
+      }
+      String path = exchange.getRequestURI().getPath();
+      if (!path.equals("/term") && !path.equals("/length") && !path.equals("/digit")
+              && !path.equals("/range")) {
+        reply(exchange, 404, "no such query: " + path);
+        return;
+      }
+      Map<String, String> query = parse(exchange.getRequestURI().getRawQuery());
+      try {
+        DigitSequence seed = DigitSequence.parse(query.getOrDefault("seed", "1"));
+        int index = number(query, "index");
+        switch (path) {
+          case "/term":
+            DigitSequence term = term(seed, index);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=US-ASCII");
+            exchange.sendResponseHeaders(200, term.length());
+            try (OutputStream body = exchange.getResponseBody()) {
+              term.writeTo(Channels.newChannel(body));
+            }
+            break;
+          case "/length":
+            reply(exchange, 200, Long.toString(length(seed, index)));
+            break;
+          case "/digit":
+            int position = number(query, "position");
+            reply(exchange, 200, range(seed, index, position, position + 1L).toString());
+            break;
+          default:
+            int from = number(query, "from");
+            int to = number(query, "to");
+            if ((long) to - from > MAX_RANGE) {
+              reply(exchange, 413, "range cannot exceed " + MAX_RANGE + " digits");
+              break;
+            }
+            reply(exchange, 200, range(seed, index, from, to).toString());
+            break;
+        }
+      } catch (IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException e) {
+        reply(exchange, 400, String.valueOf(e.getMessage()));
+      } catch (RuntimeException e) {
+        reply(exchange, 500, "internal error");
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * This method sends a short answer.
+   *
+   * @param exchange the query and its answer.
+   * @param status   the HTTP status.
+   * @param text     the body of the answer.
+   * @throws IOException If the answer cannot be sent.
+   */
+  private static void reply(HttpExchange exchange, int status, String text) throws IOException {
+    byte[] body = text.getBytes(StandardCharsets.US_ASCII);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=US-ASCII");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  /**
+   * This method splits the query part of a URI into its parameters.
+   *
+   * @param raw the encoded query, or null if there is none.
+   * @return the decoded parameters by name.
+   */
+  private static Map<String, String> parse(String raw) {
+    Map<String, String> parameters = new HashMap<String, String>();
+    if (raw == null) {
+      return parameters;
+    }
+    for (String pair : raw.split("&")) {
+      int equals = pair.indexOf('=');
+      if (equals > 0) {
+        parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+      }
+    }
+    return parameters;
+  }
+
+  /**
+   * This method reads a number from the parameters of a query.
+   *
+   * @param query the parameters.
+   * @param name  the name of the number.
+   * @return the number.
+   * @throws IllegalArgumentException If the number is missing or is not an int.
+   */
+  private static int number(Map<String, String> query, String name)
+          throws IllegalArgumentException {
+    String value = query.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException(name + " is missing");
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException nfe) {
+      throw new IllegalArgumentException(name + " is not a number");
+    }
+  }
+
+  /**
+   * This method checks the seed and index of a term.
+   *
+   * @param seed  the seed of the sequence.
+   * @param index the index of the term.
+   * @throws IllegalArgumentException If the seed is null or the index is negative or past
+   *                                  {@link #MAX_INDEX}.
+   */
+  private static void check(DigitSequence seed, int index) throws IllegalArgumentException {
+    if (seed == null) {
+      throw new IllegalArgumentException("seed cannot be null");
+    }
+    if (index < 0) {
+      throw new IllegalArgumentException("index cannot be negative");
+    }
+    if (index > MAX_INDEX) {
+      throw new IllegalArgumentException("index cannot exceed " + MAX_INDEX);
+    }
+  }
+}
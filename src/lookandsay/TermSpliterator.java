@@ -0,0 +1,107 @@
+package lookandsay;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * The terms an iterator hands out with next() from its current term until the end value, as a
+ * spliterator. The terms are walked by a copy of the iterator, so the iterator itself does not
+ * move. A split keeps the last few terms and gives away the ones before them: the terms grow by
+ * Conway's constant, about 1.3, at every step, so the last three hold about as many digits as all
+ * the earlier ones together. The kept part starts from a further copy moved ahead with
+ * {@link AbstractTermIterator#skip}, which expands atoms instead of reading every term in between.
+ *
+ * @param <T> the type of the values handed out for the terms.
+ */
+final class TermSpliterator<T> implements Spliterator<T> {
+
+  /**
+   * The number of terms past which the length of a term doubles.
+   */
+  private static final int DOUBLING_TERMS = 3;
+
+  private AbstractTermIterator<T> walker;
+  private final long fence;
+
+  /**
+   * This constructor covers the terms of a walker up to a given index.
+   *
+   * @param walker the iterator walking the terms, which no one else uses.
+   * @param fence  the index after the last term covered, or Long.MAX_VALUE to go up to the end
+   *               value.
+   */
+  TermSpliterator(AbstractTermIterator<T> walker, long fence) {
+    this.walker = walker;
+    this.fence = fence;
+  }
+
+  /**
+   * This method hands the next term to the action, if there is one.
+   *
+   * @param action the action taking the term.
+   * @return true if a term was handed over.
+   */
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    if (walker.termIndex() >= fence || !walker.hasNext()) {
+      return false;
+    }
+    action.accept(walker.next());
+    return true;
+  }
+
+  /**
+   * This method hands all the remaining terms to the action, in order.
+   *
+   * @param action the action taking the terms.
+   */
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    while (walker.termIndex() < fence && walker.hasNext()) {
+      action.accept(walker.next());
+    }
+  }
+
+  /**
+   * This method gives away all but the last few remaining terms, moving a copy of the walker
+   * ahead to the first term kept.
+   *
+   * @return a spliterator over the terms given away, or null if too few terms remain.
+   */
+  @Override
+  public Spliterator<T> trySplit() {
+    long size = estimateSize();
+    if (size <= DOUBLING_TERMS) {
+      return null;
+    }
+    long middle = walker.termIndex() + size - DOUBLING_TERMS;
+    AbstractTermIterator<T> ahead = walker.fork();
+    ahead.advanceTo(middle);
+    TermSpliterator<T> prefix = new TermSpliterator<T>(walker, middle);
+    walker = ahead;
+    return prefix;
+  }
+
+  /**
+   * This method estimates the number of terms left from the lengths of the current term and of
+   * the end value.
+   *
+   * @return the estimated number of terms left.
+   */
+  @Override
+  public long estimateSize() {
+    long left = walker.termsLeft();
+    return fence == Long.MAX_VALUE ? left : Math.min(left, Math.max(0, fence - walker.termIndex()));
+  }
+
+  /**
+   * This method yields the characteristics of the terms: ordered, never null and never changed.
+   * The number of terms is only estimated.
+   *
+   * @return the characteristics.
+   */
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL | IMMUTABLE;
+  }
+}
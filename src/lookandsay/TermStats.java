@@ -0,0 +1,81 @@
+package lookandsay;
+
+/**
+ * Statistics of one term of a look-and-say sequence: how often each digit occurs, how many runs
+ * the term is made of and whether it can be read as (count, digit) pairs. They are gathered in a
+ * single pass over the digits and never change afterwards.
+ */
+final class TermStats {
+
+  private final long[] histogram;
+  private final long runs;
+  private final boolean decodable;
+
+  /**
+   * This constructor takes the gathered statistics.
+   *
+   * @param histogram the number of occurrences of each digit.
+   * @param runs      the number of runs.
+   * @param decodable whether the term reads as pairs without a zero count.
+   */
+  private TermStats(long[] histogram, long runs, boolean decodable) {
+    this.histogram = histogram;
+    this.runs = runs;
+    this.decodable = decodable;
+  }
+
+  /**
+   * This method gathers the statistics of a term.
+   *
+   * @param term the digits of the term.
+   * @return the statistics of the term.
+   */
+  static TermStats of(DigitBuffer term) {
+    byte[] digits = term.digits;
+    long[] histogram = new long[10];
+    long runs = 0;
+    int previous = -1;
+    for (int i = 0; i < term.length; i++) {
+      int digit = digits[i];
+      histogram[digit]++;
+      if (digit != previous) {
+        runs++;
+        previous = digit;
+      }
+    }
+    boolean decodable = term.length % 2 == 0;
+    for (int i = 0; decodable && i < term.length; i += 2) {
+      decodable = digits[i] != 0;
+    }
+    return new TermStats(histogram, runs, decodable);
+  }
+
+  /**
+   * This method yields how often a digit occurs in the term.
+   *
+   * @param digit the digit, from 0 to 9.
+   * @return the number of occurrences.
+   */
+  long digitCount(int digit) {
+    return histogram[digit];
+  }
+
+  /**
+   * This method yields the number of runs of equal digits in the term.
+   *
+   * @return the number of runs.
+   */
+  long runs() {
+    return runs;
+  }
+
+  /**
+   * This method tells whether the term has an even number of digits and no zero among its counts,
+   * so that it is the reading out loud of the term before it.
+   *
+   * @return true if the term reads as (count, digit) pairs with non zero counts.
+   */
+  boolean decodable() {
+    return decodable;
+  }
+}
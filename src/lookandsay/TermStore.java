@@ -0,0 +1,174 @@
+package lookandsay;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The first terms of a look-and-say sequence computed once and kept in a file, so that an iterator
+ * can start from any of them at once instead of stepping there from the seed. The file starts with
+ * a four byte magic number, a version byte and the number of terms as four bytes, followed by the
+ * position of every term's frame as eight bytes each, and then the frames themselves in the format
+ * described for {@link TermCheckpoint}, each with its own checksum.
+ */
+public final class TermStore {
+
+  /**
+   * "LSTS" in ASCII.
+   */
+  private static final int MAGIC = 0x4C535453;
+
+  private static final byte VERSION = 1;
+
+  /**
+   * The number of bytes in front of the table of positions.
+   */
+  private static final int HEADER = Integer.BYTES + 1 + Integer.BYTES;
+
+  private final Path path;
+  private final long[] positions;
+
+  /**
+   * This constructor wraps a file that has already been written.
+   *
+   * @param path      the file holding the terms.
+   * @param positions the position of the frame of every term.
+   */
+  private TermStore(Path path, long[] positions) {
+    this.path = path;
+    this.positions = positions;
+  }
+
+  /**
+   * This method computes the first terms of the sequence starting at a seed and writes them into a
+   * new file.
+   *
+   * @param path  the file to create or overwrite.
+   * @param seed  the first term of the sequence.
+   * @param count the number of terms to keep, the seed included.
+   * @return the store.
+   * @throws IOException              If the file cannot be written.
+   * @throws IllegalArgumentException If the seed is null or negative or count is not positive.
+   */
+  public static TermStore create(Path path, BigInteger seed, int count) throws IOException {
+    if (seed == null || seed.signum() < 0 || count < 1) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    long[] positions = new long[count];
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      channel.position(HEADER + (long) count * Long.BYTES);
+      DigitBuffer current = DigitBuffer.valueOf(seed);
+      DigitBuffer spare = new DigitBuffer(2 * current.length);
+      for (int term = 0; term < count; term++) {
+        positions[term] = channel.position();
+        TermCheckpoint.writeFrame(channel, current, term, term);
+        if (term + 1 < count) {
+          DigitKernel.encode(current, spare);
+          DigitBuffer written = spare;
+          spare = current;
+          current = written;
+        }
+      }
+      ByteBuffer table = ByteBuffer.allocate(HEADER + count * Long.BYTES);
+      table.putInt(MAGIC).put(VERSION).putInt(count);
+      for (long position : positions) {
+        table.putLong(position);
+      }
+      table.flip();
+      while (table.hasRemaining()) {
+        channel.write(table, table.position());
+      }
+    }
+    return new TermStore(path, positions);
+  }
+
+  /**
+   * This method opens a file written earlier by this class. Only the table of positions is read;
+   * the terms are read when they are asked for.
+   *
+   * @param path the file holding the terms.
+   * @return the store.
+   * @throws IOException If the file cannot be read or is not a term store.
+   */
+  public static TermStore open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER);
+      TermCheckpoint.readFully(channel, header, 0, path);
+      int count = header.getInt(Integer.BYTES + 1);
+      if (header.getInt(0) != MAGIC || header.get(Integer.BYTES) != VERSION || count < 1) {
+        throw new IOException("not a term store: " + path);
+      }
+      ByteBuffer table = ByteBuffer.allocate(count * Long.BYTES);
+      TermCheckpoint.readFully(channel, table, HEADER, path);
+      long[] positions = new long[count];
+      table.flip().asLongBuffer().get(positions);
+      return new TermStore(path, positions);
+    }
+  }
+
+  /**
+   * This method yields the number of terms kept.
+   *
+   * @return the number of terms, the seed included.
+   */
+  public int size() {
+    return positions.length;
+  }
+
+  /**
+   * This method reads one term.
+   *
+   * @param term the index of the term, the seed being term 0.
+   * @return the digits of the term.
+   * @throws IOException               If the file cannot be read or the term is damaged.
+   * @throws IndexOutOfBoundsException If the store does not hold the term.
+   */
+  public DigitSequence term(int term) throws IOException {
+    return DigitSequence.of(read(term).term);
+  }
+
+  /**
+   * This method starts an iterator at one of the terms kept, as if it had been stepped there from
+   * the seed.
+   *
+   * @param term the index of the term to start at.
+   * @param end  the end value.
+   * @return an iterator standing on the term.
+   * @throws IOException               If the file cannot be read or the term is damaged.
+   * @throws IndexOutOfBoundsException If the store does not hold the term.
+   * @throws IllegalArgumentException  If the end is null or less than the term.
+   */
+  public LookAndSayIterator iterator(int term, BigInteger end) throws IOException {
+    if (end == null) {
+      throw new IllegalArgumentException("end cannot be null");
+    }
+    TermCheckpoint frame = read(term);
+    DigitBuffer bound = DigitBuffer.valueOf(end);
+    if (end.signum() < 0 || frame.term.compareTo(bound) > 0) {
+      throw new IllegalArgumentException("invalid argument");
+    }
+    return new LookAndSayIterator(
+            new TermCheckpoint(frame.term, frame.index, frame.age, bound));
+  }
+
+  /**
+   * This method reads the frame of one term.
+   *
+   * @param term the index of the term.
+   * @return the frame.
+   * @throws IOException               If the file cannot be read or the term is damaged.
+   * @throws IndexOutOfBoundsException If the store does not hold the term.
+   */
+  private TermCheckpoint read(int term) throws IOException {
+    if (term < 0 || term >= positions.length) {
+      throw new IndexOutOfBoundsException("no term " + term);
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return TermCheckpoint.readFrame(channel, positions[term], path);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package lookandsay;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The flight recorder event of building the value handed out for a term, which for a BigInteger
+ * means a conversion from decimal to binary that can take longer than the step itself.
+ */
+@Name("lookandsay.Value")
+@Label("Look-and-Say Value")
+@Category("Look-and-Say")
+@Description("The value handed out for a term was built from its digits")
+@StackTrace(false)
+final class ValueEvent extends Event {
+
+  @Label("Digits")
+  long digits;
+
+  @Label("Size")
+  @DataAmount
+  long bytes;
+}
@@ -0,0 +1,64 @@
+package lookandsay;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A run boundary scan built on the incubating Vector API. A whole vector of digits is compared
+ * with the same digits shifted by one, and the lanes of the resulting mask are the ends of the
+ * runs inside the vector, 16 to 64 digits per comparison depending on the hardware. Comparing with
+ * the digits shifted by two and three as well finds every lane where a run of four or more
+ * starts. This class
+ * must only be loaded when the jdk.incubator.vector module is present; {@link DigitKernel} checks
+ * that before using it.
+ */
+final class VectorKernel {
+
+  private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+  /**
+   * This class only holds static helpers.
+   */
+  private VectorKernel() {
+  }
+
+  /**
+   * Counts the places inside a range where a digit differs from the one after it, as
+   * {@link SwarKernel#boundaries} does.
+   *
+   * @param in   the digits to scan.
+   * @param from the first digit of the range.
+   * @param to   the end of the range, exclusive.
+   * @return the number of run boundaries, or -1 if the range holds a run of four or more.
+   */
+  static long boundaries(byte[] in, int from, int to) {
+    int lanes = SPECIES.length();
+    long count = 0;
+    int i = from;
+    while (i + lanes + 3 <= to) {
+      ByteVector here = ByteVector.fromArray(SPECIES, in, i);
+      VectorMask<Byte> same =
+              here.compare(VectorOperators.EQ, ByteVector.fromArray(SPECIES, in, i + 1));
+      VectorMask<Byte> four = same
+              .and(here.compare(VectorOperators.EQ, ByteVector.fromArray(SPECIES, in, i + 2)))
+              .and(here.compare(VectorOperators.EQ, ByteVector.fromArray(SPECIES, in, i + 3)));
+      if (four.anyTrue()) {
+        return -1;
+      }
+      count += lanes - same.trueCount();
+      i += lanes;
+    }
+    return DigitKernel.boundariesTail(in, i, to, count);
+  }
+
+  /**
+   * This method tells whether the vector kernel can be used on this machine.
+   *
+   * @return true if the preferred vector shape holds at least 16 digits.
+   */
+  static boolean usable() {
+    return SPECIES.length() >= 16;
+  }
+}
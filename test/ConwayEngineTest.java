@@ -0,0 +1,152 @@
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.PrimitiveIterator;
+
+import lookandsay.ConwayEngine;
+import lookandsay.LookAndSayIterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This Class is used to check the Implementation of the ConwayEngine.
+ */
+public class ConwayEngineTest {
+
+  /**
+   * This method compares the lengths and digit counts predicted by the engine with the terms
+   * produced by a LookAndSayIterator started from the same seed, for as long as the terms stay
+   * below the end value of the iterator.
+   *
+   * @param seed  the seed of both sequences.
+   * @param terms the number of terms to compare.
+   */
+  private void compareWithIterator(String seed, int terms) {
+    ConwayEngine engine = new ConwayEngine(new BigInteger(seed));
+    LookAndSayIterator iterator = new LookAndSayIterator(new BigInteger(seed),
+            BigInteger.TEN.pow(100000));
+    for (int n = 0; n < terms && iterator.hasNext(); n++) {
+      String term = iterator.next().toString();
+      assertEquals(BigInteger.valueOf(term.length()), engine.length(n));
+      BigInteger[] histogram = engine.histogram(n);
+      for (int digit = 0; digit < 10; digit++) {
+        long expected = 0;
+        for (int i = 0; i < term.length(); i++) {
+          if (term.charAt(i) - '0' == digit) {
+            expected++;
+          }
+        }
+        assertEquals(BigInteger.valueOf(expected), histogram[digit]);
+      }
+      for (int position = 0; position < term.length(); position += 1 + position / 50) {
+        assertEquals(term.charAt(position) - '0', engine.digitAt(n, position));
+      }
+    }
+  }
+
+  /**
+   * Test that the default sequence is described correctly term by term.
+   */
+  @Test
+  public void testDefaultSeedMatchesIterator() {
+    compareWithIterator("1", 45);
+  }
+
+  /**
+   * Test seeds with digits above 3, long runs and zeros, which go through transuranic and short
+   * lived atoms.
+   */
+  @Test
+  public void testUnusualSeedsMatchIterator() {
+    compareWithIterator("11221134411113344267", 35);
+    compareWithIterator("112321", 40);
+    compareWithIterator("11111111111111111111", 35);
+    compareWithIterator("1012", 35);
+    compareWithIterator("0", 35);
+    compareWithIterator("98765", 35);
+  }
+
+  /**
+   * Test that far away terms are answered by matrix powers and agree with stepping one term at a
+   * time.
+   */
+  @Test
+  public void testFarTermsGrowByConwaysConstant() {
+    ConwayEngine engine = new ConwayEngine();
+    BigInteger previous = engine.length(999);
+    BigInteger current = engine.length(1000);
+    double ratio = new BigDecimal(current)
+            .divide(new BigDecimal(previous), MathContext.DECIMAL64)
+            .doubleValue();
+    assertEquals(1.303577269034296, ratio, 1e-12);
+    BigInteger[] histogram = engine.histogram(1000);
+    assertEquals(current, histogram[1].add(histogram[2]).add(histogram[3]));
+    assertTrue(engine.length(4000).bitLength() > 1500);
+  }
+
+  /**
+   * Test that the engine rejects invalid input.
+   */
+  @Test
+  public void testInvalidArguments() {
+    try {
+      new ConwayEngine(null);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("seed cannot be null", iae.getMessage());
+    }
+    try {
+      new ConwayEngine(new BigInteger("-1"));
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("invalid argument", iae.getMessage());
+    }
+    try {
+      new ConwayEngine().length(-1);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("term index cannot be negative", iae.getMessage());
+    }
+    try {
+      new ConwayEngine().digitCount(3, 10);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("digit must be between 0 and 9", iae.getMessage());
+    }
+  }
+
+  /**
+   * Test that single digits of a far term agree with streaming that term, also through a chain of
+   * stages far longer than the call stack is deep, and that positions outside a term are rejected.
+   */
+  @Test
+  public void testDigitAtFarTerm() {
+    ConwayEngine engine = new ConwayEngine();
+    PrimitiveIterator.OfInt streamed = new LookAndSayIterator().digitsAhead(300);
+    for (int position = 0; position < 20000; position++) {
+      assertEquals(streamed.nextInt(), engine.digitAt(300, position));
+    }
+    streamed = new LookAndSayIterator().digitsAhead(20000);
+    for (int position = 0; position < 1000; position++) {
+      assertEquals(streamed.nextInt(), engine.digitAt(20000, position));
+    }
+    assertEquals(1, engine.digitAt(100000, 0));
+    assertEquals(2, engine.digitAt(2, 0));
+    try {
+      engine.digitAt(10, engine.length(10).longValue());
+      fail();
+    } catch (IndexOutOfBoundsException ioobe) {
+      assertEquals("no digit at this position", ioobe.getMessage());
+    }
+    try {
+      engine.digitAt(1, 2);
+      fail();
+    } catch (IndexOutOfBoundsException ioobe) {
+      assertEquals("no digit at 2", ioobe.getMessage());
+    }
+  }
+}
@@ -0,0 +1,200 @@
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import lookandsay.DigitSequence;
+import lookandsay.DigitSequenceIterator;
+import lookandsay.LookAndSayIterator;
+import lookandsay.TermEngine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This Class is used to check the Implementation of the DigitSequenceIterator and DigitSequence.
+ */
+public class DigitSequenceIteratorTest {
+
+  /**
+   * Test that the iterator walks forward and back exactly like the BigInteger one.
+   */
+  @Test
+  public void testMatchesLookAndSayIterator() {
+    String[] seeds = {"1", "11221134411113344267", "112321", "11111111111111111111", "1012", "0"};
+    for (String seed : seeds) {
+      BigInteger end = new BigInteger("10").pow(3000);
+      LookAndSayIterator expected = new LookAndSayIterator(new BigInteger(seed), end);
+      DigitSequenceIterator actual = new DigitSequenceIterator(DigitSequence.parse(seed),
+              DigitSequence.valueOf(end));
+      for (int i = 0; i < 25; i++) {
+        assertEquals(expected.hasNext(), actual.hasNext());
+        assertEquals(expected.next().toString(), actual.next().toString());
+      }
+      for (int i = 0; i < 30; i++) {
+        assertEquals(expected.hasPrevious(), actual.hasPrevious());
+        assertEquals(expected.prev(), actual.prev().toBigInteger());
+      }
+    }
+  }
+
+  /**
+   * Test the default constructor, the end value and the invalid arguments.
+   */
+  @Test
+  public void testBounds() {
+    DigitSequenceIterator iterator = new DigitSequenceIterator(DigitSequence.parse("1"),
+            DigitSequence.parse("21"));
+    assertTrue(iterator.hasNext());
+    iterator.next();
+    iterator.next();
+    assertFalse(iterator.hasNext());
+    assertEquals(DigitSequence.parse("21"), iterator.next());
+    assertEquals(DigitSequence.parse("1"), new DigitSequenceIterator().next());
+    try {
+      new DigitSequenceIterator(DigitSequence.parse("22"));
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("22 case.", iae.getMessage());
+    }
+    try {
+      new DigitSequenceIterator(DigitSequence.parse("100"), DigitSequence.parse("99"));
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("invalid argument", iae.getMessage());
+    }
+    try {
+      new DigitSequenceIterator(null);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("seed or end cannot be null", iae.getMessage());
+    }
+  }
+
+  /**
+   * Test DigitSequence as a character sequence, its ordering and its conversions.
+   */
+  @Test
+  public void testDigitSequence() {
+    DigitSequence number = DigitSequence.parse("00312211");
+    assertEquals("312211", number.toString());
+    assertEquals(6, number.length());
+    assertEquals('3', number.charAt(0));
+    assertEquals(2, number.digitAt(2));
+    assertEquals("0", DigitSequence.parse("000").toString());
+    assertEquals("221", number.subSequence(2, 5).toString());
+    assertEquals(new BigInteger("312211"), number.toBigInteger());
+    assertEquals(number, DigitSequence.valueOf(new BigInteger("312211")));
+    assertEquals(number.hashCode(), DigitSequence.valueOf(new BigInteger("312211")).hashCode());
+    assertTrue(number.compareTo(DigitSequence.parse("99999")) > 0);
+    assertTrue(number.compareTo(DigitSequence.parse("312212")) < 0);
+    assertEquals(0, number.compareTo(DigitSequence.parse("312211")));
+    try {
+      DigitSequence.parse("12a");
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("invalid argument", iae.getMessage());
+    }
+    try {
+      DigitSequence.valueOf(BigInteger.ONE.negate());
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("invalid argument", iae.getMessage());
+    }
+  }
+
+  /**
+   * Test that the digit and character streams of a long number give its digits in order, also
+   * when run in parallel.
+   */
+  @Test
+  public void testDigitStreams() {
+    DigitSequenceIterator iterator = new DigitSequenceIterator();
+    iterator.advanceTo(50);
+    DigitSequence term = iterator.next();
+    String text = term.toString();
+    StringBuilder joined = new StringBuilder();
+    term.digits().forEachOrdered(joined::append);
+    assertEquals(text, joined.toString());
+    assertEquals(text, term.chars().parallel()
+            .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+            .toString());
+    assertEquals(text.chars().filter(digit -> digit == '1').count(),
+            term.digits().parallel().filter(digit -> digit == 1).count());
+  }
+
+  /**
+   * Test that the terms put together from their atoms are those found by scanning the digits,
+   * also after walking back and forth.
+   */
+  @Test
+  public void testAtomStepsMatchDigitScan() {
+    String[] seeds = {"1", "3", "11221134411113344267"};
+    DigitSequence end = DigitSequence.parse("1" + "0".repeat(100000));
+    for (String seed : seeds) {
+      DigitSequenceIterator atoms = new DigitSequenceIterator(DigitSequence.parse(seed), end);
+      DigitSequenceIterator scanned = new DigitSequenceIterator(DigitSequence.parse(seed), end);
+      atoms.forceEngine(TermEngine.ATOMS);
+      scanned.forceEngine(TermEngine.DIGITS);
+      for (int step = 0; step < 40; step++) {
+        assertEquals(scanned.next(), atoms.next());
+        if (step % 7 == 6) {
+          assertEquals(scanned.prev(), atoms.prev());
+          assertEquals(scanned.prev(), atoms.prev());
+          assertEquals(scanned.next(), atoms.next());
+        }
+      }
+      assertEquals(TermEngine.ATOMS, atoms.engine());
+      assertEquals(TermEngine.DIGITS, scanned.engine());
+    }
+  }
+
+  /**
+   * Test that decoding large terms in parallel chunks yields exactly the terms of the sequential
+   * decoder, with and without a history, including long counts at chunk boundaries, counts of
+   * zero and leading zeros that have to be dropped.
+   */
+  @Test
+  public void testParallelDecodingMatchesSequential() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    DigitSequence end = DigitSequence.parse("1" + "0".repeat(1000000));
+    for (long history : new long[] {0, 1 << 26}) {
+      DigitSequenceIterator sequential = new DigitSequenceIterator(DigitSequence.parse("1"), end);
+      DigitSequenceIterator parallel =
+              new DigitSequenceIterator(DigitSequence.parse("1"), end, pool);
+      sequential.keepHistory(history);
+      parallel.keepHistory(history);
+      sequential.advanceTo(48);
+      parallel.advanceTo(48);
+      while (sequential.hasPrevious()) {
+        assertEquals(sequential.prev(), parallel.prev());
+      }
+      assertEquals(sequential.termIndex(), parallel.termIndex());
+    }
+    StringBuilder pairs = new StringBuilder("1020");
+    Random random = new Random(42);
+    while (pairs.length() < 300000) {
+      pairs.append(1 + random.nextInt(9)).append(random.nextInt(10));
+    }
+    DigitSequence seed = DigitSequence.parse(pairs);
+    DigitSequence larger = DigitSequence.parse("1" + "0".repeat(2000000));
+    DigitSequenceIterator sequential = new DigitSequenceIterator(seed, larger);
+    DigitSequenceIterator parallel = new DigitSequenceIterator(seed, larger, pool);
+    sequential.prev();
+    parallel.prev();
+    assertEquals(sequential.next(), parallel.next());
+    StringBuilder zeros = new StringBuilder();
+    while (zeros.length() < 300000) {
+      zeros.append(random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(3)).append(random.nextInt(10));
+    }
+    seed = DigitSequence.parse("11" + zeros);
+    sequential = new DigitSequenceIterator(seed, larger);
+    parallel = new DigitSequenceIterator(seed, larger, pool);
+    assertEquals(sequential.prev(), parallel.prev());
+    assertEquals(sequential.next(), parallel.next());
+    pool.shutdown();
+  }
+}
@@ -0,0 +1,136 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import lookandsay.DigitSequence;
+import lookandsay.DigitSequenceIterator;
+import lookandsay.EngineProfile;
+import lookandsay.LookAndSayIterator;
+import lookandsay.TermEngine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This Class is used to check the Implementation of the EngineProfile and TermEngine.
+ */
+public class EngineProfileTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Test that every engine yields the same terms and that the iterator tells which one it used.
+   */
+  @Test
+  public void testEnginesAgree() {
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      DigitSequence end = DigitSequence.parse("1" + "0".repeat(200000));
+      DigitSequenceIterator expected = new DigitSequenceIterator(DigitSequence.parse("1"), end);
+      expected.forceEngine(TermEngine.DIGITS);
+      DigitSequenceIterator[] actual = new DigitSequenceIterator[3];
+      for (int i = 0; i < actual.length; i++) {
+        actual[i] = new DigitSequenceIterator(DigitSequence.parse("1"), end, pool);
+        actual[i].forceEngine(TermEngine.values()[i]);
+      }
+      while (expected.hasNext()) {
+        DigitSequence term = expected.next();
+        for (DigitSequenceIterator iterator : actual) {
+          assertEquals(term, iterator.next());
+        }
+      }
+      assertEquals(TermEngine.DIGITS, actual[0].engine());
+      assertEquals(TermEngine.ATOMS, actual[1].engine());
+      assertEquals(TermEngine.PARALLEL, actual[2].engine());
+      for (int step = 0; step < 10; step++) {
+        DigitSequence term = expected.prev();
+        for (DigitSequenceIterator iterator : actual) {
+          assertEquals(term, iterator.prev());
+        }
+      }
+      assertEquals(TermEngine.DIGITS, actual[1].engine());
+      assertEquals(TermEngine.PARALLEL, actual[2].engine());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Test that the engine is chosen from the profile, and not at all for terms kept in the history.
+   */
+  @Test
+  public void testChoiceFollowsProfile() {
+    LookAndSayIterator iterator = new LookAndSayIterator(BigInteger.ONE,
+            BigInteger.TEN.pow(100000));
+    assertNull(iterator.engine());
+    for (int step = 0; step < 30; step++) {
+      iterator.next();
+    }
+    assertEquals(TermEngine.ATOMS, iterator.engine());
+    iterator.chooseEngines(new EngineProfile(1, 0.1, 0.1, 0));
+    iterator.next();
+    assertEquals(TermEngine.DIGITS, iterator.engine());
+    iterator.keepHistory(1 << 20);
+    iterator.next();
+    iterator.prev();
+    iterator.prev();
+    iterator.next();
+    assertNull(iterator.engine());
+    try {
+      iterator.chooseEngines(null);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("profile cannot be null", iae.getMessage());
+    }
+  }
+
+  /**
+   * Test that a profile survives being saved and loaded, and that measured speeds are positive.
+   */
+  @Test
+  public void testSaveLoadCalibrate() throws IOException {
+    Path path = folder.getRoot().toPath().resolve("engines.properties");
+    EngineProfile profile = new EngineProfile(0.25, 1.5, 0.75, 4096);
+    profile.save(path);
+    EngineProfile loaded = EngineProfile.load(path);
+    assertEquals(profile.toString(), loaded.toString());
+    assertEquals(4096, loaded.parallelFrom());
+    Files.writeString(path, "digitsRate=fast\n");
+    try {
+      EngineProfile.load(path);
+      fail();
+    } catch (IOException ioe) {
+      assertEquals("not an engine profile: " + path, ioe.getMessage());
+    }
+    try {
+      new EngineProfile(0, 1, 1, 0);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("invalid argument", iae.getMessage());
+    }
+    try {
+      EngineProfile.calibrate(null);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("pool cannot be null", iae.getMessage());
+    }
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      EngineProfile measured = EngineProfile.calibrate(pool);
+      assertTrue(measured.digitsRate() > 0);
+      assertTrue(measured.atomsRate() > 0);
+      assertTrue(measured.parallelRate() > 0);
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
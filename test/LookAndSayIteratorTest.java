@@ -2,11 +2,25 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.math.BigInteger;
-
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import lookandsay.LookAndSayIterator;
 import lookandsay.RIterator;
+import lookandsay.TermCounters;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -394,5 +408,352 @@ public class LookAndSayIteratorTest {
 
   }
 
+  /**
+   * Test that long terms are produced correctly and that walking back from them returns the very
+   * same terms that were seen on the way forward.
+   */
+  @Test
+  public void testLongTermsRoundTrip() {
+    RIterator lookAndSayIterator = new LookAndSayIterator(new BigInteger("1"),
+            new BigInteger("10").pow(70000));
+    BigInteger[] seen = new BigInteger[40];
+    for (int i = 0; i < 40; i++) {
+      seen[i] = (BigInteger) lookAndSayIterator.next();
+    }
+    assertEquals(63138, seen[39].toString().length());
+    assertEquals(82350, lookAndSayIterator.prev().toString().length());
+    for (int i = 39; i > 0; i--) {
+      assertEquals(seen[i], lookAndSayIterator.prev());
+    }
+  }
+
+  /**
+   * Test that walking back from a term whose pairs ask for runs of every length from one to nine
+   * writes out each run in full.
+   */
+  @Test
+  public void testPrevWithLongRuns() {
+    StringBuilder pairs = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      int count = 1 + i % 9;
+      int digit = 1 + i * 7 % 9;
+      pairs.append(count).append(digit);
+      for (int j = 0; j < count; j++) {
+        expected.append(digit);
+      }
+    }
+    RIterator lookAndSayIterator = new LookAndSayIterator(new BigInteger(pairs.toString()),
+            new BigInteger("10").pow(5000));
+    lookAndSayIterator.prev();
+    assertEquals(new BigInteger(expected.toString()), lookAndSayIterator.prev());
+  }
+
+  /**
+   * Test the statistics kept for the current term and that they follow the iterator.
+   */
+  @Test
+  public void testTermStatistics() {
+    LookAndSayIterator lookAndSayIterator = new LookAndSayIterator(new BigInteger("112321"));
+    assertEquals(6, lookAndSayIterator.length());
+    assertEquals(5, lookAndSayIterator.runCount());
+    assertEquals(3, lookAndSayIterator.digitCount(1));
+    assertEquals(2, lookAndSayIterator.digitCount(2));
+    assertEquals(0, lookAndSayIterator.digitCount(9));
+    assertEquals(true, lookAndSayIterator.isDecodable());
+    lookAndSayIterator.next();
+    assertEquals(10, lookAndSayIterator.length());
+    assertEquals(8, lookAndSayIterator.runCount());
+    assertEquals(6, lookAndSayIterator.digitCount(1));
+    lookAndSayIterator.prev();
+    assertEquals(5, lookAndSayIterator.runCount());
+
+    LookAndSayIterator zeroCount = new LookAndSayIterator(new BigInteger("1102"));
+    assertEquals(true, zeroCount.hasPrevious());
+    assertEquals(false, zeroCount.isDecodable());
+    assertEquals(false, new LookAndSayIterator(new BigInteger("123")).isDecodable());
+    try {
+      zeroCount.digitCount(10);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("digit must be between 0 and 9", iae.getMessage());
+    }
+  }
+
+  /**
+   * Test that an iterator keeping its history walks through exactly the same terms as one that
+   * does not, for seeds whose steps cannot always be undone and for budgets small enough to drop
+   * terms all the time.
+   */
+  @Test
+  public void testHistoryMatchesPlainIterator() {
+    String[] seeds = {"1", "1111", "11111111111", "3113", "20", "10"};
+    long[] budgets = {1, 200, 1 << 20};
+    java.util.Random random = new java.util.Random(7);
+    for (String seed : seeds) {
+      for (long budget : budgets) {
+        RIterator plain = new LookAndSayIterator(new BigInteger(seed),
+                new BigInteger("10").pow(3000));
+        LookAndSayIterator kept = new LookAndSayIterator(new BigInteger(seed),
+                new BigInteger("10").pow(3000));
+        kept.keepHistory(budget);
+        for (int step = 0; step < 400; step++) {
+          assertEquals(plain.hasNext(), kept.hasNext());
+          assertEquals(plain.hasPrevious(), kept.hasPrevious());
+          if (random.nextInt(5) < 3) {
+            assertEquals(plain.next(), kept.next());
+          } else {
+            assertEquals(plain.prev(), kept.prev());
+          }
+        }
+        kept.keepHistory(0);
+        assertEquals(plain.next(), kept.next());
+      }
+    }
+    try {
+      new LookAndSayIterator().keepHistory(-1);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("history size cannot be negative", iae.getMessage());
+    }
+  }
+
+  /**
+   * Test that streaming a term ahead yields the same digits as stepping to it, without moving the
+   * iterator.
+   */
+  @Test
+  public void testDigitsAhead() {
+    LookAndSayIterator lookAndSayIterator = new LookAndSayIterator(
+            new BigInteger("11221134411113344267"), new BigInteger("10").pow(5000));
+    LookAndSayIterator stepper = new LookAndSayIterator(
+            new BigInteger("11221134411113344267"), new BigInteger("10").pow(5000));
+    for (int steps = 0; steps < 15; steps++) {
+      StringBuilder streamed = new StringBuilder();
+      lookAndSayIterator.digitsAhead(steps).forEachRemaining((int digit) -> streamed.append(digit));
+      assertEquals(stepper.next().toString(), streamed.toString());
+    }
+    assertEquals(new BigInteger("11221134411113344267"), lookAndSayIterator.next());
+    assertEquals(0, new LookAndSayIterator().digitStreamAhead(200).limit(100000)
+            .filter(digit -> digit < 1 || digit > 3).count());
+  }
+
+  /**
+   * Test that streaming ahead from a term with runs of ten digits or more, whose counts take two
+   * or three digits and may run into the digits around them, yields the terms next would.
+   */
+  @Test
+  public void testDigitsAheadLongRuns() {
+    String seed = "1".repeat(111) + "2".repeat(12) + "1" + "3".repeat(10) + "0".repeat(21);
+    BigInteger end = new BigInteger("10").pow(5000);
+    LookAndSayIterator stepper = new LookAndSayIterator(new BigInteger(seed), end);
+    LookAndSayIterator streamer = new LookAndSayIterator(new BigInteger(seed), end);
+    for (int steps = 0; steps < 20; steps++) {
+      StringBuilder streamed = new StringBuilder();
+      streamer.digitsAhead(steps).forEachRemaining((int digit) -> streamed.append(digit));
+      assertEquals(stepper.next().toString(), streamed.toString());
+    }
+  }
+
+  /**
+   * Test that encoding large terms in parallel chunks yields exactly the terms of the sequential
+   * iterator, including a seed whose long runs straddle chunk boundaries.
+   */
+  @Test
+  public void testParallelEncodingMatchesSequential() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    StringBuilder runs = new StringBuilder();
+    while (runs.length() < 70000) {
+      runs.append("1111111111111").append("22222222222222222222").append("3");
+    }
+    String[] seeds = {"1", runs.toString()};
+    int[] steps = {44, 3};
+    BigInteger end = new BigInteger("10").pow(200000);
+    for (int i = 0; i < seeds.length; i++) {
+      RIterator sequential = new LookAndSayIterator(new BigInteger(seeds[i]), end);
+      RIterator parallel = new LookAndSayIterator(new BigInteger(seeds[i]), end, pool);
+      for (int step = 0; step < steps[i]; step++) {
+        assertEquals(sequential.next(), parallel.next());
+      }
+    }
+    pool.shutdown();
+    try {
+      new LookAndSayIterator(BigInteger.ONE, BigInteger.TEN, null);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("pool cannot be null", iae.getMessage());
+    }
+  }
+
+  /**
+   * Test that skipping and advancing land on the same terms as repeated calls to next, including
+   * long skips made by expanding atoms, and that they stop at the end value.
+   */
+  @Test
+  public void testSkipMatchesNext() {
+    String[] seeds = {"1", "3", "11221134411113344267", "1111111111", "0"};
+    BigInteger end = new BigInteger("10").pow(20000);
+    for (String seed : seeds) {
+      for (int steps : new int[] {0, 1, 3, 5, 17, 40}) {
+        LookAndSayIterator skipper = new LookAndSayIterator(new BigInteger(seed), end);
+        LookAndSayIterator stepper = new LookAndSayIterator(new BigInteger(seed), end);
+        skipper.next();
+        skipper.next();
+        long taken = skipper.skip(steps);
+        long expected = 0;
+        for (int step = 0; step < steps + 2 && stepper.hasNext(); step++) {
+          stepper.next();
+          expected += step >= 2 ? 1 : 0;
+        }
+        assertEquals(expected, taken);
+        assertEquals(stepper.termIndex(), skipper.termIndex());
+        assertEquals(stepper.next(), skipper.next());
+      }
+    }
+    LookAndSayIterator bounded = new LookAndSayIterator(BigInteger.ONE, new BigInteger("10").pow(300));
+    LookAndSayIterator stepper = new LookAndSayIterator(BigInteger.ONE, new BigInteger("10").pow(300));
+    long steps = 0;
+    while (stepper.hasNext()) {
+      stepper.next();
+      steps++;
+    }
+    assertEquals(steps, bounded.skip(1000));
+    assertEquals(false, bounded.hasNext());
+    assertEquals(stepper.next(), bounded.next());
+    LookAndSayIterator advancer = new LookAndSayIterator(BigInteger.ONE, new BigInteger("10").pow(300));
+    assertEquals(new BigInteger("111221"), advancer.advanceTo(4));
+    assertEquals(new BigInteger("312211"), advancer.advanceTo(5));
+    assertEquals(5, advancer.termIndex());
+    try {
+      advancer.advanceTo(4);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("term index is behind the current term", iae.getMessage());
+    }
+    try {
+      advancer.skip(-1);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("steps cannot be negative", iae.getMessage());
+    }
+  }
+
+  /**
+   * Test that a batch holds the terms next would return and stops at the end value.
+   */
+  @Test
+  public void testNextBatch() {
+    LookAndSayIterator batcher = new LookAndSayIterator(BigInteger.ONE, new BigInteger("1000000"));
+    assertEquals(Arrays.asList(new BigInteger("1"), new BigInteger("11"), new BigInteger("21")),
+            batcher.nextBatch(3));
+    assertEquals(Arrays.asList(new BigInteger("1211"), new BigInteger("111221"),
+            new BigInteger("312211")), batcher.nextBatch(10));
+    assertEquals(0, batcher.nextBatch(10).size());
+    try {
+      batcher.nextBatch(-1);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("count cannot be negative", iae.getMessage());
+    }
+  }
+
+  /**
+   * Test that the stream of terms, sequential or parallel, holds the terms next would return
+   * without moving the iterator, and that the digit stream of a term splits.
+   */
+  @Test
+  public void testStream() {
+    BigInteger end = new BigInteger("10").pow(20000);
+    LookAndSayIterator streamed = new LookAndSayIterator(new BigInteger("3"), end);
+    streamed.next();
+    List<BigInteger> expected = new ArrayList<BigInteger>();
+    LookAndSayIterator stepper = new LookAndSayIterator(new BigInteger("3"), end);
+    stepper.next();
+    while (stepper.hasNext()) {
+      expected.add(stepper.next());
+    }
+    assertEquals(expected, streamed.stream().collect(Collectors.toList()));
+    assertEquals(expected, streamed.stream().parallel().collect(Collectors.toList()));
+    assertEquals(new BigInteger("13"), streamed.next());
+    Spliterator<BigInteger> spliterator = streamed.stream().spliterator();
+    assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+    assertTrue(Math.abs(spliterator.estimateSize() - (expected.size() - 1)) <= 3);
+    while (streamed.hasNext()) {
+      streamed.next();
+    }
+    assertEquals(0, streamed.stream().count());
+    String digits = streamed.next().toString();
+    assertEquals(digits.chars().map(digit -> digit - '0').sum(),
+            streamed.digitStream().parallel().sum());
+    assertEquals(digits.length(), streamed.digitStream().spliterator().getExactSizeIfKnown());
+  }
+
+  /**
+   * Test that the counters see every move, the digits read and written and the allocations, and
+   * that moves served from the history read nothing.
+   */
+  @Test
+  public void testMetrics() {
+    TermCounters counters = new TermCounters();
+    LookAndSayIterator iterator = new LookAndSayIterator(BigInteger.ONE, new BigInteger("10").pow(300));
+    iterator.recordMetrics(counters);
+    long read = 0;
+    for (int step = 0; step < 10; step++) {
+      read += iterator.length();
+      iterator.next();
+    }
+    assertEquals(10, counters.nextCalls());
+    assertEquals(read, counters.digitsEncoded());
+    assertTrue(counters.growth() > 1);
+    assertTrue(counters.bytesAllocated() > 0);
+    iterator.keepHistory(1 << 20);
+    iterator.prev();
+    long decoded = counters.digitsDecoded();
+    iterator.next();
+    iterator.prev();
+    assertEquals(2, counters.prevCalls());
+    assertEquals(decoded, counters.digitsDecoded());
+    assertEquals(11, Arrays.stream(counters.nextLatencies()).sum());
+    assertEquals(2, Arrays.stream(counters.prevLatencies()).sum());
+    iterator.skip(5);
+    assertEquals(1, counters.skipCalls());
+    assertEquals(5, counters.stepsSkipped());
+    iterator.recordMetrics(null);
+    iterator.next();
+    assertEquals(11, counters.nextCalls());
+  }
+
+  /**
+   * Test that a flight recording that enables the step and value events receives them.
+   */
+  @Test
+  public void testFlightRecorderEvents() throws Exception {
+    Path file = Files.createTempFile("lookandsay", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("lookandsay.Step").withThreshold(Duration.ZERO);
+      recording.enable("lookandsay.Value").withThreshold(Duration.ZERO);
+      recording.start();
+      LookAndSayIterator iterator = new LookAndSayIterator();
+      for (int step = 0; step < 5; step++) {
+        iterator.next();
+      }
+      iterator.prev();
+      iterator.skip(4);
+      recording.stop();
+      recording.dump(file);
+    }
+    int steps = 0;
+    int values = 0;
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      if (event.getEventType().getName().equals("lookandsay.Step")) {
+        steps++;
+      } else if (event.getEventType().getName().equals("lookandsay.Value")) {
+        values++;
+      }
+    }
+    Files.delete(file);
+    assertEquals(7, steps);
+    assertEquals(5, values);
+  }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import lookandsay.DigitSequence;
+import lookandsay.DigitSequenceIterator;
+import lookandsay.LookAndSayIterator;
+import lookandsay.PackedTermFile;
+import lookandsay.PackedTermIterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This Class is used to check the Implementation of the PackedTermIterator and PackedTermFile.
+ */
+public class PackedTermIteratorTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Test that the file backed iterator walks forward and back exactly like the in-memory one.
+   */
+  @Test
+  public void testMatchesLookAndSayIterator() throws IOException {
+    String[] seeds = {"1", "11221134411113344267", "112321", "11111111111111111111", "1012"};
+    for (String seed : seeds) {
+      BigInteger end = new BigInteger("10").pow(3000);
+      LookAndSayIterator expected = new LookAndSayIterator(new BigInteger(seed), end);
+      try (PackedTermIterator actual = new PackedTermIterator(folder.getRoot().toPath(),
+              new BigInteger(seed), end)) {
+        for (int i = 0; i < 25; i++) {
+          assertEquals(expected.hasNext(), actual.hasNext());
+          assertEquals(expected.next(), actual.next().toBigInteger());
+        }
+        for (int i = 0; i < 30; i++) {
+          assertEquals(expected.hasPrevious(), actual.hasPrevious());
+          assertEquals(expected.prev(), actual.prev().toBigInteger());
+        }
+      }
+    }
+  }
+
+  /**
+   * Test single digit access, that the iterator only keeps the files it still needs, and that
+   * another iterator on the same directory leaves them alone.
+   */
+  @Test
+  public void testDigitAccessAndCleanup() throws IOException {
+    Path directory = folder.newFolder().toPath();
+    PackedTermIterator iterator = new PackedTermIterator(directory, BigInteger.ONE);
+    PackedTermFile term = null;
+    for (int i = 0; i < 8; i++) {
+      term = iterator.next();
+    }
+    assertEquals(new BigInteger("1113213211"), term.toBigInteger());
+    assertEquals(10, term.length());
+    assertEquals(3, term.digitAt(3));
+    assertEquals(1, term.digitAt(9));
+    PackedTermIterator sharing = new PackedTermIterator(directory, BigInteger.ONE);
+    for (int i = 0; i < 10; i++) {
+      sharing.next();
+    }
+    assertEquals(new BigInteger("1113213211"), term.toBigInteger());
+    sharing.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      assertEquals(2, files.filter(Files::isRegularFile).count());
+    }
+    PackedTermFile reopened = PackedTermFile.open(term.path());
+    assertEquals(term.toBigInteger(), reopened.toBigInteger());
+    iterator.close();
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  /**
+   * Test that the iterator stops at the end value and refuses to move back from an odd term.
+   */
+  @Test
+  public void testBounds() throws IOException {
+    try (PackedTermIterator iterator = new PackedTermIterator(folder.getRoot().toPath(),
+            BigInteger.ONE, new BigInteger("21"))) {
+      assertTrue(iterator.hasNext());
+      assertFalse(iterator.hasPrevious());
+      assertEquals(BigInteger.ONE, iterator.prev().toBigInteger());
+      iterator.next();
+      iterator.next();
+      assertFalse(iterator.hasNext());
+      assertEquals(new BigInteger("21"), iterator.next().toBigInteger());
+    }
+    try {
+      new PackedTermIterator(folder.getRoot().toPath(), new BigInteger("22"));
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("22 case.", iae.getMessage());
+    }
+  }
+
+  /**
+   * Test that terms written to channels, from memory or from files and over several chunks, are
+   * their decimal digits, that the runs written are the next term and that a transferred file
+   * opens as the same term.
+   */
+  @Test
+  public void testExport() throws IOException {
+    DigitSequence end = DigitSequence.parse("1" + "0".repeat(5000000));
+    DigitSequenceIterator iterator = new DigitSequenceIterator(DigitSequence.parse("1"), end);
+    PackedTermIterator packed = new PackedTermIterator(folder.newFolder().toPath(), BigInteger.ONE,
+            new BigInteger("10").pow(5000000));
+    for (int step = 0; step < 55; step++) {
+      ByteArrayOutputStream digits = new ByteArrayOutputStream();
+      ByteArrayOutputStream runs = new ByteArrayOutputStream();
+      ByteArrayOutputStream unpacked = new ByteArrayOutputStream();
+      assertEquals(iterator.length(), iterator.writeDigits(Channels.newChannel(digits)));
+      iterator.writeRuns(Channels.newChannel(runs));
+      PackedTermFile file = packed.next();
+      assertEquals(file.length(), file.writeDigits(Channels.newChannel(unpacked)));
+      DigitSequence term = iterator.next();
+      if (step == 0 || step > 50) {
+        String text = term.toString();
+        assertTrue(text.equals(digits.toString(StandardCharsets.US_ASCII)));
+        assertTrue(text.equals(unpacked.toString(StandardCharsets.US_ASCII)));
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        term.writeTo(Channels.newChannel(written));
+        assertTrue(text.equals(written.toString(StandardCharsets.US_ASCII)));
+        StringBuilder following = new StringBuilder();
+        iterator.digitStream().forEachOrdered(following::append);
+        assertTrue(following.toString().equals(runs.toString(StandardCharsets.US_ASCII)));
+      }
+    }
+    PackedTermFile term = packed.prev();
+    Path copy = folder.newFile().toPath();
+    try (WritableByteChannel channel = FileChannel.open(copy, StandardOpenOption.WRITE)) {
+      assertEquals(Files.size(term.path()), term.transferTo(channel));
+    }
+    assertEquals(term.length(), PackedTermFile.open(copy).length());
+    assertEquals(term.digitAt(term.length() - 1),
+            PackedTermFile.open(copy).digitAt(term.length() - 1));
+    packed.close();
+  }
+}
@@ -0,0 +1,104 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import lookandsay.LookAndSayIterator;
+import lookandsay.PartitionedTerm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This Class is used to check the Implementation of the PartitionedTerm and PartitionWorker.
+ */
+public class PartitionedTermTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Test that the term split among worker processes steps like the in-memory iterator, including
+   * runs that cross several slices, and that the slices stay balanced.
+   */
+  @Test
+  public void testMatchesLookAndSayIterator() throws IOException {
+    String[] seeds = {"1", "11111111111111111111", "1012"};
+    for (String seed : seeds) {
+      Path directory = folder.newFolder().toPath();
+      LookAndSayIterator expected = new LookAndSayIterator(new BigInteger(seed),
+              BigInteger.TEN.pow(100000));
+      try (PartitionedTerm term = PartitionedTerm.launch(directory, 3, new BigInteger(seed))) {
+        BigInteger value = expected.next();
+        assertEquals(value, term.toBigInteger());
+        for (int step = 0; step < 30; step++) {
+          term.next();
+          value = expected.next();
+          assertEquals(value, term.toBigInteger());
+        }
+        long share = term.length() / 3;
+        for (long slice : term.sliceLengths()) {
+          assertTrue(slice <= share + share / 4 + 1);
+        }
+        String digits = value.toString();
+        assertEquals(digits.length(), term.length());
+        assertEquals(digits.charAt(0) - '0', term.digitAt(0));
+        assertEquals(digits.charAt(digits.length() / 2) - '0', term.digitAt(digits.length() / 2));
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        assertEquals(digits.length(), term.writeDigits(Channels.newChannel(text)));
+        assertTrue(digits.equals(text.toString(StandardCharsets.US_ASCII)));
+        try {
+          term.digitAt(digits.length());
+          fail();
+        } catch (IndexOutOfBoundsException ioobe) {
+          assertEquals("no digit at " + digits.length(), ioobe.getMessage());
+        }
+      }
+      try (var files = Files.walk(directory)) {
+        assertEquals(0, files.filter(Files::isRegularFile).count());
+      }
+    }
+  }
+
+  /**
+   * Test that invalid arguments are rejected and a closed term cannot be used.
+   */
+  @Test
+  public void testInvalidArguments() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    try {
+      PartitionedTerm.launch(null, 2, BigInteger.ONE);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("directory or seed cannot be null", iae.getMessage());
+    }
+    try {
+      PartitionedTerm.launch(directory, 0, BigInteger.ONE);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("workers must be positive", iae.getMessage());
+    }
+    try {
+      PartitionedTerm.launch(directory, 2, BigInteger.ONE.negate());
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("invalid argument", iae.getMessage());
+    }
+    PartitionedTerm term = PartitionedTerm.launch(directory, 1, BigInteger.ONE);
+    term.close();
+    try {
+      term.next();
+      fail();
+    } catch (IllegalStateException ise) {
+      assertEquals("term is closed", ise.getMessage());
+    }
+  }
+}
@@ -0,0 +1,142 @@
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import lookandsay.LookAndSayIterator;
+import lookandsay.PrefetchingIterator;
+import lookandsay.RIterator;
+import lookandsay.TermLog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This Class is used to check the Implementation of the PrefetchingIterator.
+ */
+public class PrefetchingIteratorTest {
+
+  /**
+   * Test that a prefetching iterator moves back and forth over the same terms as the iterator it
+   * wraps, and stops at the same end value.
+   */
+  @Test
+  public void testMatchesIterator() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    BigInteger end = new BigInteger("10").pow(3000);
+    for (int depth : new int[] {1, 3, 100}) {
+      RIterator<BigInteger> expected = new LookAndSayIterator(BigInteger.ONE, end);
+      RIterator<BigInteger> prefetching = new PrefetchingIterator<BigInteger>(
+              new LookAndSayIterator(BigInteger.ONE, end), depth, executor).start();
+      for (int step = 0; step < 20; step++) {
+        assertEquals(expected.next(), prefetching.next());
+      }
+      for (int step = 0; step < 5; step++) {
+        assertEquals(expected.hasPrevious(), prefetching.hasPrevious());
+        assertEquals(expected.prev(), prefetching.prev());
+      }
+      while (expected.hasNext()) {
+        assertEquals(expected.next(), prefetching.next());
+      }
+      assertFalse(prefetching.hasNext());
+      assertEquals(expected.next(), prefetching.next());
+      assertEquals(expected.prev(), prefetching.prev());
+      assertEquals(expected.next(), prefetching.next());
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Test that going back after terms were computed ahead lands on the terms the wrapped iterator
+   * would reach, also from a seed that reading out loud and back does not restore, and when the
+   * caller walks back further than the terms computed ahead.
+   */
+  @Test
+  public void testBackFromPrefetchedTerms() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    BigInteger end = new BigInteger("10").pow(3000);
+    for (int depth : new int[] {1, 3, 100}) {
+      BigInteger seed = new BigInteger("111111111122");
+      RIterator<BigInteger> prefetching = new PrefetchingIterator<BigInteger>(
+              new LookAndSayIterator(seed, end), depth, executor).start();
+      assertTrue(prefetching.hasNext());
+      assertTrue(prefetching.hasPrevious());
+      assertEquals(seed, prefetching.prev());
+      RIterator<BigInteger> expected = new LookAndSayIterator(seed, end);
+      expected.prev();
+      assertEquals(expected.next(), prefetching.next());
+      for (int step = 0; step < 12; step++) {
+        assertEquals(expected.next(), prefetching.next());
+      }
+      for (int step = 0; step < 8; step++) {
+        assertEquals(expected.hasPrevious(), prefetching.hasPrevious());
+        assertEquals(expected.prev(), prefetching.prev());
+      }
+      while (expected.hasNext()) {
+        assertEquals(expected.next(), prefetching.next());
+      }
+      assertEquals(expected.next(), prefetching.next());
+      assertFalse(prefetching.hasNext());
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Test that going back before any term was computed ahead, and so before the background task
+   * has anything queued, leaves the terms after it in order.
+   */
+  @Test
+  public void testBackBeforeFirstTerm() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    BigInteger end = new BigInteger("10").pow(3000);
+    for (int depth : new int[] {1, 2, 3, 100}) {
+      for (boolean started : new boolean[] {false, true}) {
+        BigInteger seed = new BigInteger("1211");
+        PrefetchingIterator<BigInteger> prefetching = new PrefetchingIterator<BigInteger>(
+                new LookAndSayIterator(seed, end), depth, executor);
+        if (started) {
+          prefetching.start();
+        }
+        RIterator<BigInteger> expected = new LookAndSayIterator(seed, end);
+        assertEquals(expected.prev(), prefetching.prev());
+        for (int step = 0; step < 10; step++) {
+          assertEquals(expected.next(), prefetching.next());
+        }
+        assertEquals(expected.prev(), prefetching.prev());
+        assertEquals(expected.prev(), prefetching.prev());
+        for (int step = 0; step < 10; step++) {
+          assertEquals(expected.next(), prefetching.next());
+        }
+      }
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Test the invalid arguments.
+   */
+  @Test
+  public void testInvalidArguments() {
+    try {
+      new PrefetchingIterator<BigInteger>(null, 1, Runnable::run);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("source or executor cannot be null", iae.getMessage());
+    }
+    try {
+      new PrefetchingIterator<BigInteger>(new TermLog().iterator(BigInteger.TEN), 1, Runnable::run);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("source must be a term iterator", iae.getMessage());
+    }
+    try {
+      new PrefetchingIterator<BigInteger>(new LookAndSayIterator(), 0, Runnable::run);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("depth must be positive", iae.getMessage());
+    }
+  }
+}
@@ -0,0 +1,156 @@
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import lookandsay.ConwayEngine;
+import lookandsay.DigitSequence;
+import lookandsay.DigitSequenceIterator;
+import lookandsay.SeedBatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This Class is used to check the Implementation of the SeedBatch.
+ */
+public class SeedBatchTest {
+
+  /**
+   * Test that a batch yields the terms and lengths an iterator reaches for each seed, whether the
+   * cache is large, small enough to evict or empty.
+   */
+  @Test
+  public void testMatchesIterator() {
+    List<DigitSequence> seeds = new ArrayList<DigitSequence>();
+    for (String seed : new String[] {"1", "0", "3333", "1111111111", "11221134411113344267"}) {
+      seeds.add(DigitSequence.parse(seed));
+    }
+    for (int seed = 100; seed < 400; seed += 7) {
+      seeds.add(DigitSequence.valueOf(BigInteger.valueOf(seed)));
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+    for (long cacheBytes : new long[] {1 << 24, 4096, 0}) {
+      SeedBatch batch = new SeedBatch(pool, cacheBytes);
+      for (int steps : new int[] {0, 1, 2, 5, 30}) {
+        List<DigitSequence> terms = batch.termsAt(seeds, steps);
+        long[] lengths = batch.lengthsAt(seeds, steps);
+        for (int i = 0; i < seeds.size(); i++) {
+          DigitSequenceIterator iterator = new DigitSequenceIterator(seeds.get(i),
+                  DigitSequence.parse("1" + "0".repeat(100000)));
+          for (int step = 0; step < steps; step++) {
+            iterator.next();
+          }
+          DigitSequence expected = iterator.next();
+          assertEquals(expected, terms.get(i));
+          assertEquals(expected.length(), lengths[i]);
+          int from = expected.length() / 3;
+          assertEquals(expected.subSequence(from, expected.length() - from).toString(),
+                  batch.digitsAt(seeds.get(i), steps, from, expected.length() - from).toString());
+        }
+      }
+      assertTrue(cacheBytes > 0 || batch.cachedBytes() == 0);
+      assertEquals(Arrays.asList(DigitSequence.parse("22")),
+              batch.termsAt(Arrays.asList(DigitSequence.parse("22")), 40));
+    }
+    pool.shutdown();
+  }
+
+  /**
+   * Test that the lengths of far terms agree with the engine, also when many threads work out the
+   * same atoms at once, and that lengths past Long.MAX_VALUE are capped without working out every
+   * step.
+   */
+  @Test
+  public void testFarLengths() {
+    List<DigitSequence> seeds = Arrays.asList(DigitSequence.parse("1"),
+            DigitSequence.parse("11221134411113344267"), DigitSequence.parse("7"));
+    SeedBatch batch = new SeedBatch(ForkJoinPool.commonPool(), 1 << 20);
+    long[] lengths = batch.lengthsAt(seeds, 100);
+    for (int i = 0; i < seeds.size(); i++) {
+      assertEquals(new ConwayEngine(seeds.get(i).toBigInteger()).length(100).longValueExact(),
+              lengths[i]);
+    }
+    for (long length : batch.lengthsAt(seeds, 1000000)) {
+      assertEquals(Long.MAX_VALUE, length);
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+    List<DigitSequence> copies = new ArrayList<DigitSequence>();
+    for (int i = 0; i < 64; i++) {
+      copies.add(seeds.get(i % seeds.size()));
+    }
+    long[] shared = new SeedBatch(pool, 1 << 20).lengthsAt(copies, 100);
+    for (int i = 0; i < copies.size(); i++) {
+      assertEquals(lengths[i % seeds.size()], shared[i]);
+    }
+    pool.shutdown();
+  }
+
+  /**
+   * Test that digits of terms far too large for a buffer are built from the atoms alone and agree
+   * with the engine.
+   */
+  @Test
+  public void testFarDigits() {
+    SeedBatch batch = new SeedBatch(ForkJoinPool.commonPool(), 1 << 20);
+    ConwayEngine engine = new ConwayEngine();
+    long length = engine.length(150).longValueExact();
+    for (long from : new long[] {0, 123456789, length / 2, length - 40}) {
+      StringBuilder expected = new StringBuilder();
+      for (long position = from; position < from + 40; position++) {
+        expected.append(engine.digitAt(150, position));
+      }
+      assertEquals(expected.toString(),
+              batch.digitsAt(DigitSequence.parse("1"), 150, from, from + 40).toString());
+    }
+    assertEquals("22", batch.digitsAt(DigitSequence.parse("22"), 4096, 0, 2).toString());
+    try {
+      batch.digitsAt(DigitSequence.parse("1"), 150, length - 1, length + 1);
+      fail();
+    } catch (IndexOutOfBoundsException ioobe) {
+      assertEquals("no digits from " + (length - 1) + " to " + (length + 1), ioobe.getMessage());
+    }
+  }
+
+  /**
+   * Test the invalid arguments.
+   */
+  @Test
+  public void testInvalidArguments() {
+    try {
+      new SeedBatch(null, 0);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("pool cannot be null", iae.getMessage());
+    }
+    try {
+      new SeedBatch(ForkJoinPool.commonPool(), -1);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("cache size cannot be negative", iae.getMessage());
+    }
+    SeedBatch batch = new SeedBatch(ForkJoinPool.commonPool(), 0);
+    try {
+      batch.termsAt(Arrays.asList(DigitSequence.parse("1"), null), 3);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("seed cannot be null", iae.getMessage());
+    }
+    try {
+      batch.lengthsAt(Arrays.asList(DigitSequence.parse("1")), -1);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("steps cannot be negative", iae.getMessage());
+    }
+    try {
+      batch.digitsAt(null, 3, 0, 1);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("seed cannot be null", iae.getMessage());
+    }
+  }
+}
@@ -0,0 +1,154 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import lookandsay.DigitSequence;
+import lookandsay.DigitSequenceIterator;
+import lookandsay.LookAndSayIterator;
+import lookandsay.TermStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * This Class is used to check the checkpoint files of the iterators and the TermStore.
+ */
+public class TermCheckpointTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Test that a resumed iterator carries on exactly like the one that was saved, forward, back and
+   * when skipping, and that saving over a checkpoint leaves no other file behind.
+   */
+  @Test
+  public void testResumeMatchesSavedIterator() throws IOException {
+    BigInteger end = new BigInteger("10").pow(5000);
+    for (String seed : new String[] {"1", "11221134411113344267", "0"}) {
+      for (int steps : new int[] {0, 1, 7, 20}) {
+        LookAndSayIterator saved = new LookAndSayIterator(new BigInteger(seed), end);
+        saved.skip(steps);
+        Path path = folder.newFile().toPath();
+        saved.saveCheckpoint(path);
+        LookAndSayIterator resumed = LookAndSayIterator.resume(path);
+        assertEquals(saved.termIndex(), resumed.termIndex());
+        assertEquals(saved.skip(9), resumed.skip(9));
+        for (int i = 0; i < 6; i++) {
+          assertEquals(saved.hasNext(), resumed.hasNext());
+          assertEquals(saved.next(), resumed.next());
+        }
+        for (int i = 0; i < 4; i++) {
+          assertEquals(saved.prev(), resumed.prev());
+        }
+      }
+    }
+    DigitSequenceIterator digits = new DigitSequenceIterator(DigitSequence.parse("3"),
+            DigitSequence.parse("1" + "0".repeat(300)));
+    digits.advanceTo(12);
+    Path path = folder.newFile().toPath();
+    digits.saveCheckpoint(path);
+    DigitSequenceIterator resumed = DigitSequenceIterator.resume(path);
+    while (digits.hasNext()) {
+      assertEquals(digits.next(), resumed.next());
+    }
+    assertFalse(resumed.hasNext());
+    Path directory = folder.newFolder().toPath();
+    digits.saveCheckpoint(directory.resolve("checkpoint"));
+    digits.saveCheckpoint(directory.resolve("checkpoint"));
+    try (var files = Files.list(directory)) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  /**
+   * Test that damaged, truncated and foreign files are refused, including a frame that claims more
+   * digits than the file holds.
+   */
+  @Test
+  public void testDamagedCheckpoint() throws IOException {
+    LookAndSayIterator iterator = new LookAndSayIterator();
+    iterator.advanceTo(15);
+    Path path = folder.newFile().toPath();
+    iterator.saveCheckpoint(path);
+    byte[] bytes = Files.readAllBytes(path);
+    bytes[40] ^= 0x01;
+    Files.write(path, bytes);
+    try {
+      LookAndSayIterator.resume(path);
+      fail();
+    } catch (IOException ioe) {
+      assertEquals("checksum mismatch: " + path, ioe.getMessage());
+    }
+    bytes[40] ^= 0x01;
+    Files.write(path, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+    try {
+      LookAndSayIterator.resume(path);
+      fail();
+    } catch (IOException ioe) {
+      assertEquals("damaged checkpoint: " + path, ioe.getMessage());
+    }
+    ByteBuffer.wrap(bytes).putLong(5 + 2 * Long.BYTES, 1 << 30);
+    Files.write(path, bytes);
+    try {
+      LookAndSayIterator.resume(path);
+      fail();
+    } catch (IOException ioe) {
+      assertEquals("damaged checkpoint: " + path, ioe.getMessage());
+    }
+    Files.write(path, "not a checkpoint".getBytes("US-ASCII"));
+    try {
+      LookAndSayIterator.resume(path);
+      fail();
+    } catch (IOException ioe) {
+      assertEquals("not a checkpoint: " + path, ioe.getMessage());
+    }
+  }
+
+  /**
+   * Test that a store hands out the terms of its sequence and iterators that start at them.
+   */
+  @Test
+  public void testTermStore() throws IOException {
+    Path path = folder.newFile().toPath();
+    TermStore.create(path, BigInteger.ONE, 40);
+    TermStore store = TermStore.open(path);
+    assertEquals(40, store.size());
+    BigInteger end = new BigInteger("10").pow(100000);
+    LookAndSayIterator expected = new LookAndSayIterator(BigInteger.ONE, end);
+    for (int term = 0; term < 40; term++) {
+      assertEquals(expected.next(), store.term(term).toBigInteger());
+    }
+    LookAndSayIterator resumed = store.iterator(30, end);
+    LookAndSayIterator stepper = new LookAndSayIterator(BigInteger.ONE, end);
+    stepper.advanceTo(30);
+    assertEquals(30, resumed.termIndex());
+    assertEquals(stepper.skip(12), resumed.skip(12));
+    assertEquals(stepper.next(), resumed.next());
+    try {
+      store.term(40);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      assertEquals("no term 40", e.getMessage());
+    }
+    try {
+      store.iterator(30, null);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("end cannot be null", iae.getMessage());
+    }
+    try {
+      store.iterator(30, BigInteger.TEN);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("invalid argument", iae.getMessage());
+    }
+  }
+}
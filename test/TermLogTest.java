@@ -0,0 +1,121 @@
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lookandsay.DigitSequence;
+import lookandsay.DigitSequenceIterator;
+import lookandsay.LookAndSayIterator;
+import lookandsay.RIterator;
+import lookandsay.TermLog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This Class is used to check the Implementation of the TermLog.
+ */
+public class TermLogTest {
+
+  /**
+   * Test that cursors read the terms an iterator produces, stop at the end value like it and go
+   * back no further than the seed.
+   */
+  @Test
+  public void testMatchesIterators() {
+    TermLog log = new TermLog();
+    RIterator<BigInteger> cursor = log.iterator(new BigInteger("10").pow(100));
+    LookAndSayIterator iterator = new LookAndSayIterator();
+    while (iterator.hasNext()) {
+      assertTrue(cursor.hasNext());
+      assertEquals(iterator.next(), cursor.next());
+    }
+    assertFalse(cursor.hasNext());
+    assertEquals(iterator.next(), cursor.next());
+    int size = log.size();
+    while (cursor.hasPrevious()) {
+      assertEquals(iterator.prev(), cursor.prev());
+    }
+    assertEquals(BigInteger.ONE, cursor.prev());
+    assertEquals(size, log.size());
+
+    TermLog seeded = new TermLog(DigitSequence.parse("11221134411113344267"));
+    DigitSequence end = DigitSequence.parse("1" + "0".repeat(20000));
+    RIterator<DigitSequence> digits = seeded.digitIterator(end);
+    DigitSequenceIterator expected =
+            new DigitSequenceIterator(DigitSequence.parse("11221134411113344267"), end);
+    while (expected.hasNext()) {
+      assertEquals(expected.next(), digits.next());
+    }
+    assertFalse(digits.hasNext());
+    assertEquals(expected.next(), seeded.term(seeded.size() - 1));
+  }
+
+  /**
+   * Test that threads reading the same log at once all see the same terms.
+   */
+  @Test
+  public void testConcurrentCursors() throws Exception {
+    DigitSequence end = DigitSequence.parse("1" + "0".repeat(50000));
+    List<DigitSequence> expected = new ArrayList<DigitSequence>();
+    DigitSequenceIterator iterator = new DigitSequenceIterator(DigitSequence.parse("1"), end);
+    while (iterator.hasNext()) {
+      expected.add(iterator.next());
+    }
+    TermLog log = new TermLog();
+    ExecutorService threads = Executors.newFixedThreadPool(8);
+    List<Future<List<DigitSequence>>> read = new ArrayList<Future<List<DigitSequence>>>();
+    for (int reader = 0; reader < 16; reader++) {
+      read.add(threads.submit(() -> {
+        List<DigitSequence> terms = new ArrayList<DigitSequence>();
+        RIterator<DigitSequence> cursor = log.digitIterator(end);
+        while (cursor.hasNext()) {
+          terms.add(cursor.next());
+        }
+        return terms;
+      }));
+    }
+    for (Future<List<DigitSequence>> terms : read) {
+      assertEquals(expected, terms.get());
+    }
+    threads.shutdown();
+    assertEquals(expected.size() + 1, log.size());
+  }
+
+  /**
+   * Test the invalid arguments.
+   */
+  @Test
+  public void testInvalidArguments() {
+    try {
+      new TermLog(null);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("seed cannot be null", iae.getMessage());
+    }
+    try {
+      new TermLog().iterator(null);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("end cannot be null", iae.getMessage());
+    }
+    try {
+      new TermLog(DigitSequence.parse("123")).digitIterator(DigitSequence.parse("99"));
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("invalid argument", iae.getMessage());
+    }
+    try {
+      new TermLog().term(-1);
+      fail();
+    } catch (IndexOutOfBoundsException ioobe) {
+      assertEquals("no term -1", ioobe.getMessage());
+    }
+  }
+}
@@ -0,0 +1,96 @@
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import lookandsay.LookAndSayIterator;
+import lookandsay.TermPublisher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This Class is used to check the Implementation of the TermPublisher.
+ */
+public class TermPublisherTest {
+
+  /**
+   * A subscriber that requests one term at a time and keeps what it is sent.
+   */
+  private static final class Collector implements Flow.Subscriber<BigInteger> {
+
+    final List<BigInteger> terms = new ArrayList<BigInteger>();
+    final CountDownLatch ended = new CountDownLatch(1);
+    final long firstRequest;
+    Flow.Subscription subscription;
+    Throwable error;
+
+    Collector(long firstRequest) {
+      this.firstRequest = firstRequest;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(firstRequest);
+    }
+
+    @Override
+    public void onNext(BigInteger term) {
+      terms.add(term);
+      subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      ended.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      ended.countDown();
+    }
+  }
+
+  /**
+   * Test that every subscriber gets the terms of its own iterator, one request at a time, and is
+   * completed at the end value.
+   */
+  @Test
+  public void testPublishesTerms() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    BigInteger end = new BigInteger("10").pow(2000);
+    List<BigInteger> expected = new ArrayList<BigInteger>();
+    LookAndSayIterator iterator = new LookAndSayIterator(BigInteger.ONE, end);
+    while (iterator.hasNext()) {
+      expected.add(iterator.next());
+    }
+    for (int depth : new int[] {1, 4}) {
+      TermPublisher<BigInteger> publisher = new TermPublisher<BigInteger>(
+              () -> new LookAndSayIterator(BigInteger.ONE, end), depth, executor);
+      Collector first = new Collector(1);
+      Collector second = new Collector(3);
+      publisher.subscribe(first);
+      publisher.subscribe(second);
+      assertTrue(first.ended.await(30, TimeUnit.SECONDS));
+      assertTrue(second.ended.await(30, TimeUnit.SECONDS));
+      assertNull(first.error);
+      assertEquals(expected, first.terms);
+      assertEquals(expected, second.terms);
+    }
+    Collector invalid = new Collector(0);
+    new TermPublisher<BigInteger>(LookAndSayIterator::new, 2, executor).subscribe(invalid);
+    assertTrue(invalid.ended.await(30, TimeUnit.SECONDS));
+    assertEquals("request must be positive", invalid.error.getMessage());
+    assertTrue(invalid.terms.isEmpty());
+    executor.shutdown();
+  }
+}
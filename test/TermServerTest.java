@@ -0,0 +1,142 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import lookandsay.ConwayEngine;
+import lookandsay.DigitSequence;
+import lookandsay.LookAndSayIterator;
+import lookandsay.TermServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This Class is used to check the Implementation of the TermServer.
+ */
+public class TermServerTest {
+
+  /**
+   * Test that every kind of query is answered like the iterator would, lengths also for terms that
+   * are not cached, and that invalid queries are refused.
+   */
+  @Test
+  public void testQueries() throws IOException, InterruptedException {
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try (TermServer server = new TermServer(0, pool, 1 << 20).start()) {
+      LookAndSayIterator expected = new LookAndSayIterator(new BigInteger("3"),
+              BigInteger.TEN.pow(10000));
+      String digits = expected.advanceTo(25).toString();
+      HttpClient client = HttpClient.newHttpClient();
+      String base = "http://127.0.0.1:" + server.port();
+      assertEquals(digits, get(client, base + "/term?seed=3&index=25", 200));
+      assertEquals(Integer.toString(digits.length()),
+              get(client, base + "/length?seed=3&index=25", 200));
+      assertEquals(digits.substring(7, 8),
+              get(client, base + "/digit?seed=3&index=25&position=7", 200));
+      assertEquals(digits.substring(5, 40),
+              get(client, base + "/range?seed=3&index=25&from=5&to=40", 200));
+      assertEquals("1113213211", get(client, base + "/term?index=7", 200));
+      assertEquals(new ConwayEngine().length(45).toString(),
+              get(client, base + "/length?index=45", 200));
+      assertEquals("2", get(client, base + "/length?seed=22&index=1000", 200));
+      ConwayEngine engine = new ConwayEngine();
+      StringBuilder far = new StringBuilder();
+      for (int position = 1000000; position < 1000030; position++) {
+        far.append(engine.digitAt(300, position));
+      }
+      assertEquals(far.substring(0, 1),
+              get(client, base + "/digit?index=300&position=1000000", 200));
+      assertEquals(far.toString(), get(client, base + "/range?index=300&from=1000000&to=1000030",
+              200));
+      assertEquals("range cannot exceed 1048576 digits",
+              get(client, base + "/range?index=300&from=0&to=2000000", 413));
+      assertEquals("no digits from 0 to 11", get(client, base + "/range?index=7&from=0&to=11",
+              400));
+      assertEquals("index cannot be negative", get(client, base + "/term?index=-1", 400));
+      assertEquals("22", get(client, base + "/term?seed=22&index=4096", 200));
+      assertEquals("index cannot exceed 4096", get(client, base + "/length?index=4097", 400));
+      assertEquals("index is missing", get(client, base + "/length", 400));
+      assertEquals("position is not a number", get(client, base + "/digit?index=3&position=x",
+              400));
+      assertEquals("no such query: /square", get(client, base + "/square?index=3", 404));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Test that concurrent and repeated requests for the same terms compute each term once, and that
+   * the cache stays within its budget.
+   */
+  @Test
+  public void testComputesOnce() throws InterruptedException, ExecutionException, IOException {
+    ForkJoinPool pool = new ForkJoinPool(2);
+    ExecutorService clients = Executors.newFixedThreadPool(8);
+    try (TermServer server = new TermServer(0, pool, 1 << 22).start()) {
+      List<Future<DigitSequence>> answers = new ArrayList<Future<DigitSequence>>();
+      for (int i = 0; i < 16; i++) {
+        int index = 40 + i % 2;
+        answers.add(clients.submit(() -> server.term(DigitSequence.parse("1"), index)));
+      }
+      DigitSequence[] expected = new DigitSequence[2];
+      for (int i = 0; i < answers.size(); i++) {
+        DigitSequence term = answers.get(i).get();
+        if (expected[i % 2] == null) {
+          expected[i % 2] = term;
+        }
+        assertEquals(expected[i % 2], term);
+      }
+      LookAndSayIterator iterator = new LookAndSayIterator(BigInteger.ONE,
+              BigInteger.TEN.pow(100000));
+      assertEquals(iterator.advanceTo(41), expected[1].toBigInteger());
+      assertEquals(expected[0], server.term(DigitSequence.parse("1"), 40));
+      assertEquals(expected[1].length(), server.length(DigitSequence.parse("1"), 41));
+      assertEquals(2, server.computedTerms());
+      assertTrue(server.cachedBytes() <= 1 << 22);
+      try {
+        server.term(null, 3);
+        fail();
+      } catch (IllegalArgumentException iae) {
+        assertEquals("seed cannot be null", iae.getMessage());
+      }
+    } finally {
+      clients.shutdown();
+      pool.shutdown();
+    }
+    try {
+      new TermServer(0, null, 1);
+      fail();
+    } catch (IllegalArgumentException iae) {
+      assertEquals("pool cannot be null", iae.getMessage());
+    }
+  }
+
+  /**
+   * This method sends a query and checks its status.
+   *
+   * @param client the client that sends the query.
+   * @param uri    the query.
+   * @param status the expected status.
+   * @return the body of the answer.
+   */
+  private static String get(HttpClient client, String uri, int status)
+          throws IOException, InterruptedException {
+    HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(uri)).build(),
+            HttpResponse.BodyHandlers.ofString());
+    assertEquals(status, response.statusCode());
+    return response.body();
+  }
+}